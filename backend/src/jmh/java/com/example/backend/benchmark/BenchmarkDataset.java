@@ -0,0 +1,112 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.model.User;
+import com.example.backend.model.Video;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.services.PopularityCalculationService;
+import com.example.backend.services.TrendingIndexService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pokreće aplikaciju na H2 (test profil) i puni bazu sa zadatim brojem videa.
+ *
+ * Podaci su deterministički (fiksan seed), pa su rezultati uporedivi između pokretanja:
+ * starost 0-30 dana, 0-10 000 pregleda, lajk na svakom 5. i komentar na svakom 10. videu.
+ * Denormalizovani brojači i popularityScore se upisuju zajedno sa videom, kao da je
+ * preračun popularnosti već prošao.
+ */
+public final class BenchmarkDataset {
+
+    private static final int USER_COUNT = 100;
+    private static final int INSERT_BATCH = 1000;
+
+    private BenchmarkDataset() {}
+
+    public static ConfigurableApplicationContext start(int videoCount) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        // svaka JMH fork ima svoju bazu
+                        "spring.datasource.url=jdbc:h2:mem:jmh-" + ProcessHandle.current().pid()
+                                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+                .logStartupInfo(false)
+                .run();
+
+        seed(context, videoCount);
+        context.getBean(TrendingIndexService.class).rebuild();
+        return context;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int videoCount) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        PopularityCalculationService popularityCalculationService = context.getBean(PopularityCalculationService.class);
+
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User();
+            user.setUsername("bench" + i);
+            user.setEmail("bench" + i + "@example.com");
+            user.setPassword("password");
+            user.setFirstName("Bench");
+            user.setLastName("User");
+            user.setAddress("Benchmark Address");
+            user.setRole("USER");
+            user.setEnabled(true);
+            userIds.add(userRepository.save(user).getId());
+        }
+
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < videoCount; i++) {
+            Video video = new Video();
+            video.setViewCount((long) random.nextInt(10_000));
+            video.setLikeCount(i % 5 == 0 ? 1L : 0L);
+            video.setCommentCount(i % 10 == 0 ? 1L : 0L);
+            video.setCreatedAt(now.minusMinutes(random.nextInt(30 * 24 * 60)));
+
+            batch.add(new Object[]{
+                    "Benchmark video " + i, "Opis videa " + i, "benchmark,jmh",
+                    "thumb-" + i + ".jpg", "video-" + i + ".mp4",
+                    Timestamp.valueOf(video.getCreatedAt()), userIds.get(i % USER_COUNT),
+                    video.getViewCount(), popularityCalculationService.calculatePopularityScore(video),
+                    video.getLikeCount(), video.getCommentCount()
+            });
+            if (batch.size() == INSERT_BATCH) {
+                insertVideos(jdbcTemplate, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertVideos(jdbcTemplate, batch);
+        }
+
+        // Redovi iz kojih REAL_TIME strategija broji lajkove i komentare
+        jdbcTemplate.update("""
+                INSERT INTO video_likes (video_id, user_id)
+                SELECT v.id, v.user_id FROM videos v WHERE v.like_count > 0
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO comments (content, user_id, video_id, created_at)
+                SELECT 'Komentar', v.user_id, v.id, v.created_at FROM videos v WHERE v.comment_count > 0
+                """);
+    }
+
+    private static void insertVideos(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO videos (title, description, tags, thumbnail_path, video_path, created_at, user_id,
+                                    view_count, popularity_score, like_count, comment_count)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, batch);
+    }
+}
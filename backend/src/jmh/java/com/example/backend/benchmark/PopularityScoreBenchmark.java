@@ -0,0 +1,54 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.model.Video;
+import com.example.backend.services.PopularityCalculationService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cena računanja popularity score-a po videu (brojači su na Video, bez upita ka bazi).
+ * Jedna operacija = score za sve videe u skupu, pa je rezultat normalizovan po videu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PopularityScoreBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int videoCount;
+
+    private PopularityCalculationService popularityCalculationService;
+    private Video[] videos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // calculatePopularityScore ne koristi repozitorijum ni indeks
+        popularityCalculationService = new PopularityCalculationService(null, null, null);
+
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        videos = new Video[videoCount];
+        for (int i = 0; i < videoCount; i++) {
+            Video video = new Video();
+            video.setViewCount((long) random.nextInt(10_000));
+            video.setLikeCount((long) random.nextInt(500));
+            video.setCommentCount((long) random.nextInt(100));
+            video.setCreatedAt(now.minusMinutes(random.nextInt(30 * 24 * 60)));
+            videos[i] = video;
+        }
+    }
+
+    @Benchmark
+    public void scoreAll(Blackhole blackhole) {
+        for (Video video : videos) {
+            blackhole.consume(popularityCalculationService.calculatePopularityScore(video));
+        }
+    }
+}
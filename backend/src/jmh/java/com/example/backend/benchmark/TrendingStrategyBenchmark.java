@@ -0,0 +1,73 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.model.Video;
+import com.example.backend.services.TrendingBenchmarkService;
+import com.example.backend.services.TrendingIndexService;
+import com.example.backend.dto.VideoResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trending strategije nad H2 bazom sa 1k, 10k i 100k videa.
+ *
+ * - realTime: findAll + dva COUNT upita po videu (TrendingBenchmarkService.getTrendingRealTime)
+ * - cached:   ORDER BY popularity_score LIMIT n (getTrendingCached)
+ * - hybrid:   HybridTrendingCache u stabilnom stanju (pogodak; preračun radi pozadinska nit)
+ * - index:    TrendingIndexService.getTop - ono što služi /api/videos/trending
+ *
+ * SampleTime daje p50/p90/p99/p99.9 po operaciji; za throughput pokrenuti sa -bm thrpt.
+ * realTime na 100k videa traje sekundama po pozivu, pa se može isključiti sa -e realTime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx2g"})
+public class TrendingStrategyBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int videoCount;
+
+    @Param({"20"})
+    public int limit;
+
+    private ConfigurableApplicationContext context;
+    private TrendingBenchmarkService trendingBenchmarkService;
+    private TrendingIndexService trendingIndexService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDataset.start(videoCount);
+        trendingBenchmarkService = context.getBean(TrendingBenchmarkService.class);
+        trendingIndexService = context.getBean(TrendingIndexService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Video> realTime() {
+        return trendingBenchmarkService.getTrendingRealTime(limit);
+    }
+
+    @Benchmark
+    public List<Video> cached() {
+        return trendingBenchmarkService.getTrendingCached(limit);
+    }
+
+    @Benchmark
+    public List<Video> hybrid() {
+        return trendingBenchmarkService.getTrendingHybrid(limit);
+    }
+
+    @Benchmark
+    public List<VideoResponse> index() {
+        return trendingIndexService.getTop(limit);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.dto.VideoFeedPage;
+import com.example.backend.dto.VideoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serijalizacija odgovora /trending (lista VideoResponse) i /api/videos (VideoFeedPage),
+ * sa ObjectMapper-om podešenim kao u Spring Boot-u (JavaTimeModule, bez timestamp datuma).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class VideoResponseSerializationBenchmark {
+
+    @Param({"1", "20", "50"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private List<VideoResponse> videos;
+    private VideoFeedPage feedPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        LocalDateTime now = LocalDateTime.now();
+        videos = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            videos.add(new VideoResponse((long) i, "Benchmark video " + i,
+                    "Opis videa sa nešto dužim tekstom koji liči na pravi opis " + i, "benchmark,jmh,video",
+                    "Novi Sad, Serbia", now.minusHours(i), 1000L + i, "autor" + i, (long) i,
+                    10L + i, 123.45 + i, 45.2671, 19.8335, null));
+        }
+        feedPage = new VideoFeedPage(videos, "MjAyNS0wMS0xNVQwODowMDowMF80Mg", true);
+    }
+
+    @Benchmark
+    public byte[] trendingList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(videos);
+    }
+
+    @Benchmark
+    public byte[] feedPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(feedPage);
+    }
+}
@@ -5,6 +5,8 @@ import com.example.backend.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 @Configuration
 public class DataInitializer {
@@ -42,4 +44,25 @@ public class DataInitializer {
             }
         };
     }
+
+    /**
+     * VideoView je prešao sa IDENTITY na sekvencu. Na postojećoj PostgreSQL bazi
+     * ddl-auto=update kreira sekvencu od 1, pa je pomeramo iznad najvećeg postojećeg ID-ja.
+     */
+    @Bean
+    CommandLineRunner alignVideoViewSequence(JdbcTemplate jdbcTemplate) {
+        return args -> {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(database)) {
+                return;
+            }
+
+            jdbcTemplate.execute("""
+                SELECT setval('video_views_seq',
+                              GREATEST((SELECT COALESCE(MAX(id), 0) FROM video_views) + 50,
+                                       (SELECT last_value FROM video_views_seq)))
+                """);
+        };
+    }
 }
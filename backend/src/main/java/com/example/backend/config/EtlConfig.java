@@ -0,0 +1,55 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.etl")
+public class EtlConfig {
+
+    // Broj najpopularnijih videa koji se cuva po ETL izvrsavanju
+    private int topN = 3;
+
+    // Koliko dugo /api/etl/popular sluzi odgovor iz memorije pre ponovnog citanja iz baze
+    // (rezultat ETL-a pokrenutog na drugoj instanci postaje vidljiv najkasnije posle ovog perioda)
+    private long popularCacheTtlSeconds = 60;
+
+    // Najduze trajanje lock-a izmedju instanci; ako instanca padne usred ETL-a, lock se oslobadja posle ovoliko minuta
+    private long lockLeaseMinutes = 30;
+
+    // Broj niti za paralelno citanje i bodovanje u transform fazi (0 = broj jezgara);
+    // svaka nit dok cita svoj opseg drzi jednu konekciju iz pool-a
+    private int transformParallelism = 0;
+
+    public int getTopN() {
+        return topN;
+    }
+
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    public long getPopularCacheTtlSeconds() {
+        return popularCacheTtlSeconds;
+    }
+
+    public void setPopularCacheTtlSeconds(long popularCacheTtlSeconds) {
+        this.popularCacheTtlSeconds = popularCacheTtlSeconds;
+    }
+
+    public long getLockLeaseMinutes() {
+        return lockLeaseMinutes;
+    }
+
+    public void setLockLeaseMinutes(long lockLeaseMinutes) {
+        this.lockLeaseMinutes = lockLeaseMinutes;
+    }
+
+    public int getTransformParallelism() {
+        return transformParallelism;
+    }
+
+    public void setTransformParallelism(int transformParallelism) {
+        this.transformParallelism = transformParallelism;
+    }
+}
@@ -11,6 +11,31 @@ public class GeolocationConfig {
     private double maxRadiusKm = 500.0;
     private double minRadiusKm = 1.0;
 
+    // Veličina ćelije prostornog indeksa videa u stepenima (0.25° je oko 28 km po geografskoj širini)
+    private double gridCellDegrees = 0.25;
+
+    // Broj najpopularnijih videa koji se unapred čuva po ćeliji (najveći limit koji se služi iz tile-ova)
+    private int tileSize = 50;
+
+    // Offline tabela IP opsega (CSV: network,latitude,longitude,city,country)
+    private String ipDatabase = "classpath:geoip/ip-ranges.csv";
+
+    // Keš IP lokacija (po /24 prefiksu)
+    private long ipCacheMaxSize = 10_000;
+    private long ipCacheTtlMinutes = 60;
+
+    // ip-api.com fallback: koliko dugo zahtev čeka odgovor i koliko poziva sme da bude u toku/u redu
+    private boolean ipApiEnabled = true;
+    private long ipApiTimeoutMs = 800;
+    private int ipApiMaxConcurrent = 4;
+    private int ipApiQueueSize = 100;
+
+    // Naknadno određivanje lokacije videa posle upload-a (LocationEnrichmentService)
+    private int enrichmentThreads = 2;
+    private int enrichmentQueueSize = 1000;
+    private int enrichmentMaxAttempts = 3;
+    private long enrichmentInitialBackoffMs = 2000;
+
     public double getDefaultRadiusKm() {
         return defaultRadiusKm;
     }
@@ -35,6 +60,110 @@ public class GeolocationConfig {
         this.minRadiusKm = minRadiusKm;
     }
 
+    public double getGridCellDegrees() {
+        return gridCellDegrees;
+    }
+
+    public void setGridCellDegrees(double gridCellDegrees) {
+        this.gridCellDegrees = gridCellDegrees;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public String getIpDatabase() {
+        return ipDatabase;
+    }
+
+    public void setIpDatabase(String ipDatabase) {
+        this.ipDatabase = ipDatabase;
+    }
+
+    public long getIpCacheMaxSize() {
+        return ipCacheMaxSize;
+    }
+
+    public void setIpCacheMaxSize(long ipCacheMaxSize) {
+        this.ipCacheMaxSize = ipCacheMaxSize;
+    }
+
+    public long getIpCacheTtlMinutes() {
+        return ipCacheTtlMinutes;
+    }
+
+    public void setIpCacheTtlMinutes(long ipCacheTtlMinutes) {
+        this.ipCacheTtlMinutes = ipCacheTtlMinutes;
+    }
+
+    public boolean isIpApiEnabled() {
+        return ipApiEnabled;
+    }
+
+    public void setIpApiEnabled(boolean ipApiEnabled) {
+        this.ipApiEnabled = ipApiEnabled;
+    }
+
+    public long getIpApiTimeoutMs() {
+        return ipApiTimeoutMs;
+    }
+
+    public void setIpApiTimeoutMs(long ipApiTimeoutMs) {
+        this.ipApiTimeoutMs = ipApiTimeoutMs;
+    }
+
+    public int getIpApiMaxConcurrent() {
+        return ipApiMaxConcurrent;
+    }
+
+    public void setIpApiMaxConcurrent(int ipApiMaxConcurrent) {
+        this.ipApiMaxConcurrent = ipApiMaxConcurrent;
+    }
+
+    public int getIpApiQueueSize() {
+        return ipApiQueueSize;
+    }
+
+    public void setIpApiQueueSize(int ipApiQueueSize) {
+        this.ipApiQueueSize = ipApiQueueSize;
+    }
+
+    public int getEnrichmentThreads() {
+        return enrichmentThreads;
+    }
+
+    public void setEnrichmentThreads(int enrichmentThreads) {
+        this.enrichmentThreads = enrichmentThreads;
+    }
+
+    public int getEnrichmentQueueSize() {
+        return enrichmentQueueSize;
+    }
+
+    public void setEnrichmentQueueSize(int enrichmentQueueSize) {
+        this.enrichmentQueueSize = enrichmentQueueSize;
+    }
+
+    public int getEnrichmentMaxAttempts() {
+        return enrichmentMaxAttempts;
+    }
+
+    public void setEnrichmentMaxAttempts(int enrichmentMaxAttempts) {
+        this.enrichmentMaxAttempts = enrichmentMaxAttempts;
+    }
+
+    public long getEnrichmentInitialBackoffMs() {
+        return enrichmentInitialBackoffMs;
+    }
+
+    public void setEnrichmentInitialBackoffMs(long enrichmentInitialBackoffMs) {
+        this.enrichmentInitialBackoffMs = enrichmentInitialBackoffMs;
+    }
+
     public double validateRadius(Double radiusKm) {
         if (radiusKm == null) {
             return defaultRadiusKm;
@@ -0,0 +1,68 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.thumbnail-cache")
+public class ThumbnailCacheConfig {
+
+    // Maksimalna ukupna veličina keširanih thumbnail-a u bajtovima (default 64 MB)
+    private long maxBytes = 64L * 1024 * 1024;
+
+    // Thumbnail koji nije tražen ovoliko minuta se izbacuje iz keša
+    private long expireAfterAccessMinutes = 60;
+
+    // heap = Caffeine keš na heap-u, mapped = off-heap memorijski mapirani segment fajlovi
+    private String mode = "heap";
+
+    // Direktorijum sa segment fajlovima (samo za mode=mapped)
+    private String segmentDir = "uploads/thumbnail-cache";
+
+    // Veličina jednog segment fajla u bajtovima (default 16 MB)
+    private int segmentBytes = 16 * 1024 * 1024;
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getExpireAfterAccessMinutes() {
+        return expireAfterAccessMinutes;
+    }
+
+    public void setExpireAfterAccessMinutes(long expireAfterAccessMinutes) {
+        this.expireAfterAccessMinutes = expireAfterAccessMinutes;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public boolean isMapped() {
+        return "mapped".equalsIgnoreCase(mode);
+    }
+
+    public String getSegmentDir() {
+        return segmentDir;
+    }
+
+    public void setSegmentDir(String segmentDir) {
+        this.segmentDir = segmentDir;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.thumbnail")
+public class ThumbnailConfig {
+
+    // Broj niti koje renderuju varijante thumbnail-a posle upload-a
+    private int processingThreads = 2;
+
+    // Najviše thumbnail-a koji čekaju obradu; kad je red pun, upload nit sama renderuje
+    private int queueSize = 100;
+
+    // Maksimalna veličina poslate slike (drži se u memoriji dok se ne obradi)
+    private int maxSourceBytes = 10 * 1024 * 1024;
+
+    // Maksimalan broj piksela poslate slike; proverava se iz zaglavlja, pre dekodiranja
+    private long maxSourcePixels = 4096L * 4096;
+
+    public int getProcessingThreads() {
+        return processingThreads;
+    }
+
+    public void setProcessingThreads(int processingThreads) {
+        this.processingThreads = processingThreads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getMaxSourceBytes() {
+        return maxSourceBytes;
+    }
+
+    public void setMaxSourceBytes(int maxSourceBytes) {
+        this.maxSourceBytes = maxSourceBytes;
+    }
+
+    public long getMaxSourcePixels() {
+        return maxSourcePixels;
+    }
+
+    public void setMaxSourcePixels(long maxSourcePixels) {
+        this.maxSourcePixels = maxSourcePixels;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.trending")
+public class TrendingConfig {
+
+    // Broj najpopularnijih videa koji se drže u memoriji (ujedno i najveći limit za /trending)
+    private int indexCapacity = 1000;
+
+    public int getIndexCapacity() {
+        return indexCapacity;
+    }
+
+    public void setIndexCapacity(int indexCapacity) {
+        this.indexCapacity = indexCapacity;
+    }
+}
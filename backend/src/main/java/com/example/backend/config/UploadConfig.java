@@ -0,0 +1,42 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.upload")
+public class UploadConfig {
+
+    // Veličina jednog chunk-a kod nastavljivog upload-a (poslednji može biti manji)
+    private int chunkSize = 8 * 1024 * 1024;
+
+    // Sesija bez aktivnosti ovoliko minuta se briše zajedno sa delimičnim fajlom
+    private long sessionTtlMinutes = 24 * 60;
+
+    // Najviše istovremeno otvorenih upload sesija (svaka drži otvoren fajl)
+    private int maxActiveSessions = 200;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getSessionTtlMinutes() {
+        return sessionTtlMinutes;
+    }
+
+    public void setSessionTtlMinutes(long sessionTtlMinutes) {
+        this.sessionTtlMinutes = sessionTtlMinutes;
+    }
+
+    public int getMaxActiveSessions() {
+        return maxActiveSessions;
+    }
+
+    public void setMaxActiveSessions(int maxActiveSessions) {
+        this.maxActiveSessions = maxActiveSessions;
+    }
+}
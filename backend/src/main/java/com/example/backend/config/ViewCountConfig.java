@@ -0,0 +1,42 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.view-count")
+public class ViewCountConfig {
+
+    // Koliko često se baferisani pregledi upisuju u bazu (ms)
+    private long flushIntervalMs = 1000;
+
+    // Broj baferisanih pregleda posle kog se flush pokreće odmah, bez čekanja intervala
+    private int flushThreshold = 500;
+
+    // Gornja granica bafera - iznad nje se flush radi sinhrono na niti zahteva (backpressure)
+    private int maxPending = 100_000;
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    public void setFlushThreshold(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.view-retention")
+public class ViewRetentionConfig {
+
+    // Koliko dana se čuvaju sirovi redovi video_views (starije preglede čuva samo video_view_daily)
+    private int rawRetentionDays = 30;
+
+    // Sirovi red se prebacuje u rollup tek ovoliko minuta posle upisa,
+    // da bi flush transakcije koje su upisivale u tom trenutku stigle do commit-a
+    private int compactionGraceMinutes = 10;
+
+    // Broj sirovih redova koji se briše jednom transakcijom
+    private int pruneBatchSize = 5000;
+
+    public int getRawRetentionDays() {
+        return rawRetentionDays;
+    }
+
+    public void setRawRetentionDays(int rawRetentionDays) {
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    public int getCompactionGraceMinutes() {
+        return compactionGraceMinutes;
+    }
+
+    public void setCompactionGraceMinutes(int compactionGraceMinutes) {
+        this.compactionGraceMinutes = compactionGraceMinutes;
+    }
+
+    public int getPruneBatchSize() {
+        return pruneBatchSize;
+    }
+
+    public void setPruneBatchSize(int pruneBatchSize) {
+        this.pruneBatchSize = pruneBatchSize;
+    }
+}
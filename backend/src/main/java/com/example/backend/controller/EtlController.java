@@ -1,76 +1,70 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.EtlPopularVideoResponse;
-import com.example.backend.dto.EtlPopularVideoResponse.EtlVideoEntry;
-import com.example.backend.model.EtlPipelineResult;
-import com.example.backend.model.Video;
-import com.example.backend.repository.EtlPipelineResultRepository;
+import com.example.backend.dto.EtlRunResponse;
 import com.example.backend.services.EtlPipelineService;
+import com.example.backend.services.EtlRun;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/etl")
 @CrossOrigin(origins = "http://localhost:4200")
 public class EtlController {
 
-    private final EtlPipelineResultRepository etlPipelineResultRepository;
     private final EtlPipelineService etlPipelineService;
 
-    public EtlController(EtlPipelineResultRepository etlPipelineResultRepository,
-                         EtlPipelineService etlPipelineService) {
-        this.etlPipelineResultRepository = etlPipelineResultRepository;
+    public EtlController(EtlPipelineService etlPipelineService) {
         this.etlPipelineService = etlPipelineService;
     }
 
     /**
-     * Vraca top 3 najpopularnija videa iz poslednjeg ETL izvrsavanja.
+     * Vraca top N najpopularnijih videa iz poslednjeg ETL izvrsavanja.
      * Dostupno samo ulogovanim korisnicima.
+     * Odgovor je unapred napravljen i drzi se u memoriji (EtlPipelineService.getPopularVideos).
      */
     @GetMapping("/popular")
-    public ResponseEntity<?> getPopularVideos() {
-        Optional<EtlPipelineResult> latestResult = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc();
-
-        if (latestResult.isEmpty()) {
-            // Vrati prazan rezultat umesto 404 da frontend moze da prikaze poruku
-            EtlPopularVideoResponse emptyResponse = new EtlPopularVideoResponse(null, new ArrayList<>());
-            return ResponseEntity.ok(emptyResponse);
-        }
-
-        EtlPipelineResult result = latestResult.get();
-        List<EtlVideoEntry> entries = new ArrayList<>();
+    public ResponseEntity<EtlPopularVideoResponse> getPopularVideos() {
+        return ResponseEntity.ok(etlPipelineService.getPopularVideos());
+    }
 
-        if (result.getVideo1() != null) {
-            Video v = result.getVideo1();
-            entries.add(new EtlVideoEntry(v.getId(), v.getTitle(),
-                    v.getUser().getUsername(), result.getScore1(), v.getViewCount()));
-        }
-        if (result.getVideo2() != null) {
-            Video v = result.getVideo2();
-            entries.add(new EtlVideoEntry(v.getId(), v.getTitle(),
-                    v.getUser().getUsername(), result.getScore2(), v.getViewCount()));
-        }
-        if (result.getVideo3() != null) {
-            Video v = result.getVideo3();
-            entries.add(new EtlVideoEntry(v.getId(), v.getTitle(),
-                    v.getUser().getUsername(), result.getScore3(), v.getViewCount()));
-        }
+    /**
+     * Rucno pokretanje ETL pipeline-a. Vraca 202 odmah, a stanje se prati na /api/etl/runs/{runId}.
+     * Ako izvrsavanje vec traje, vraca se to izvrsavanje umesto novog.
+     */
+    @PostMapping("/run")
+    public ResponseEntity<EtlRunResponse> runPipeline() {
+        EtlRun run = etlPipelineService.submit("MANUAL");
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/etl/runs/" + run.getRunId()))
+                .body(run.toResponse());
+    }
 
-        EtlPopularVideoResponse response = new EtlPopularVideoResponse(result.getExecutedAt(), entries);
-        return ResponseEntity.ok(response);
+    /**
+     * Stanje ETL izvrsavanja, trenutna faza i trajanje zavrsenih faza.
+     */
+    @GetMapping("/runs/{runId}")
+    public ResponseEntity<EtlRunResponse> getRun(@PathVariable String runId) {
+        return etlPipelineService.getRun(runId)
+                .map(run -> ResponseEntity.ok(run.toResponse()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
-     * Rucno pokretanje ETL pipeline-a (za testiranje).
+     * Otkazivanje ETL izvrsavanja. Izvrsavanje se zaustavlja pre load faze.
      */
-    @PostMapping("/run")
-    public ResponseEntity<String> runPipeline() {
-        etlPipelineService.runEtlPipeline();
-        return ResponseEntity.ok("ETL pipeline uspesno pokrenut.");
+    @DeleteMapping("/runs/{runId}")
+    public ResponseEntity<?> cancelRun(@PathVariable String runId) {
+        try {
+            EtlRun run = etlPipelineService.cancel(runId);
+            return ResponseEntity.accepted().body(run.toResponse());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 }
@@ -4,7 +4,6 @@ import com.example.backend.dto.UserLocationRequest;
 import com.example.backend.dto.UserLocationResponse;
 import com.example.backend.dto.VideoResponse;
 import com.example.backend.model.Video;
-import com.example.backend.repository.VideoLikeRepository;
 import com.example.backend.services.GeolocationService;
 import com.example.backend.services.NearbyVideoService;
 import com.example.backend.utils.IpUtil;
@@ -25,14 +24,11 @@ public class GeolocationController {
 
     private final GeolocationService geolocationService;
     private final NearbyVideoService nearbyVideoService;
-    private final VideoLikeRepository videoLikeRepository; // Neophodno za mapiranje u VideoResponse
 
     public GeolocationController(GeolocationService geolocationService,
-                                 NearbyVideoService nearbyVideoService,
-                                 VideoLikeRepository videoLikeRepository) {
+                                 NearbyVideoService nearbyVideoService) {
         this.geolocationService = geolocationService;
         this.nearbyVideoService = nearbyVideoService;
-        this.videoLikeRepository = videoLikeRepository;
     }
 
     @PostMapping("/resolve")
@@ -114,10 +110,7 @@ public class GeolocationController {
     private List<VideoResponse> mapToVideoResponse(List<Video> videos) {
         return videos.stream()
                 .filter(Video::isAvailable)
-                .map(v -> {
-                    Long likesCount = videoLikeRepository.countByVideo(v);
-                    return new VideoResponse(v, likesCount);
-                })
+                .map(v -> new VideoResponse(v, v.getLikeCount()))
                 .collect(Collectors.toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.example.backend.controller;
+
+import com.example.backend.dto.CreateVideoRequest;
+import com.example.backend.dto.UploadSessionResponse;
+import com.example.backend.dto.VideoResponse;
+import com.example.backend.security.JwtUtil;
+import com.example.backend.services.ChecksumMismatchException;
+import com.example.backend.services.ResumableUploadService;
+import com.example.backend.services.UploadSession;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Nastavljiv upload videa u chunk-ovima (tus-style), pored POST /api/videos:
+ *
+ * POST   /api/videos/uploads                       (Upload-Length) - nova sesija
+ * PUT    /api/videos/uploads/{uploadId}/chunks/{n} (Upload-Checksum) - chunk n, može paralelno
+ * GET    /api/videos/uploads/{uploadId}            - offset i chunk-ovi koji nedostaju
+ * POST   /api/videos/uploads/{uploadId}/complete   - metapodaci + thumbnail, kreira Video
+ * DELETE /api/videos/uploads/{uploadId}            - odustajanje
+ *
+ * Sesija je vidljiva samo korisniku koji ju je napravio.
+ */
+@RestController
+@RequestMapping("/api/videos/uploads")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {"Location", "Upload-Offset", "Upload-Length"})
+public class ResumableUploadController {
+
+    // tus status za neispravan checksum chunk-a
+    private static final int CHECKSUM_MISMATCH_STATUS = 460;
+
+    private final ResumableUploadService resumableUploadService;
+    private final JwtUtil jwtUtil;
+
+    public ResumableUploadController(ResumableUploadService resumableUploadService, JwtUtil jwtUtil) {
+        this.resumableUploadService = resumableUploadService;
+        this.jwtUtil = jwtUtil;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createUpload(
+            @RequestHeader("Upload-Length") long uploadLength,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            UploadSession session = resumableUploadService.createSession(extractEmailFromToken(authHeader), uploadLength);
+            UploadSessionResponse status = toResponse(session);
+            return ResponseEntity.created(URI.create("/api/videos/uploads/" + session.getUploadId()))
+                    .header("Upload-Offset", String.valueOf(status.offset()))
+                    .header("Upload-Length", String.valueOf(status.totalSize()))
+                    .body(status);
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to create upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stanje upload-a posle prekida: Upload-Offset (bajtovi primljeni redom od početka)
+     * i lista chunk-ova koje treba (ponovo) poslati.
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            Optional<UploadSession> session = resumableUploadService.findSession(uploadId, extractEmailFromToken(authHeader));
+            if (session.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+            }
+            UploadSessionResponse status = toResponse(session.get());
+            return ResponseEntity.ok()
+                    .header("Upload-Offset", String.valueOf(status.offset()))
+                    .header("Upload-Length", String.valueOf(status.totalSize()))
+                    .body(status);
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        }
+    }
+
+    /**
+     * Sadržaj chunk-a je sirovo telo zahteva; upisuje se direktno na poziciju chunk-a u fajlu.
+     */
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = "Upload-Checksum", required = false) String checksum,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest) {
+        try {
+            Optional<UploadSession> session = resumableUploadService.findSession(uploadId, extractEmailFromToken(authHeader));
+            if (session.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+            }
+            resumableUploadService.writeChunk(session.get(), index, httpRequest.getInputStream(), checksum);
+            UploadSessionResponse status = toResponse(session.get());
+            return ResponseEntity.ok()
+                    .header("Upload-Offset", String.valueOf(status.offset()))
+                    .body(status);
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        } catch (ChecksumMismatchException e) {
+            return ResponseEntity.status(CHECKSUM_MISMATCH_STATUS).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to write chunk: " + e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/{uploadId}/complete", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> completeUpload(
+            @PathVariable String uploadId,
+            @RequestParam("title") String title,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "tags", required = false) String tags,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam("thumbnailFile") MultipartFile thumbnailFile,
+            @RequestParam(value = "latitude", required = false) Double latitude,
+            @RequestParam(value = "longitude", required = false) Double longitude,
+            @RequestParam(value = "scheduledAt", required = false) String scheduledAtStr,
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest) {
+        try {
+            Optional<UploadSession> session = resumableUploadService.findSession(uploadId, extractEmailFromToken(authHeader));
+            if (session.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+            }
+
+            LocalDateTime scheduledAt = null;
+            if (scheduledAtStr != null && !scheduledAtStr.trim().isEmpty()) {
+                try {
+                    scheduledAt = LocalDateTime.parse(scheduledAtStr);
+                    if (scheduledAt.isBefore(LocalDateTime.now())) {
+                        return ResponseEntity.badRequest().body("Zakazano vreme mora biti u budućnosti");
+                    }
+                } catch (DateTimeParseException e) {
+                    return ResponseEntity.badRequest().body("Neispravan format datuma. Koristite ISO format: 2025-01-15T08:00:00");
+                }
+            }
+
+            CreateVideoRequest request = new CreateVideoRequest(
+                    title, description, tags, location, latitude, longitude, scheduledAt
+            );
+            VideoResponse video = resumableUploadService.complete(session.get(), request, thumbnailFile, httpRequest);
+            return ResponseEntity.status(HttpStatus.CREATED).body(video);
+
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to complete upload: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abortUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            Optional<UploadSession> session = resumableUploadService.findSession(uploadId, extractEmailFromToken(authHeader));
+            if (session.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+            }
+            resumableUploadService.abort(session.get());
+            return ResponseEntity.noContent().build();
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to abort upload: " + e.getMessage());
+        }
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return session.toResponse(resumableUploadService.getSessionTtlMinutes());
+    }
+
+    private String extractEmailFromToken(String authHeader) {
+        String token = authHeader.replace("Bearer ", "");
+        Claims claims = jwtUtil.validateToken(token).getBody();
+        return claims.getSubject();
+    }
+}
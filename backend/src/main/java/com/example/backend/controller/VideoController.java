@@ -1,20 +1,36 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.CreateVideoRequest;
+import com.example.backend.dto.MediaValidators;
 import com.example.backend.dto.VideoResponse;
+import com.example.backend.model.Video;
 import com.example.backend.security.JwtUtil;
+import com.example.backend.services.FileStorageService;
 import com.example.backend.services.GeolocationService;
+import com.example.backend.services.ThumbnailSize;
 import com.example.backend.services.VideoService;
+import com.example.backend.utils.ByteBufferResource;
+import com.example.backend.utils.MultipartStreamParser;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
@@ -26,14 +42,34 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:4200")
 public class VideoController {
 
+    private static final MediaType VIDEO_MP4 = MediaType.parseMediaType("video/mp4");
+
+    // Tomcat sendfile request atributi (isti koje koristi Tomcat DefaultServlet)
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Fajlovi su nepromenljivi (UUID imena), pa klijenti i CDN smeju dugo da ih keširaju;
+    // po isteku se revalidiraju preko ETag-a
+    private static final CacheControl THUMBNAIL_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(7)).cachePublic();
+    private static final CacheControl VIDEO_CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+    // Streaming upload: tekstualna polja i thumbnail uz video (isto kao max-request-size - max-file-size)
+    private static final long MAX_UPLOAD_OVERHEAD = 10L * 1024 * 1024;
+    private static final int MAX_FIELD_SIZE = 64 * 1024;
+
     private final VideoService videoService;
     private final JwtUtil jwtUtil;
     private final GeolocationService geolocationService;
+    private final FileStorageService fileStorageService;
 
-    public VideoController(VideoService videoService, JwtUtil jwtUtil,GeolocationService geolocationService) {
+    public VideoController(VideoService videoService, JwtUtil jwtUtil, GeolocationService geolocationService,
+                           FileStorageService fileStorageService) {
         this.videoService = videoService;
         this.jwtUtil = jwtUtil;
         this.geolocationService = geolocationService;
+        this.fileStorageService = fileStorageService;
     }
 
 
@@ -93,10 +129,118 @@ public class VideoController {
     }
 
 
+    /**
+     * Upload bez MultipartFile-a: multipart telo se čita inkrementalno (MultipartStreamParser),
+     * a video deo se upisuje direktno na konačnu lokaciju dok stiže. Nema temp fajla ni drugog
+     * kopiranja, format se proverava po MP4 magic bajtovima, a limit veličine tokom upisa.
+     * Polja su ista kao kod POST /api/videos. Zahteva spring.servlet.multipart.resolve-lazily=true,
+     * da DispatcherServlet ne bi pročitao telo pre kontrolera.
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadVideoStreaming(
+            @RequestHeader("Authorization") String authHeader,
+            HttpServletRequest httpRequest
+    ) {
+        String videoPath = null;
+        String thumbnailPath = null;
+        try {
+            // Token se proverava pre čitanja tela, da se neautorizovan upload ne upisuje na disk
+            String userEmail = extractEmailFromToken(authHeader);
+
+            String boundary = MultipartStreamParser.extractBoundary(httpRequest.getContentType());
+            if (boundary == null) {
+                return ResponseEntity.badRequest().body("Missing multipart boundary");
+            }
+            if (httpRequest.getContentLengthLong() > FileStorageService.MAX_VIDEO_SIZE + MAX_UPLOAD_OVERHEAD) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("File size exceeds 200MB limit");
+            }
+
+            Map<String, String> fields = new HashMap<>();
+            MultipartStreamParser parser = new MultipartStreamParser(httpRequest.getInputStream(), boundary);
+            MultipartStreamParser.Part part;
+            while ((part = parser.nextPart()) != null) {
+                if ("videoFile".equals(part.getName())) {
+                    if (videoPath != null) {
+                        throw new IllegalArgumentException("Only one video file is allowed");
+                    }
+                    videoPath = fileStorageService.storeVideo(part.getInputStream());
+                } else if ("thumbnailFile".equals(part.getName())) {
+                    if (thumbnailPath != null) {
+                        throw new IllegalArgumentException("Only one thumbnail is allowed");
+                    }
+                    thumbnailPath = fileStorageService.uploadThumbnail(part.getInputStream(), part.getContentType());
+                } else if (part.getName() != null && !part.isFile()) {
+                    fields.put(part.getName(), part.readString(MAX_FIELD_SIZE));
+                }
+            }
+
+            CreateVideoRequest request = new CreateVideoRequest(
+                    fields.get("title"), fields.get("description"), fields.get("tags"), fields.get("location"),
+                    parseCoordinate(fields.get("latitude")), parseCoordinate(fields.get("longitude")),
+                    parseScheduledAt(fields.get("scheduledAt"))
+            );
+
+            VideoResponse video = videoService.createVideoFromStoredFiles(
+                    request, videoPath, thumbnailPath, userEmail, httpRequest
+            );
+            return ResponseEntity.status(HttpStatus.CREATED).body(video);
+
+        } catch (IllegalArgumentException e) {
+            deleteUploaded(videoPath, thumbnailPath);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            deleteUploaded(videoPath, thumbnailPath);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Failed to upload video: " + e.getMessage());
+        } catch (Exception e) {
+            deleteUploaded(videoPath, thumbnailPath);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred: " + e.getMessage());
+        }
+    }
+
+    private static Double parseCoordinate(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid coordinate: " + value);
+        }
+    }
+
+    private static LocalDateTime parseScheduledAt(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        LocalDateTime scheduledAt;
+        try {
+            scheduledAt = LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Neispravan format datuma. Koristite ISO format: 2025-01-15T08:00:00");
+        }
+        if (scheduledAt.isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Zakazano vreme mora biti u budućnosti");
+        }
+        return scheduledAt;
+    }
+
+    private void deleteUploaded(String videoPath, String thumbnailPath) {
+        if (videoPath != null) fileStorageService.deleteFile(videoPath, true);
+        if (thumbnailPath != null) fileStorageService.deleteFile(thumbnailPath, false);
+    }
+
+
     @GetMapping
-    public ResponseEntity<List<VideoResponse>> getAllVideos() {
-        List<VideoResponse> videos = videoService.getAllVideos();
-        return ResponseEntity.ok(videos);
+    public ResponseEntity<?> getVideoFeed(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(videoService.getVideoFeed(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
 
@@ -126,23 +270,64 @@ public class VideoController {
 
 
 
+    /**
+     * Strimovanje videa sa podrškom za HTTP Range zahteve (206 Partial Content).
+     * Fajl se ne učitava u memoriju - šalju se samo traženi bajtovi direktno sa diska,
+     * pa premotavanje u plejeru košta samo onoliko koliko je zatraženo.
+     */
     @GetMapping("/{id}/stream")
-    public ResponseEntity<?> streamVideo(@PathVariable Long id) {
+    public ResponseEntity<?> streamVideo(@PathVariable Long id,
+                                         @RequestHeader HttpHeaders requestHeaders,
+                                         HttpServletRequest request) {
         try {
+            // Jedno čitanje iz baze za ceo zahtev
+            Video video = videoService.getVideo(id);
+
             // Proveri da li je video dostupan (zakazani videi)
-            if (!videoService.isVideoAvailable(id)) {
+            if (!video.isAvailable()) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body("Video još nije dostupan. Zakazan je za kasnije prikazivanje.");
             }
 
-            byte[] videoData = videoService.getVideoFile(id);
+            // Uslovni GET - 304 pre otvaranja fajla
+            MediaValidators validators = videoService.getVideoValidators(video);
+            HttpHeaders headers = validatorHeaders(validators, VIDEO_CACHE_CONTROL);
+            if (isNotModified(requestHeaders, validators)) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+
+            Resource videoFile = videoService.getVideoResource(video);
+            long contentLength = videoFile.contentLength();
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            List<HttpRange> ranges;
+            try {
+                ranges = requestHeaders.getRange();
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(headers, contentLength);
+            }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("video/mp4"));
-            headers.setContentLength(videoData.length);
-            headers.set("Accept-Ranges", "bytes");
+            // Bez Range headera (ili If-Range se ne poklapa) - ceo fajl
+            if (ranges.isEmpty() || !isIfRangeSatisfied(requestHeaders, validators)) {
+                return videoRegionResponse(request, videoFile, 0, contentLength, headers, HttpStatus.OK);
+            }
 
-            return new ResponseEntity<>(videoData, headers, HttpStatus.OK);
+            List<ResourceRegion> regions;
+            try {
+                regions = HttpRange.toResourceRegions(ranges, videoFile);
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(headers, contentLength);
+            }
+
+            if (regions.size() == 1) {
+                ResourceRegion region = regions.get(0);
+                long start = region.getPosition();
+                long end = start + region.getCount() - 1;
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength);
+                return videoRegionResponse(request, videoFile, start, region.getCount(), headers, HttpStatus.PARTIAL_CONTENT);
+            }
+            // Vise opsega - multipart/byteranges odgovor (piše ResourceRegionHttpMessageConverter)
+            return new ResponseEntity<>(regions, headers, HttpStatus.PARTIAL_CONTENT);
 
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
@@ -152,6 +337,35 @@ public class VideoController {
         }
     }
 
+    /**
+     * Šalje deo video fajla bez učitavanja celog fajla u memoriju.
+     * Ako Tomcat podržava sendfile, samo mu se predaje putanja i opseg fajla i on šalje
+     * bajtove direktno iz page cache-a u socket, bez kopiranja kroz JVM heap.
+     * U suprotnom (npr. HTTPS bez sendfile-a) servlet API ne daje kanal ka socket-u, pa se
+     * bajtovi kopiraju kroz mali bafer u output stream odgovora - memorija ne raste sa
+     * veličinom opsega, ali to nije zero-copy.
+     */
+    private ResponseEntity<?> videoRegionResponse(HttpServletRequest request, Resource video,
+                                                  long position, long count,
+                                                  HttpHeaders headers, HttpStatus status) throws IOException {
+        headers.setContentType(VIDEO_MP4);
+        headers.setContentLength(count);
+
+        File file = video.getFile();
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, position);
+            request.setAttribute(SENDFILE_END_ATTR, position + count);
+            // Telo odgovora ne sme da se piše - Tomcat ga šalje nakon povratka iz kontrolera
+            return new ResponseEntity<>(headers, status);
+        }
+
+        Path path = file.toPath();
+        StreamingResponseBody body = outputStream ->
+                fileStorageService.transferTo(path, position, count, Channels.newChannel(outputStream));
+        return new ResponseEntity<>(body, headers, status);
+    }
+
     @GetMapping("/{id}/stream-info")
     public ResponseEntity<?> getStreamInfo(@PathVariable Long id) {
         try {
@@ -163,16 +377,35 @@ public class VideoController {
     }
 
 
+    /**
+     * Thumbnail u jednoj od unapred renderovanih veličina (?size=small|medium|large, ili 160/320/640),
+     * da liste ne bi preuzimale 640px slike za male pločice. Podrazumevano large.
+     */
     @GetMapping("/{id}/thumbnail")
-    public ResponseEntity<?> getThumbnail(@PathVariable Long id) {
+    public ResponseEntity<?> getThumbnail(@PathVariable Long id,
+                                          @RequestParam(value = "size", required = false) String sizeParam,
+                                          @RequestHeader HttpHeaders requestHeaders) {
+        ThumbnailSize size;
         try {
-            byte[] thumbnailData = videoService.getThumbnail(id);
-            
-            HttpHeaders headers = new HttpHeaders();
+            size = ThumbnailSize.fromParam(sizeParam);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        try {
+            // Većina zahteva su ponovljeni zahtevi istog klijenta - 304 bez čitanja keša
+            Video video = videoService.getVideo(id);
+            MediaValidators validators = videoService.getThumbnailValidators(video, size);
+            HttpHeaders headers = validatorHeaders(validators, THUMBNAIL_CACHE_CONTROL);
+            if (isNotModified(requestHeaders, validators)) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+
+            ByteBuffer thumbnail = videoService.getThumbnail(video, size);
             headers.setContentType(MediaType.IMAGE_JPEG);
-            headers.setContentLength(thumbnailData.length);
-            
-            return new ResponseEntity<>(thumbnailData, headers, HttpStatus.OK);
+            headers.setContentLength(thumbnail.remaining());
+
+            return new ResponseEntity<>(new ByteBufferResource(thumbnail, "thumbnail " + id),
+                    headers, HttpStatus.OK);
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
@@ -229,6 +462,67 @@ public class VideoController {
         return ResponseEntity.ok(videoService.getTrendingVideos(limit));
     }
 
+    /**
+     * If-Range: Range se primenjuje samo ako se validator poklapa sa trenutnom verzijom fajla,
+     * u suprotnom se vraća ceo fajl (200).
+     */
+    private boolean isIfRangeSatisfied(HttpHeaders requestHeaders, MediaValidators validators) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        // If-Range zahteva jako poređenje - slabi ETag se nikad ne poklapa
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(validators.getEtag());
+        }
+        try {
+            long ifRangeDate = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            // HTTP datumi imaju preciznost u sekundama
+            return ifRangeDate / 1000 == validators.getLastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * If-None-Match (slabo poređenje) ima prednost nad If-Modified-Since.
+     */
+    private boolean isNotModified(HttpHeaders requestHeaders, MediaValidators validators) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String etag = stripWeakPrefix(validators.getEtag());
+            for (String candidate : ifNoneMatch) {
+                if ("*".equals(candidate) || etag.equals(stripWeakPrefix(candidate))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return ifModifiedSince >= 0 && validators.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static HttpHeaders validatorHeaders(MediaValidators validators, CacheControl cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(validators.getEtag());
+        headers.setLastModified(validators.getLastModified());
+        headers.setCacheControl(cacheControl);
+        return headers;
+    }
+
+    private ResponseEntity<?> rangeNotSatisfiable(HttpHeaders headers, long contentLength) {
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+        return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
     private String extractEmailFromToken(String authHeader) {
         String token = authHeader.replace("Bearer ", "");
         Claims claims = jwtUtil.validateToken(token).getBody();
@@ -0,0 +1,19 @@
+package com.example.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Stanje jednog ETL izvrsavanja za /api/etl/run i /api/etl/runs/{runId}.
+ * phaseDurationsMs sadrzi trajanje zavrsenih faza (EXTRACT, TRANSFORM, LOAD) u milisekundama.
+ */
+public record EtlRunResponse(String runId,
+                             String trigger,
+                             String state,
+                             String currentPhase,
+                             LocalDateTime submittedAt,
+                             LocalDateTime startedAt,
+                             LocalDateTime finishedAt,
+                             Map<String, Double> phaseDurationsMs,
+                             String message) {
+}
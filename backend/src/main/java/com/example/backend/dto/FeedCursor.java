@@ -0,0 +1,40 @@
+package com.example.backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Pozicija u feed-u: (createdAt, id) poslednjeg videa na prethodnoj strani.
+ * Sledeća strana počinje od prvog videa koji je strogo "stariji" od ovog para,
+ * pa upit ide direktno po indeksu umesto da preskače OFFSET redova.
+ *
+ * Klijentu se šalje kao neprozirni base64url string.
+ */
+public record FeedCursor(LocalDateTime createdAt, Long id) {
+
+    public static FeedCursor of(VideoResponse video) {
+        return new FeedCursor(video.getCreatedAt(), video.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FeedCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('_');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new FeedCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException i greške Base64 dekodera su takođe IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
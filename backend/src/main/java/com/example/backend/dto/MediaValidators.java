@@ -0,0 +1,39 @@
+package com.example.backend.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * HTTP validatori (ETag i Last-Modified) za video ili thumbnail fajl.
+ * Računaju se iz metapodataka iz baze, bez čitanja fajla, pa uslovni GET
+ * može da vrati 304 pre nego što se dotakne disk ili keš.
+ */
+public class MediaValidators {
+
+    private final String etag;
+    private final long lastModified;
+
+    public MediaValidators(String etag, long lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Fajlovi se čuvaju pod jedinstvenim (UUID) imenom i nikad se ne menjaju,
+     * pa je ime fajla dovoljno za jak ETag.
+     */
+    public static MediaValidators fromStoredFile(String filename, LocalDateTime createdAt) {
+        int dot = filename.lastIndexOf('.');
+        String name = dot > 0 ? filename.substring(0, dot) : filename;
+        long lastModified = createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new MediaValidators("\"" + name + "\"", lastModified);
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stanje nastavljive upload sesije za /api/videos/uploads/{uploadId}.
+ * offset je broj bajtova primljenih redom od početka fajla (kao tus Upload-Offset);
+ * missingChunks su indeksi chunk-ova koje klijent još treba da pošalje.
+ */
+public record UploadSessionResponse(String uploadId,
+                                    long totalSize,
+                                    int chunkSize,
+                                    int chunkCount,
+                                    long offset,
+                                    List<Integer> missingChunks,
+                                    LocalDateTime expiresAt) {
+}
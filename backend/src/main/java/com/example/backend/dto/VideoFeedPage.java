@@ -0,0 +1,46 @@
+package com.example.backend.dto;
+
+import java.util.List;
+
+/**
+ * Jedna strana feed-a najnovijih videa.
+ * nextCursor se prosleđuje kao ?cursor= za sledeću stranu (null kad je ovo poslednja).
+ */
+public class VideoFeedPage {
+
+    private List<VideoResponse> videos;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public VideoFeedPage() {}
+
+    public VideoFeedPage(List<VideoResponse> videos, String nextCursor, boolean hasMore) {
+        this.videos = videos;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<VideoResponse> getVideos() {
+        return videos;
+    }
+
+    public void setVideos(List<VideoResponse> videos) {
+        this.videos = videos;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -57,6 +57,39 @@ public class VideoResponse {
         }
     }
 
+    /**
+     * Projekcija za feed upit - popunjava se direktno iz kolona (JPQL constructor expression),
+     * bez učitavanja Video i User entiteta.
+     */
+    public VideoResponse(Long id, String title, String description, String tags, String location,
+                         LocalDateTime createdAt, Long viewCount, String username, Long userId,
+                         Long likeCount, Double popularityScore, Double latitude, Double longitude,
+                         LocalDateTime scheduledAt) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.tags = tags;
+        this.location = location;
+        this.createdAt = createdAt;
+        this.viewCount = viewCount;
+        this.username = username;
+        this.userId = userId;
+        this.likeCount = likeCount;
+        this.popularityScore = popularityScore;
+        this.latitude = latitude;
+        this.longitude = longitude;
+
+        this.scheduledAt = scheduledAt;
+        this.available = scheduledAt == null || !LocalDateTime.now().isBefore(scheduledAt);
+
+        if (scheduledAt != null && available) {
+            long offset = java.time.Duration.between(scheduledAt, LocalDateTime.now()).getSeconds();
+            this.streamOffsetSeconds = Math.max(0, offset);
+        } else {
+            this.streamOffsetSeconds = null;
+        }
+    }
+
     // Svi postojeći getteri/setteri...
     public Long getId() {
         return id;
@@ -0,0 +1,61 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Jedan video u rezultatu ETL izvrsavanja (mesto u rang listi + score).
+ */
+@Entity
+@Table(name = "etl_pipeline_result_entry", indexes = {
+        @Index(name = "idx_etl_result_entry_result_position", columnList = "result_id, position")
+})
+public class EtlPipelineResultEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "result_id", nullable = false)
+    private EtlPipelineResult result;
+
+    // Mesto u rang listi, od 1
+    @Column(nullable = false)
+    private int position;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "video_id", nullable = false)
+    private Video video;
+
+    @Column(nullable = false)
+    private double score;
+
+    public EtlPipelineResultEntry() {}
+
+    public EtlPipelineResultEntry(EtlPipelineResult result, int position, Video video, double score) {
+        this.result = result;
+        this.position = position;
+        this.video = video;
+        this.score = score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EtlPipelineResult getResult() {
+        return result;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public Video getVideo() {
+        return video;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
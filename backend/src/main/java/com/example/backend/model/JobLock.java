@@ -0,0 +1,49 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease lock za pozadinske poslove koji smeju da rade na samo jednoj instanci (npr. ETL).
+ * Zauzet je dok lockedUntil nije prošao; ako instanca padne, lock ističe sam.
+ */
+@Entity
+@Table(name = "job_locks")
+public class JobLock {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(length = 200)
+    private String owner;
+
+    @Column
+    private LocalDateTime lockedUntil;
+
+    public JobLock() {}
+
+    public JobLock(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+}
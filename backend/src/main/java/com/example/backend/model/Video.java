@@ -2,10 +2,17 @@ package com.example.backend.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        // keyset paginacija feed-a: ORDER BY created_at DESC, id DESC
+        @Index(name = "idx_videos_created_at_id", columnList = "created_at, id")
+})
+@DynamicUpdate // UPDATE piše samo izmenjene kolone, pa čuvanje score-a ne prepisuje brojače
 public class Video {
 
     @Id
@@ -54,6 +61,16 @@ public class Video {
     @Column(nullable = false)
     private Double popularityScore = 0.0;
 
+    // Denormalizovani brojači - ažuriraju se atomskim UPDATE-om pri lajku/komentaru,
+    // a PopularityCalculationService.reconcileEngagementCounters ispravlja eventualni drift
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long likeCount = 0L;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long commentCount = 0L;
+
     public Video() {
         this.createdAt = LocalDateTime.now();
     }
@@ -177,6 +194,22 @@ public class Video {
         this.popularityScore = popularityScore;
     }
 
+    public Long getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(Long likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public Long getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Long commentCount) {
+        this.commentCount = commentCount;
+    }
+
     public LocalDateTime getScheduledAt() {
         return scheduledAt;
     }
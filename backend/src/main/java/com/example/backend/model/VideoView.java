@@ -4,11 +4,19 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "video_views")
+@Table(name = "video_views", indexes = {
+        // ETL čita opseg po danu, retencija briše najstarije redove
+        @Index(name = "idx_video_views_viewed_at", columnList = "viewed_at"),
+        // kompakcija čita redove upisane posle granice (watermark-a)
+        @Index(name = "idx_video_views_recorded_at", columnList = "recorded_at")
+})
 public class VideoView {
 
+    // Sekvenca sa pooled optimizerom: Hibernate rezerviše 50 ID-jeva jednim pozivom,
+    // pa INSERT-i mogu da idu u JDBC batch-evima (IDENTITY isključuje batching)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "video_view_seq")
+    @SequenceGenerator(name = "video_view_seq", sequenceName = "video_views_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -18,6 +26,11 @@ public class VideoView {
     @Column(nullable = false)
     private LocalDateTime viewedAt;
 
+    // Kad je red upisan u tabelu - flush može da kasni, pa to nije isto što i viewedAt.
+    // Null samo za redove upisane pre uvođenja kolone.
+    @Column(name = "recorded_at")
+    private LocalDateTime recordedAt;
+
     public VideoView() {}
 
     public VideoView(Video video) {
@@ -25,6 +38,11 @@ public class VideoView {
         this.viewedAt = LocalDateTime.now();
     }
 
+    public VideoView(Video video, LocalDateTime viewedAt) {
+        this.video = video;
+        this.viewedAt = viewedAt;
+    }
+
     public Long getId() {
         return id;
     }
@@ -48,4 +66,19 @@ public class VideoView {
     public void setViewedAt(LocalDateTime viewedAt) {
         this.viewedAt = viewedAt;
     }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    @PrePersist
+    void onPersist() {
+        if (recordedAt == null) {
+            recordedAt = LocalDateTime.now();
+        }
+    }
 }
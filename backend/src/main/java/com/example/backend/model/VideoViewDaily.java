@@ -0,0 +1,101 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Dnevni rollup video_views: broj pregleda jednog videa za jedan dan.
+ * Puni ga ViewRollupService redom kako se sirovi redovi upisuju (i za dane koji su već u rollup-u,
+ * ako pregled zakasni); sirovi redovi se posle čuvaju samo do isteka retencije.
+ */
+@Entity
+@Table(name = "video_view_daily", indexes = {
+        @Index(name = "idx_video_view_daily_view_date", columnList = "view_date")
+})
+@IdClass(VideoViewDaily.Key.class)
+public class VideoViewDaily implements Persistable<VideoViewDaily.Key> {
+
+    @Id
+    @Column(name = "video_id")
+    private Long videoId;
+
+    @Id
+    @Column(name = "view_date")
+    private LocalDate viewDate;
+
+    @Column(nullable = false)
+    private long viewCount;
+
+    // Novi rollup red ide direktno na INSERT (u batch-u), bez SELECT-a za dodeljeni ključ;
+    // postojeći (učitan) red se menja preko addViews
+    @Transient
+    private boolean isNew = true;
+
+    public VideoViewDaily() {}
+
+    public VideoViewDaily(Long videoId, LocalDate viewDate, long viewCount) {
+        this.videoId = videoId;
+        this.viewDate = viewDate;
+        this.viewCount = viewCount;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(videoId, viewDate);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public LocalDate getViewDate() {
+        return viewDate;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public void addViews(long count) {
+        this.viewCount += count;
+    }
+
+    public static class Key implements Serializable {
+        private Long videoId;
+        private LocalDate viewDate;
+
+        public Key() {}
+
+        public Key(Long videoId, LocalDate viewDate) {
+            this.videoId = videoId;
+            this.viewDate = viewDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(videoId, key.videoId) && Objects.equals(viewDate, key.viewDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(videoId, viewDate);
+        }
+    }
+}
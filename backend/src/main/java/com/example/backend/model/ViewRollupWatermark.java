@@ -0,0 +1,40 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Granica kompakcije video_views u video_view_daily: svi sirovi redovi upisani (recorded_at)
+ * pre compactedThrough su već uračunati u rollup.
+ * Kompakcija zaključava ovaj red, pa je između instanci jedna kompakcija u isto vreme.
+ */
+@Entity
+@Table(name = "view_rollup_watermarks")
+public class ViewRollupWatermark {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column
+    private LocalDateTime compactedThrough;
+
+    public ViewRollupWatermark() {}
+
+    public ViewRollupWatermark(String name, LocalDateTime compactedThrough) {
+        this.name = name;
+        this.compactedThrough = compactedThrough;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getCompactedThrough() {
+        return compactedThrough;
+    }
+
+    public void setCompactedThrough(LocalDateTime compactedThrough) {
+        this.compactedThrough = compactedThrough;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.EtlPipelineResultEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface EtlPipelineResultEntryRepository extends JpaRepository<EtlPipelineResultEntry, Long> {
+
+    // Rang lista jednog rezultata sa videima i autorima jednim upitom
+    @Query("SELECT e FROM EtlPipelineResultEntry e JOIN FETCH e.video v JOIN FETCH v.user " +
+           "WHERE e.result.id = :resultId ORDER BY e.position")
+    List<EtlPipelineResultEntry> findWithVideosByResultId(@Param("resultId") Long resultId);
+}
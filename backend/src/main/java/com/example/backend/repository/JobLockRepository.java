@@ -0,0 +1,23 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    // Uslovni UPDATE je atomičan u bazi: od više instanci samo jedna dobije 1
+    @Modifying
+    @Query("UPDATE JobLock l SET l.owner = :owner, l.lockedUntil = :until " +
+           "WHERE l.name = :name AND (l.lockedUntil IS NULL OR l.lockedUntil < :now)")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE JobLock l SET l.lockedUntil = NULL WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -1,85 +1,114 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.VideoResponse;
 import com.example.backend.model.Video;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface VideoRepository extends JpaRepository<Video, Long> {
 
+    // Samo kolone potrebne za VideoResponse, bez učitavanja Video i User entiteta
+    String RESPONSE_PROJECTION = """
+        SELECT new com.example.backend.dto.VideoResponse(
+            v.id, v.title, v.description, v.tags, v.location, v.createdAt, v.viewCount,
+            u.username, u.id, v.likeCount, v.popularityScore, v.latitude, v.longitude, v.scheduledAt)
+        FROM Video v JOIN v.user u
+        """;
+
+    // Feed: samo dostupni (ne zakazani za budućnost) videi
+    String FEED_PROJECTION = RESPONSE_PROJECTION + " WHERE (v.scheduledAt IS NULL OR v.scheduledAt <= :now) ";
+
+    // autor se učitava u istom upitu (VideoResponse čita username)
+    @EntityGraph(attributePaths = "user")
     List<Video> findAllByOrderByCreatedAtDesc();
 
+    @EntityGraph(attributePaths = "user")
     @Query("SELECT v FROM Video v ORDER BY v.popularityScore DESC")
     List<Video> findTrendingVideos(Pageable pageable);
 
     List<Video> findByUserId(Long userId);
 
+    // Preračun popularnosti - autor se učitava odmah jer ga trending indeks čuva u VideoResponse
+    @EntityGraph(attributePaths = "user")
+    List<Video> findByIdIn(Collection<Long> ids);
+
+    // Punjenje trending indeksa pri startu
+    @Query(RESPONSE_PROJECTION + " ORDER BY v.popularityScore DESC, v.id DESC")
+    List<VideoResponse> findTrendingSnapshot(Pageable pageable);
+
+    // ========== FEED (KEYSET PAGINACIJA PO (createdAt, id)) ==========
+
+    @Query(FEED_PROJECTION + " ORDER BY v.createdAt DESC, v.id DESC")
+    List<VideoResponse> findFeedFirstPage(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query(FEED_PROJECTION + """
+          AND (v.createdAt < :createdAt OR (v.createdAt = :createdAt AND v.id < :id))
+        ORDER BY v.createdAt DESC, v.id DESC
+        """)
+    List<VideoResponse> findFeedAfter(@Param("now") LocalDateTime now,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Video v SET v.viewCount = v.viewCount + :delta WHERE v.id = :videoId")
+    int addViewCount(@Param("videoId") Long videoId, @Param("delta") long delta);
+
+    // Vremenski decay popularnosti za sve videe jednim UPDATE-om
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Video v SET v.popularityScore = v.popularityScore * :factor")
+    int scalePopularityScores(@Param("factor") double factor);
+
+    // ========== DENORMALIZOVANI BROJAČI LAJKOVA I KOMENTARA ==========
+
+    @Query("SELECT v.likeCount FROM Video v WHERE v.id = :videoId")
+    Optional<Long> findLikeCountById(@Param("videoId") Long videoId);
+
     @Modifying(clearAutomatically = true, flushAutomatically = true)
-    @Query("UPDATE Video v SET v.viewCount = v.viewCount + 1 WHERE v.id = :videoId")
-    int incrementViewCount(@Param("videoId") Long videoId);
-
-    // ========== NOVI UPITI ZA PROSTORNU PRETRAGU ==========
-
-    /**
-     * Pronalazi videa u radijusu od korisnikove lokacije.
-     * Koristi PostGIS earth_distance funkciju sa prostornim indeksom.
-     *
-     * @param userLat Geografska širina korisnika
-     * @param userLng Geografska dužina korisnika
-     * @param radiusMeters Radijus pretrage u metrima
-     * @return Lista videa sortirana po udaljenosti
-     */
-    @Query(value = """
-        SELECT v.*, 
-               earth_distance(
-                   ll_to_earth(v.latitude, v.longitude),
-                   ll_to_earth(:userLat, :userLng)
-               ) as distance
-        FROM videos v
-        WHERE v.latitude IS NOT NULL 
-          AND v.longitude IS NOT NULL
-          AND earth_box(ll_to_earth(:userLat, :userLng), :radiusMeters) @> ll_to_earth(v.latitude, v.longitude)
-          AND earth_distance(ll_to_earth(v.latitude, v.longitude), ll_to_earth(:userLat, :userLng)) <= :radiusMeters
-        ORDER BY distance ASC
-        """, nativeQuery = true)
-    List<Video> findVideosNearby(
-            @Param("userLat") Double userLat,
-            @Param("userLng") Double userLng,
-            @Param("radiusMeters") Double radiusMeters
-    );
-
-    /**
-     * Pronalazi popularne videa u radijusu.
-     * Kombinuje prostornu pretragu sa popularity score-om.
-     *
-     * @param userLat Geografska širina
-     * @param userLng Geografska dužina
-     * @param radiusMeters Radijus pretrage
-     * @param limit Maksimalan broj rezultata
-     * @return Lista popularnih videa u blizini
-     */
-    @Query(value = """
-        SELECT v.*, 
-               earth_distance(
-                   ll_to_earth(v.latitude, v.longitude),
-                   ll_to_earth(:userLat, :userLng)
-               ) as distance
-        FROM videos v
-        WHERE v.latitude IS NOT NULL 
-          AND v.longitude IS NOT NULL
-          AND earth_box(ll_to_earth(:userLat, :userLng), :radiusMeters) @> ll_to_earth(v.latitude, v.longitude)
-          AND earth_distance(ll_to_earth(v.latitude, v.longitude), ll_to_earth(:userLat, :userLng)) <= :radiusMeters
-        ORDER BY v.popularity_score DESC, distance ASC
-        LIMIT :limit
-        """, nativeQuery = true)
-    List<Video> findPopularVideosNearby(
-            @Param("userLat") Double userLat,
-            @Param("userLng") Double userLng,
-            @Param("radiusMeters") Double radiusMeters,
-            @Param("limit") Integer limit
-    );
-}
\ No newline at end of file
+    @Query("UPDATE Video v SET v.likeCount = v.likeCount + :delta WHERE v.id = :videoId")
+    int addLikeCount(@Param("videoId") Long videoId, @Param("delta") long delta);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Video v SET v.commentCount = v.commentCount + :delta WHERE v.id = :videoId")
+    int addCommentCount(@Param("videoId") Long videoId, @Param("delta") long delta);
+
+    // Videi čiji se brojač razlikuje od stvarnog broja redova (drift)
+    @Query("SELECT v.id FROM Video v WHERE v.likeCount <> (SELECT COUNT(vl) FROM VideoLike vl WHERE vl.video = v)")
+    List<Long> findIdsWithLikeCountDrift();
+
+    @Query("SELECT v.id FROM Video v WHERE v.commentCount <> (SELECT COUNT(c) FROM Comment c WHERE c.video = v)")
+    List<Long> findIdsWithCommentCountDrift();
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Video v SET v.likeCount = (SELECT COUNT(vl) FROM VideoLike vl WHERE vl.video = v) WHERE v.id IN :videoIds")
+    int recountLikes(@Param("videoIds") Collection<Long> videoIds);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Video v SET v.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.video = v) WHERE v.id IN :videoIds")
+    int recountComments(@Param("videoIds") Collection<Long> videoIds);
+
+    // ========== ETL ==========
+
+    // Granice id-jeva za deljenje 7-dnevnog prozora na opsege videa (null ako nema videa)
+    @Query("SELECT MIN(v.id) FROM Video v")
+    Long findMinId();
+
+    @Query("SELECT MAX(v.id) FROM Video v")
+    Long findMaxId();
+
+    // ========== PROSTORNA PRETRAGA ==========
+
+    // Punjenje VideoSpatialIndex-a pri startu: (id, latitude, longitude, popularityScore)
+    @Query("SELECT v.id, v.latitude, v.longitude, v.popularityScore FROM Video v " +
+           "WHERE v.latitude IS NOT NULL AND v.longitude IS NOT NULL")
+    List<Object[]> findAllCoordinates();
+}
@@ -0,0 +1,22 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.VideoView;
+
+import java.util.List;
+
+/**
+ * Brzi upis pregleda - INSERT-i se šalju u JDBC batch-evima.
+ */
+public interface VideoViewBatchRepository {
+
+    /**
+     * Upiši preglede u batch-evima podrazumevane veličine (spring.jpa.properties.hibernate.jdbc.batch_size).
+     * Mora se pozvati unutar transakcije.
+     */
+    int insertInBatches(List<VideoView> views);
+
+    /**
+     * Upiši preglede u batch-evima zadate veličine.
+     */
+    int insertInBatches(List<VideoView> views, int batchSize);
+}
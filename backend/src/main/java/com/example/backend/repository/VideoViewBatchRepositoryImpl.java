@@ -0,0 +1,46 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.VideoView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+
+public class VideoViewBatchRepositoryImpl implements VideoViewBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int defaultBatchSize;
+
+    @Override
+    public int insertInBatches(List<VideoView> views) {
+        return insertInBatches(views, defaultBatchSize);
+    }
+
+    @Override
+    public int insertInBatches(List<VideoView> views, int batchSize) {
+        Session session = entityManager.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            for (int i = 0; i < views.size(); i++) {
+                entityManager.persist(views.get(i));
+                // Posle svakog batch-a pošalji INSERT-e i isprazni persistence context,
+                // da velika serija ne drži sve entitete u memoriji
+                if ((i + 1) % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+        return views.size();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.VideoViewDaily;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface VideoViewDailyRepository extends JpaRepository<VideoViewDaily, VideoViewDaily.Key> {
+
+    // Poslednji dan u rollup-u (null ako je prazan)
+    @Query("SELECT MAX(d.viewDate) FROM VideoViewDaily d")
+    LocalDate findMaxViewDate();
+
+    // Postojeći rollup redovi za videe i dane iz jednog opsega kompakcije (nadskup, filtrira se u memoriji)
+    @Query("SELECT d FROM VideoViewDaily d WHERE d.viewDate IN :days AND d.videoId IN :videoIds")
+    List<VideoViewDaily> findByViewDatesAndVideoIds(@Param("days") Collection<LocalDate> days,
+                                                    @Param("videoIds") Collection<Long> videoIds);
+
+    // Isti oblik kao VideoViewRepository.streamViewsPerVideoPerDay: [videoId, datum, broj pregleda]
+    // za videe iz [fromId, toId). Rollup redovi nemaju strani ključ ka videu, pa se obrisani videi preskaču ovde
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = VideoViewRepository.WINDOW_FETCH_SIZE))
+    @Query("SELECT d.videoId, d.viewDate, d.viewCount FROM VideoViewDaily d WHERE d.viewDate >= :since " +
+           "AND d.videoId >= :fromId AND d.videoId < :toId " +
+           "AND EXISTS (SELECT 1 FROM Video v WHERE v.id = d.videoId)")
+    Stream<Object[]> streamDailyCountsSince(@Param("since") LocalDate since,
+                                            @Param("fromId") long fromId,
+                                            @Param("toId") long toId);
+}
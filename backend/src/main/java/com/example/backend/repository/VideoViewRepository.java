@@ -1,18 +1,73 @@
 package com.example.backend.repository;
 
 import com.example.backend.model.VideoView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface VideoViewRepository extends JpaRepository<VideoView, Long> {
+public interface VideoViewRepository extends JpaRepository<VideoView, Long>, VideoViewBatchRepository {
 
+    // Redovi koje ETL čita za jedan opseg videa se strimuju (fetch size), bez punjenja liste
+    String WINDOW_FETCH_SIZE = "1000";
+
+    // [videoId, datum, broj pregleda] za videe iz [fromId, toId)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = WINDOW_FETCH_SIZE))
     @Query("SELECT vv.video.id, CAST(vv.viewedAt AS LocalDate), COUNT(vv) " +
            "FROM VideoView vv " +
            "WHERE vv.viewedAt >= :since " +
+           "AND vv.video.id >= :fromId AND vv.video.id < :toId " +
            "GROUP BY vv.video.id, CAST(vv.viewedAt AS LocalDate)")
-    List<Object[]> countViewsPerVideoPerDay(@Param("since") LocalDateTime since);
+    Stream<Object[]> streamViewsPerVideoPerDay(@Param("since") LocalDateTime since,
+                                               @Param("fromId") long fromId,
+                                               @Param("toId") long toId);
+
+    // Isto, ali samo redovi koji još nisu u rollup-u (upisani od granice kompakcije naovamo).
+    // Redovi bez recordedAt (upisani pre uvođenja kolone) se porede po viewedAt.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = WINDOW_FETCH_SIZE))
+    @Query("SELECT vv.video.id, CAST(vv.viewedAt AS LocalDate), COUNT(vv) " +
+           "FROM VideoView vv " +
+           "WHERE vv.viewedAt >= :since " +
+           "AND vv.video.id >= :fromId AND vv.video.id < :toId " +
+           "AND (vv.recordedAt >= :compactedThrough " +
+           "     OR (vv.recordedAt IS NULL AND vv.viewedAt >= :compactedThrough)) " +
+           "GROUP BY vv.video.id, CAST(vv.viewedAt AS LocalDate)")
+    Stream<Object[]> streamUncompactedViewsPerVideoPerDay(@Param("since") LocalDateTime since,
+                                                          @Param("compactedThrough") LocalDateTime compactedThrough,
+                                                          @Param("fromId") long fromId,
+                                                          @Param("toId") long toId);
+
+    // Pregledi po videu i danu za redove upisane u [from, to) - kompakcija u video_view_daily
+    @Query("SELECT vv.video.id, CAST(vv.viewedAt AS LocalDate), COUNT(vv) " +
+           "FROM VideoView vv " +
+           "WHERE (vv.recordedAt >= :from AND vv.recordedAt < :to) " +
+           "OR (vv.recordedAt IS NULL AND vv.viewedAt >= :from AND vv.viewedAt < :to) " +
+           "GROUP BY vv.video.id, CAST(vv.viewedAt AS LocalDate)")
+    List<Object[]> countViewsPerVideoPerDayRecordedBetween(@Param("from") LocalDateTime from,
+                                                           @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(vv.viewedAt) FROM VideoView vv")
+    LocalDateTime findMinViewedAt();
+
+    // Stari redovi koji su već uračunati u rollup (upisani pre granice kompakcije)
+    @Query("SELECT vv.id FROM VideoView vv WHERE vv.viewedAt < :before " +
+           "AND (vv.recordedAt < :compactedThrough " +
+           "     OR (vv.recordedAt IS NULL AND vv.viewedAt < :compactedThrough)) " +
+           "ORDER BY vv.id")
+    List<Long> findIdsCompactedViewedBefore(@Param("before") LocalDateTime before,
+                                            @Param("compactedThrough") LocalDateTime compactedThrough,
+                                            Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM VideoView vv WHERE vv.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
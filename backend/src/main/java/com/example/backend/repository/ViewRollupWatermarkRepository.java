@@ -0,0 +1,23 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.ViewRollupWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ViewRollupWatermarkRepository extends JpaRepository<ViewRollupWatermark, String> {
+
+    // Kompakcija: druga instanca čeka dok se ne commit-uje pomeranje granice
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM ViewRollupWatermark w WHERE w.name = :name")
+    Optional<ViewRollupWatermark> findForUpdate(@Param("name") String name);
+
+    // Čitanje rollup-a i sirovih redova posle granice: granica ne sme da se pomeri između dva upita
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT w FROM ViewRollupWatermark w WHERE w.name = :name")
+    Optional<ViewRollupWatermark> findForShare(@Param("name") String name);
+}
@@ -0,0 +1,12 @@
+package com.example.backend.services;
+
+/**
+ * Sadržaj chunk-a ne odgovara checksum-u koji je klijent poslao (Upload-Checksum).
+ * Chunk se ne računa kao primljen i klijent treba ponovo da ga pošalje.
+ */
+public class ChecksumMismatchException extends IllegalArgumentException {
+
+    public ChecksumMismatchException(String message) {
+        super(message);
+    }
+}
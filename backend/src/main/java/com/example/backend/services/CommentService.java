@@ -9,6 +9,7 @@ import com.example.backend.repository.CommentRepository;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.repository.VideoRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -19,13 +20,17 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final VideoRepository videoRepository;
     private final UserRepository userRepository;
+    private final PopularityCalculationService popularityCalculationService;
 
-    public CommentService(CommentRepository commentRepository, VideoRepository videoRepository, UserRepository userRepository) {
+    public CommentService(CommentRepository commentRepository, VideoRepository videoRepository, UserRepository userRepository,
+                          PopularityCalculationService popularityCalculationService) {
         this.commentRepository = commentRepository;
         this.videoRepository = videoRepository;
         this.userRepository = userRepository;
+        this.popularityCalculationService = popularityCalculationService;
     }
 
+    @Transactional
     public CommentResponse addComment(Long videoId, String userEmail, CreateCommentRequest request) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -34,6 +39,8 @@ public class CommentService {
 
         Comment comment = new Comment(request.getContent(), user, video);
         commentRepository.save(comment);
+        videoRepository.addCommentCount(videoId, 1);
+        popularityCalculationService.markDirty(videoId);
 
         return new CommentResponse(comment.getId(), comment.getContent(), user.getUsername(), comment.getCreatedAt());
     }
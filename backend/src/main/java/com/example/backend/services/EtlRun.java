@@ -0,0 +1,93 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.EtlRunResponse;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Jedno ETL izvrsavanje: stanje, trenutna faza i trajanje faza.
+ * Menja ga samo nit koja izvrsava ETL, a citaju ga zahtevi za status (zato su metode sinhronizovane).
+ */
+public class EtlRun {
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED, SKIPPED }
+
+    public enum Phase { EXTRACT, TRANSFORM, LOAD }
+
+    private final String runId;
+    private final String trigger;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private State state = State.QUEUED;
+    private Phase currentPhase;
+    private long phaseStartedNanos;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+    private final Map<Phase, Double> phaseDurationsMs = new EnumMap<>(Phase.class);
+
+    // Cita se van lock-a iz petlji transform faze
+    private volatile boolean cancelRequested;
+
+    public EtlRun(String runId, String trigger) {
+        this.runId = runId;
+        this.trigger = trigger;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    public synchronized boolean isFinished() {
+        return state != State.QUEUED && state != State.RUNNING;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    synchronized void start() {
+        state = State.RUNNING;
+        startedAt = LocalDateTime.now();
+    }
+
+    synchronized void beginPhase(Phase phase) {
+        currentPhase = phase;
+        phaseStartedNanos = System.nanoTime();
+    }
+
+    synchronized void endPhase() {
+        phaseDurationsMs.put(currentPhase, (System.nanoTime() - phaseStartedNanos) / 1_000_000.0);
+        currentPhase = null;
+    }
+
+    synchronized void finish(State finalState, String finalMessage) {
+        state = finalState;
+        message = finalMessage;
+        currentPhase = null;
+        finishedAt = LocalDateTime.now();
+    }
+
+    public synchronized EtlRunResponse toResponse() {
+        Map<String, Double> durations = new LinkedHashMap<>();
+        phaseDurationsMs.forEach((phase, ms) -> durations.put(phase.name(), ms));
+        return new EtlRunResponse(runId, trigger, state.name(),
+                currentPhase != null ? currentPhase.name() : null,
+                submittedAt, startedAt, finishedAt, durations, message);
+    }
+}
@@ -1,29 +1,89 @@
 package com.example.backend.services;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.example.backend.config.ThumbnailConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class FileStorageService {
 
+    public static final long MAX_VIDEO_SIZE = 200L * 1024 * 1024; // 200 MB
+
+    // MP4 (ISO BMFF) fajl počinje "ftyp" box-om: 4 bajta dužina, pa "ftyp" na bajtovima 4-7
+    private static final byte[] MP4_FTYP = {'f', 't', 'y', 'p'};
+    private static final int MP4_HEADER_SIZE = 12;
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
     private final String uploadDir = "uploads/";
     private final String videoDir = uploadDir + "videos/";
     private final String thumbnailDir = uploadDir + "thumbnails/";
 
+    private static final long THUMBNAIL_WAIT_SECONDS = 10;
+
+    private final int maxThumbnailSourceBytes;
+    private final long maxThumbnailSourcePixels;
+    private final ThreadPoolExecutor thumbnailExecutor;
+    private final Map<String, CompletableFuture<Void>> pendingThumbnails = new ConcurrentHashMap<>();
+
     public FileStorageService() {
+        this(new ThumbnailConfig());
+    }
+
+    @Autowired
+    public FileStorageService(ThumbnailConfig thumbnailConfig) {
         // Kreiranje direktorijuma pri pokretanju aplikacije
         createDirectories();
+
+        this.maxThumbnailSourceBytes = thumbnailConfig.getMaxSourceBytes();
+        this.maxThumbnailSourcePixels = thumbnailConfig.getMaxSourcePixels();
+        // Ograničen red; kad je pun, upload nit sama renderuje thumbnail (usporava se umesto da se gubi)
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.thumbnailExecutor = new ThreadPoolExecutor(
+                thumbnailConfig.getProcessingThreads(), thumbnailConfig.getProcessingThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(thumbnailConfig.getQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.thumbnailExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thumbnailExecutor.shutdown();
     }
 
     private void createDirectories() {
@@ -44,7 +104,7 @@ public class FileStorageService {
             throw new IllegalArgumentException("File is empty");
         }
 
-        if (file.getSize() > 200 * 1024 * 1024) { // 200 MB
+        if (file.getSize() > MAX_VIDEO_SIZE) {
             throw new IllegalArgumentException("File size exceeds 200MB limit");
         }
 
@@ -63,6 +123,96 @@ public class FileStorageService {
         return filename;
     }
 
+    /**
+     * Upload videa direktno iz stream-a (deo multipart tela), bez MultipartFile temp fajla.
+     * Sadržaj se upisuje odmah na konačnu lokaciju, a format se proverava po magic bajtovima
+     * iz prvog bloka umesto po Content-Type-u koji šalje klijent. Limit veličine se proverava
+     * tokom upisa; kod greške se delimično upisan fajl briše.
+     */
+    public String storeVideo(InputStream in) throws IOException {
+        return storeVideo(in, MAX_VIDEO_SIZE);
+    }
+
+    public String storeVideo(InputStream in, long maxBytes) throws IOException {
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        int headerLength = in.readNBytes(chunk, 0, MP4_HEADER_SIZE);
+        if (headerLength == 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        if (!isMp4Header(chunk, headerLength)) {
+            throw new IllegalArgumentException("Only MP4 video format is allowed");
+        }
+
+        String filename = UUID.randomUUID().toString() + ".mp4";
+        Path filePath = Paths.get(videoDir + filename);
+        boolean stored = false;
+        try (OutputStream out = Files.newOutputStream(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            out.write(chunk, 0, headerLength);
+            long written = headerLength;
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                written += n;
+                if (written > maxBytes) {
+                    throw new IllegalArgumentException("File size exceeds " + maxBytes / (1024 * 1024) + "MB limit");
+                }
+                out.write(chunk, 0, n);
+            }
+            stored = true;
+        } finally {
+            if (!stored) {
+                Files.deleteIfExists(filePath);
+            }
+        }
+        return filename;
+    }
+
+    /**
+     * Delimičan fajl nastavljivog upload-a. Nalazi se u istom direktorijumu kao videi,
+     * da bi završetak upload-a bio samo preimenovanje (bez kopiranja).
+     */
+    public Path partialVideoPath(String uploadId) {
+        return Paths.get(videoDir + uploadId + ".part");
+    }
+
+    /**
+     * Pretvori kompletiran delimičan fajl u video: proveri MP4 magic bajtove i atomično
+     * ga preimenuj u konačno (UUID) ime.
+     */
+    public String promotePartialVideo(Path partialPath) throws IOException {
+        byte[] header = new byte[MP4_HEADER_SIZE];
+        int headerLength;
+        try (InputStream in = Files.newInputStream(partialPath)) {
+            headerLength = in.readNBytes(header, 0, MP4_HEADER_SIZE);
+        }
+        if (!isMp4Header(header, headerLength)) {
+            throw new IllegalArgumentException("Only MP4 video format is allowed");
+        }
+
+        String filename = UUID.randomUUID().toString() + ".mp4";
+        Files.move(partialPath, Paths.get(videoDir + filename), StandardCopyOption.ATOMIC_MOVE);
+        return filename;
+    }
+
+    /**
+     * Suprotno od promotePartialVideo: video se vraća pod delimično ime (complete nije uspeo,
+     * upload se može nastaviti).
+     */
+    public void restorePartialVideo(String filename, Path partialPath) throws IOException {
+        Files.move(Paths.get(videoDir + filename), partialPath, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static boolean isMp4Header(byte[] header, int length) {
+        if (length < MP4_HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MP4_FTYP.length; i++) {
+            if (header[4 + i] != MP4_FTYP[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Upload thumbnail slike sa kompresijom
      */
@@ -70,52 +220,198 @@ public class FileStorageService {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Thumbnail file is empty");
         }
+        return uploadThumbnail(file.getInputStream(), file.getContentType());
+    }
 
-        String contentType = file.getContentType();
+    /**
+     * U ovom zahtevu se čita samo zaglavlje slike: fajl koji nije slika ili ima previše piksela
+     * se odbija odmah. Dekodiranje, skaliranje i upis JPEG varijanti iz ThumbnailSize (od najveće
+     * ka najmanjoj, svaka se skalira iz prethodne) radi pool; upload ne čeka obradu. U redu pool-a
+     * čekaju samo kompresovani bajtovi, ograničeni na max-source-bytes i max-source-pixels.
+     * Oštećena slika sa ispravnim zaglavljem se otkriva tek u pool-u - awaitThumbnail tada baca
+     * IOException, a varijante se ne upisuju.
+     */
+    public String uploadThumbnail(InputStream in, String contentType) throws IOException {
         if (contentType == null || (!contentType.startsWith("image/"))) {
             throw new IllegalArgumentException("Only image files are allowed for thumbnail");
         }
 
-        // Čitanje originalne slike
-        BufferedImage originalImage = ImageIO.read(file.getInputStream());
-        if (originalImage == null) {
-            throw new IllegalArgumentException("Invalid image file");
+        byte[] source = in.readNBytes(maxThumbnailSourceBytes + 1);
+        if (source.length == 0) {
+            throw new IllegalArgumentException("Thumbnail file is empty");
         }
+        if (source.length > maxThumbnailSourceBytes) {
+            throw new IllegalArgumentException("Thumbnail exceeds " + maxThumbnailSourceBytes / (1024 * 1024) + "MB limit");
+        }
+        readImage(source, false);
 
-        // Kompresija slike (resize to 640x360 for thumbnail)
-        BufferedImage compressedImage = compressImage(originalImage, 640, 360);
-
-        // Generisanje unique filename
+        // Generisanje unique filename (osnovno ime = najveća varijanta)
         String filename = UUID.randomUUID().toString() + ".jpg";
-        Path filePath = Paths.get(thumbnailDir + filename);
-
-        // Čuvanje kompresovane slike
-        ImageIO.write(compressedImage, "jpg", filePath.toFile());
 
+        CompletableFuture<Void> job = CompletableFuture.runAsync(() -> renderVariants(source, filename), thumbnailExecutor);
+        pendingThumbnails.put(filename, job);
+        job.whenComplete((result, error) -> {
+            pendingThumbnails.remove(filename, job);
+            if (error != null) {
+                System.err.println("Thumbnail processing failed for " + filename + ": " + error.getMessage());
+            }
+        });
         return filename;
     }
 
     /**
-     * Kompresija slike na željene dimenzije
+     * Sačekaj da se varijante thumbnail-a renderuju, ako je obrada još u toku.
      */
-    private BufferedImage compressImage(BufferedImage originalImage, int targetWidth, int targetHeight) {
-        BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+    public void awaitThumbnail(String filename) throws IOException {
+        CompletableFuture<Void> job = pendingThumbnails.get(filename);
+        if (job == null) {
+            return;
+        }
+        try {
+            job.get(THUMBNAIL_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for thumbnail " + filename, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Thumbnail processing failed for " + filename, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Thumbnail " + filename + " is still being processed");
+        }
+    }
+
+    public int getPendingThumbnailCount() {
+        return pendingThumbnails.size();
+    }
+
+    private void renderVariants(byte[] source, String filename) {
+        try {
+            ThumbnailSize[] sizes = ThumbnailSize.values();
+            ThumbnailSize largest = sizes[sizes.length - 1];
+            BufferedImage image = fitImage(readImage(source, true), largest.getWidth(), largest.getHeight());
+            writeJpeg(image, sizes[sizes.length - 1].fileName(filename));
+            for (int i = sizes.length - 2; i >= 0; i--) {
+                image = fitImage(image, sizes[i].getWidth(), sizes[i].getHeight());
+                writeJpeg(image, sizes[i].fileName(filename));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJpeg(BufferedImage image, String filename) throws IOException {
+        // Upis u privremeni fajl pa preimenovanje, da čitalac nikad ne vidi napola upisan JPEG
+        Path target = Paths.get(thumbnailDir + filename);
+        Path temp = Paths.get(thumbnailDir + filename + ".tmp");
+        if (!ImageIO.write(image, "jpg", temp.toFile())) {
+            throw new IOException("No JPEG writer available");
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Provera zaglavlja poslate slike i, ako je decode true, potpuno dekodiranje (inače vraća null).
+     * Dimenzije se čitaju iz zaglavlja i proveravaju pre dekodiranja, pa mali fajl sa ogromnim
+     * dimenzijama ne može da zauzme memoriju. Oštećena ili skraćena slika (i upozorenje dekodera,
+     * npr. nepotpun JPEG) se odbija.
+     */
+    private BufferedImage readImage(byte[] source, boolean decode) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Invalid image file");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long width;
+                long height;
+                try {
+                    width = reader.getWidth(0);
+                    height = reader.getHeight(0);
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid image file");
+                }
+                if (width <= 0 || height <= 0) {
+                    throw new IllegalArgumentException("Invalid image file");
+                }
+                if (width * height > maxThumbnailSourcePixels) {
+                    throw new IllegalArgumentException("Thumbnail exceeds " + maxThumbnailSourcePixels + " pixels");
+                }
+                if (!decode) {
+                    return null;
+                }
+
+                AtomicBoolean warned = new AtomicBoolean();
+                reader.addIIOReadWarningListener((warningReader, warning) -> warned.set(true));
+                BufferedImage image;
+                try {
+                    image = reader.read(0);
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid image file");
+                }
+                if (image == null || warned.get()) {
+                    throw new IllegalArgumentException("Invalid image file");
+                }
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Skaliranje tako da slika stane u targetWidth x targetHeight uz očuvan odnos stranica
+     * (bez uvećavanja manjih slika). Rezultat je uvek RGB, da bi JPEG enkoder mogao da ga upiše.
+     */
+    private static BufferedImage fitImage(BufferedImage originalImage, int targetWidth, int targetHeight) {
+        double scale = Math.min(1.0, Math.min((double) targetWidth / originalImage.getWidth(),
+                (double) targetHeight / originalImage.getHeight()));
+        int width = Math.max(1, (int) Math.round(originalImage.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(originalImage.getHeight() * scale));
+
+        BufferedImage resizedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         Graphics2D graphics = resizedImage.createGraphics();
-        
+
         graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        graphics.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
+        graphics.drawImage(originalImage, 0, 0, width, height, null);
         graphics.dispose();
 
         return resizedImage;
     }
 
     /**
-     * Brisanje fajla
+     * Brisanje fajla. Za thumbnail se brišu sve varijante; ako je obrada još u toku,
+     * prvo se sačeka da se završi, da ne bi upisala varijante posle brisanja.
      */
     public void deleteFile(String filename, boolean isVideo) {
+        if (isVideo) {
+            deletePath(Paths.get(videoDir + filename), filename);
+            return;
+        }
+        CompletableFuture<Void> job = pendingThumbnails.get(filename);
+        if (job != null) {
+            try {
+                job.get(THUMBNAIL_WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.whenComplete((result, error) -> deleteThumbnailVariants(filename));
+            } catch (ExecutionException e) {
+                // Obrada nije uspela, brišemo šta je ostalo
+            } catch (TimeoutException e) {
+                job.whenComplete((result, error) -> deleteThumbnailVariants(filename));
+            }
+        }
+        deleteThumbnailVariants(filename);
+    }
+
+    private void deleteThumbnailVariants(String filename) {
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            deletePath(Paths.get(thumbnailDir + size.fileName(filename)), filename);
+        }
+    }
+
+    private static void deletePath(Path filePath, String filename) {
         try {
-            String directory = isVideo ? videoDir : thumbnailDir;
-            Path filePath = Paths.get(directory + filename);
             Files.deleteIfExists(filePath);
         } catch (IOException e) {
             throw new RuntimeException("Could not delete file: " + filename, e);
@@ -131,6 +427,43 @@ public class FileStorageService {
         return Files.readAllBytes(filePath);
     }
 
+    /**
+     * Učitavanje fajla kao Resource - sadržaj se ne čita u memoriju,
+     * već se strimuje direktno sa diska (koristi se za video streaming i Range zahteve)
+     */
+    public Resource loadAsResource(String filename, boolean isVideo) throws IOException {
+        String directory = isVideo ? videoDir : thumbnailDir;
+        Path filePath = Paths.get(directory + filename);
+        if (!Files.isReadable(filePath)) {
+            throw new FileNotFoundException("File not found: " + filename);
+        }
+        return new FileSystemResource(filePath);
+    }
+
+    /**
+     * Slanje dela fajla u izlazni kanal preko FileChannel.transferTo.
+     * Samo kada je cilj SocketChannel ili FileChannel kernel kopira bajtove direktno (sendfile),
+     * bez prolaska kroz JVM heap; za ostale kanale (npr. Channels.newChannel(outputStream))
+     * JDK kopira kroz privremeni bafer od nekoliko KB.
+     *
+     * @return broj prenetih bajtova
+     */
+    public long transferTo(Path filePath, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long transferred = 0;
+            // transferTo ne garantuje da ce preneti sve u jednom pozivu
+            while (transferred < count) {
+                long n = channel.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    // Kraj fajla (fajl je skracen u medjuvremenu)
+                    break;
+                }
+                transferred += n;
+            }
+            return transferred;
+        }
+    }
+
     /**
      * Provera da li fajl postoji
      */
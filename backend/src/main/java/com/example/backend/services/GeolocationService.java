@@ -2,10 +2,7 @@ package com.example.backend.services;
 
 import com.example.backend.dto.UserLocationRequest;
 import com.example.backend.dto.UserLocationResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * Servis za određivanje lokacije korisnika.
@@ -20,15 +17,10 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class GeolocationService {
     
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final IpGeolocationResolver ipGeolocationResolver;
     
-    // Besplatan IP geolocation API (ne zahteva API key)
-    private static final String IP_API_URL = "http://ip-api.com/json/%s?fields=status,message,country,city,lat,lon";
-    
-    public GeolocationService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    public GeolocationService(IpGeolocationResolver ipGeolocationResolver) {
+        this.ipGeolocationResolver = ipGeolocationResolver;
     }
     
     /**
@@ -51,60 +43,11 @@ public class GeolocationService {
     }
     
     /**
-     * Dobija lokaciju na osnovu IP adrese.
-     * Koristi besplatan ip-api.com servis.
+     * Dobija lokaciju na osnovu IP adrese (offline tabela, keš, pa ip-api.com sa timeout-om).
+     * Ne blokira duže od app.geolocation.ip-api-timeout-ms.
      */
     public UserLocationResponse getLocationFromIp(String ipAddress) {
-        try {
-            // Za localhost/development, koristi public IP ili default
-            if (isLocalAddress(ipAddress)) {
-                // U development modu vraćamo default lokaciju (Beograd)
-                return UserLocationResponse.fromIpGeolocation(
-                    44.8125, 20.4612, "Belgrade", "Serbia"
-                );
-            }
-            
-            String url = String.format(IP_API_URL, ipAddress);
-            String response = restTemplate.getForObject(url, String.class);
-            
-            JsonNode json = objectMapper.readTree(response);
-            
-            if ("success".equals(json.get("status").asText())) {
-                Double lat = json.get("lat").asDouble();
-                Double lon = json.get("lon").asDouble();
-                String city = json.has("city") ? json.get("city").asText() : null;
-                String country = json.has("country") ? json.get("country").asText() : null;
-                
-                return UserLocationResponse.fromIpGeolocation(lat, lon, city, country);
-            } else {
-                System.err.println("IP Geolocation failed: " + json.get("message").asText());
-                return UserLocationResponse.unknown();
-            }
-            
-        } catch (Exception e) {
-            System.err.println("Error getting IP geolocation: " + e.getMessage());
-            return UserLocationResponse.unknown();
-        }
-    }
-    
-    /**
-     * Proverava da li je IP adresa lokalna (localhost, private network).
-     */
-    private boolean isLocalAddress(String ipAddress) {
-        if (ipAddress == null) return true;
-        
-        return ipAddress.equals("127.0.0.1") 
-            || ipAddress.equals("0:0:0:0:0:0:0:1")
-            || ipAddress.equals("::1")
-            || ipAddress.startsWith("192.168.")
-            || ipAddress.startsWith("10.")
-            || ipAddress.startsWith("172.16.")
-            || ipAddress.startsWith("172.17.")
-            || ipAddress.startsWith("172.18.")
-            || ipAddress.startsWith("172.19.")
-            || ipAddress.startsWith("172.2")
-            || ipAddress.startsWith("172.30.")
-            || ipAddress.startsWith("172.31.");
+        return ipGeolocationResolver.resolve(ipAddress);
     }
     
     /**
@@ -0,0 +1,157 @@
+package com.example.backend.services;
+
+import com.example.backend.model.Video;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Keš za HYBRID trending strategiju (top K videa izračunatih real-time).
+ *
+ * - čuva jedan nepromenljiv snimak sa najvećim traženim K; zahtev za manji limit dobija prvih limit videa
+ * - refresh-ahead: posle refresh-ahead dela TTL-a snimak se osvežava u pozadini, a zahtevi i dalje dobijaju keš
+ * - stale-while-revalidate: posle isteka TTL-a, a pre stale-ttl, vraća se stari snimak dok traje osvežavanje
+ * - single-flight: u jednom trenutku radi najviše jedan preračun; ostali zahtevi čekaju isti rezultat
+ *
+ * Sinhrono (na niti zahteva) se računa samo kad snimka nema, kad je stariji od stale-ttl
+ * ili kad ne sadrži dovoljno videa za traženi limit.
+ */
+public class HybridTrendingCache {
+
+    private static final int MIN_K = 50;
+
+    private final IntFunction<List<Video>> loader;
+    private final Executor refreshExecutor;
+    private final LongSupplier nanoClock;
+    private final long refreshAheadNanos;
+    private final long ttlNanos;
+    private final long staleNanos;
+
+    private volatile Snapshot snapshot;
+    private final AtomicReference<CompletableFuture<Snapshot>> inFlight = new AtomicReference<>();
+
+    // Najveći limit koji je ikad tražen - osvežavanja ga zadržavaju
+    private final AtomicInteger requestedK = new AtomicInteger(MIN_K);
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    public HybridTrendingCache(IntFunction<List<Video>> loader, Duration ttl, Duration staleTtl,
+                               double refreshAheadFactor, Executor refreshExecutor, LongSupplier nanoClock) {
+        this.loader = loader;
+        this.refreshExecutor = refreshExecutor;
+        this.nanoClock = nanoClock;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAheadNanos = (long) (ttlNanos * refreshAheadFactor);
+        this.staleNanos = ttlNanos + staleTtl.toNanos();
+    }
+
+    public List<Video> get(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        requestedK.accumulateAndGet(limit, Math::max);
+
+        Snapshot current = snapshot;
+        if (current != null && current.covers(limit)) {
+            long age = nanoClock.getAsLong() - current.loadedAtNanos();
+            if (age < refreshAheadNanos) {
+                return current.top(limit);
+            }
+            if (age < staleNanos) {
+                // refresh-ahead (pre TTL-a) ili stale-while-revalidate (posle TTL-a)
+                refreshAsync();
+                return current.top(limit);
+            }
+        }
+        return loadAndWait(limit);
+    }
+
+    /**
+     * Odbaci snimak - sledeći zahtev sinhrono računa novi.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    public boolean isFresh() {
+        Snapshot current = snapshot;
+        return current != null && nanoClock.getAsLong() - current.loadedAtNanos() < ttlNanos;
+    }
+
+    public int getLoadCount() {
+        return loadCount.get();
+    }
+
+    private void refreshAsync() {
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        if (inFlight.compareAndSet(null, future)) {
+            try {
+                refreshExecutor.execute(() -> load(future));
+            } catch (RuntimeException e) {
+                // executor je ugašen - osvežiće se sinhrono kad snimak istekne
+                inFlight.set(null);
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private List<Video> loadAndWait(int limit) {
+        while (true) {
+            CompletableFuture<Snapshot> future = new CompletableFuture<>();
+            CompletableFuture<Snapshot> running = inFlight.compareAndExchange(null, future);
+            if (running == null) {
+                load(future);
+                running = future;
+            }
+
+            Snapshot loaded;
+            try {
+                loaded = running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+            // preračun koji je već bio u toku je možda računat za manji K
+            if (loaded.covers(limit)) {
+                return loaded.top(limit);
+            }
+        }
+    }
+
+    private void load(CompletableFuture<Snapshot> future) {
+        try {
+            int k = requestedK.get();
+            List<Video> videos = List.copyOf(loader.apply(k));
+            loadCount.incrementAndGet();
+            Snapshot loaded = new Snapshot(videos, k, nanoClock.getAsLong());
+            snapshot = loaded;
+            future.complete(loaded);
+        } catch (RuntimeException e) {
+            System.out.println("Hybrid trending refresh failed: " + e.getMessage());
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    private record Snapshot(List<Video> videos, int k, long loadedAtNanos) {
+
+        // Snimak važi za limit ako je računat za bar toliko videa, ili ako ukupno ima manje videa od K
+        boolean covers(int limit) {
+            return limit <= k || videos.size() < k;
+        }
+
+        List<Video> top(int limit) {
+            return videos.subList(0, Math.min(limit, videos.size()));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.backend.services;
+
+import com.example.backend.config.GeolocationConfig;
+import com.example.backend.dto.UserLocationResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Određivanje lokacije po IP adresi, bez blokiranja zahteva na spoljnom API-ju.
+ *
+ * Redosled:
+ * 1. lokalna/privatna adresa -> podrazumevana lokacija (Beograd)
+ * 2. offline tabela IP opsega (app.geolocation.ip-database, binarna pretraga u memoriji)
+ * 3. keš po /24 prefiksu (IPv4) ili celoj adresi (IPv6), ograničen veličinom i TTL-om
+ * 4. ip-api.com na posebnom, ograničenom pool-u - pozivalac čeka najviše ip-api-timeout-ms,
+ *    a istovremeni zahtevi za isti prefiks dele jedan HTTP poziv
+ *
+ * Ako API ne odgovori na vreme, vraća se unknown(), a zakasneli odgovor ipak ulazi u keš
+ * za sledeće zahteve. Neuspeo poziv se ne kešira (Caffeine izbacuje neuspele future-e).
+ * Kad su pool i red puni, lookup se odbija i vraća se unknown(), bez keširanja.
+ */
+@Service
+public class IpGeolocationResolver {
+
+    // Besplatan IP geolocation API (ne zahteva API key)
+    private static final String IP_API_URL = "http://ip-api.com/json/%s?fields=status,message,country,city,lat,lon";
+
+    private final GeolocationConfig config;
+    private final IpRangeDatabase ipRangeDatabase;
+    private final AsyncCache<String, UserLocationResponse> cache;
+    private final ThreadPoolExecutor httpExecutor;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public IpGeolocationResolver(GeolocationConfig config,
+                                 ResourceLoader resourceLoader,
+                                 MeterRegistry meterRegistry) {
+        this.config = config;
+        this.ipRangeDatabase = loadDatabase(resourceLoader.getResource(config.getIpDatabase()));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getIpCacheMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(config.getIpCacheTtlMinutes()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ip_geolocation");
+
+        // Ograničen broj istovremenih poziva ka API-ju; kad je red pun, lookup se odmah odbija
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.httpExecutor = new ThreadPoolExecutor(
+                config.getIpApiMaxConcurrent(), config.getIpApiMaxConcurrent(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getIpApiQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ip-geolocation-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.httpExecutor.allowCoreThreadTimeOut(true);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) config.getIpApiTimeoutMs());
+        requestFactory.setReadTimeout((int) config.getIpApiTimeoutMs());
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    public UserLocationResponse resolve(String ipAddress) {
+        // Za localhost/development vraćamo default lokaciju (Beograd)
+        if (isLocalAddress(ipAddress)) {
+            return UserLocationResponse.fromIpGeolocation(44.8125, 20.4612, "Belgrade", "Serbia");
+        }
+
+        UserLocationResponse offline = ipRangeDatabase.lookup(ipAddress);
+        if (offline != null) {
+            return offline;
+        }
+
+        String key = cacheKey(ipAddress);
+        if (!config.isIpApiEnabled()) {
+            UserLocationResponse cached = cache.synchronous().getIfPresent(key);
+            return cached != null ? cached : UserLocationResponse.unknown();
+        }
+
+        try {
+            CompletableFuture<UserLocationResponse> lookup = cache.get(key,
+                    (prefix, executor) -> CompletableFuture.supplyAsync(() -> fetchFromIpApi(ipAddress), httpExecutor));
+            return lookup.get(config.getIpApiTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Pool i red su puni - prefiks se ne kešira, pa sledeći zahtev pokušava ponovo
+            System.err.println("IP Geolocation queue full, skipping lookup for " + ipAddress);
+            return UserLocationResponse.unknown();
+        } catch (TimeoutException e) {
+            System.err.println("IP Geolocation timed out for " + ipAddress);
+            return UserLocationResponse.unknown();
+        } catch (ExecutionException e) {
+            System.err.println("Error getting IP geolocation: " + e.getCause().getMessage());
+            return UserLocationResponse.unknown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return UserLocationResponse.unknown();
+        }
+    }
+
+    /**
+     * HTTP poziv ka ip-api.com. Izuzetak znači da poziv nije uspeo (ne kešira se);
+     * odgovor sa status=fail se kešira kao unknown(), da se ista adresa ne bi stalno ponovo tražila.
+     */
+    protected UserLocationResponse fetchFromIpApi(String ipAddress) {
+        try {
+            String response = restTemplate.getForObject(String.format(IP_API_URL, ipAddress), String.class);
+            JsonNode json = objectMapper.readTree(response);
+
+            if ("success".equals(json.get("status").asText())) {
+                Double lat = json.get("lat").asDouble();
+                Double lon = json.get("lon").asDouble();
+                String city = json.has("city") ? json.get("city").asText() : null;
+                String country = json.has("country") ? json.get("country").asText() : null;
+                return UserLocationResponse.fromIpGeolocation(lat, lon, city, country);
+            }
+            System.err.println("IP Geolocation failed: " + json.get("message").asText());
+            return UserLocationResponse.unknown();
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid IP geolocation response", e);
+        }
+    }
+
+    public int getOfflineRangeCount() {
+        return ipRangeDatabase.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+
+    /**
+     * Adrese iz iste /24 mreže dele lokaciju (preciznost IP geolokacije je ionako nivo grada).
+     */
+    static String cacheKey(String ipAddress) {
+        long ip = IpRangeDatabase.parseIpv4(ipAddress);
+        if (ip < 0) {
+            return ipAddress;
+        }
+        return ((ip >> 24) & 0xFF) + "." + ((ip >> 16) & 0xFF) + "." + ((ip >> 8) & 0xFF) + ".0/24";
+    }
+
+    /**
+     * Proverava da li je IP adresa lokalna (localhost, private network).
+     */
+    private static boolean isLocalAddress(String ipAddress) {
+        if (ipAddress == null) return true;
+
+        return ipAddress.equals("127.0.0.1")
+            || ipAddress.equals("0:0:0:0:0:0:0:1")
+            || ipAddress.equals("::1")
+            || ipAddress.startsWith("192.168.")
+            || ipAddress.startsWith("10.")
+            || ipAddress.startsWith("172.16.")
+            || ipAddress.startsWith("172.17.")
+            || ipAddress.startsWith("172.18.")
+            || ipAddress.startsWith("172.19.")
+            || ipAddress.startsWith("172.2")
+            || ipAddress.startsWith("172.30.")
+            || ipAddress.startsWith("172.31.");
+    }
+
+    private static IpRangeDatabase loadDatabase(Resource resource) {
+        if (!resource.exists()) {
+            System.out.println("IP range database " + resource.getDescription() + " not found, using ip-api.com only");
+            return IpRangeDatabase.empty();
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            IpRangeDatabase database = IpRangeDatabase.load(reader);
+            System.out.println("IP range database loaded with " + database.size() + " ranges");
+            return database;
+        } catch (IOException e) {
+            System.err.println("Could not read IP range database: " + e.getMessage());
+            return IpRangeDatabase.empty();
+        }
+    }
+}
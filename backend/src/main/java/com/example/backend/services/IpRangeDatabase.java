@@ -0,0 +1,163 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.UserLocationResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Offline tabela IPv4 opsega -> lokacija, učitana jednom i pretraživana binarnom pretragom.
+ *
+ * Format fajla (CSV, jedan opseg po liniji, linije sa # se preskaču):
+ *   network,latitude,longitude,city,country
+ *   109.92.0.0/15,44.8125,20.4612,Belgrade,Serbia
+ *
+ * Opsezi ne smeju da se preklapaju; pri preklapanju važi opseg sa većom početnom adresom.
+ * Tabela je nepromenljiva posle učitavanja, pa je pretraga bez zaključavanja.
+ */
+public class IpRangeDatabase {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final UserLocationResponse[] locations;
+
+    private IpRangeDatabase(List<Range> ranges) {
+        ranges.sort(Comparator.comparingLong(Range::start));
+        int size = ranges.size();
+        this.starts = new long[size];
+        this.ends = new long[size];
+        this.locations = new UserLocationResponse[size];
+        for (int i = 0; i < size; i++) {
+            Range range = ranges.get(i);
+            starts[i] = range.start();
+            ends[i] = range.end();
+            locations[i] = range.location();
+        }
+    }
+
+    public static IpRangeDatabase empty() {
+        return new IpRangeDatabase(new ArrayList<>());
+    }
+
+    /**
+     * Učitaj tabelu iz CSV-a. Neispravne linije se preskaču (uz poruku), da jedna loša linija
+     * ne bi isključila celu tabelu.
+     */
+    public static IpRangeDatabase load(BufferedReader reader) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("network,")) {
+                continue;
+            }
+            Range range = parseLine(line);
+            if (range == null) {
+                System.err.println("IP range database: skipping invalid line " + lineNumber + ": " + line);
+                continue;
+            }
+            ranges.add(range);
+        }
+        return new IpRangeDatabase(ranges);
+    }
+
+    /**
+     * Lokacija za IPv4 adresu (i IPv4-mapped IPv6, ::ffff:a.b.c.d), ili null ako nije u tabeli.
+     */
+    public UserLocationResponse lookup(String ipAddress) {
+        long ip = parseIpv4(ipAddress);
+        if (ip < 0 || starts.length == 0) {
+            return null;
+        }
+
+        // Poslednji opseg koji počinje na ili pre ip
+        int low = 0;
+        int high = starts.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= ip) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found >= 0 && ip <= ends[found] ? locations[found] : null;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * IPv4 adresa kao neoznačen 32-bitni broj, ili -1 ako nije ispravna IPv4 adresa.
+     */
+    static long parseIpv4(String ipAddress) {
+        if (ipAddress == null) {
+            return -1;
+        }
+        String address = ipAddress.startsWith("::ffff:") ? ipAddress.substring(7) : ipAddress;
+        String[] parts = address.split("\\.", -1);
+        if (parts.length != 4) {
+            return -1;
+        }
+        long ip = 0;
+        for (String part : parts) {
+            if (part.isEmpty() || part.length() > 3) {
+                return -1;
+            }
+            int octet = 0;
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                octet = octet * 10 + (c - '0');
+            }
+            if (octet > 255) {
+                return -1;
+            }
+            ip = (ip << 8) | octet;
+        }
+        return ip;
+    }
+
+    private static Range parseLine(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 5) {
+            return null;
+        }
+        String[] network = fields[0].trim().split("/");
+        long base = parseIpv4(network[0]);
+        if (base < 0) {
+            return null;
+        }
+        try {
+            int prefix = network.length > 1 ? Integer.parseInt(network[1]) : 32;
+            if (prefix < 0 || prefix > 32) {
+                return null;
+            }
+            long size = 1L << (32 - prefix);
+            long start = base & ~(size - 1) & 0xFFFFFFFFL;
+            UserLocationResponse location = UserLocationResponse.fromIpGeolocation(
+                    Double.parseDouble(fields[1].trim()), Double.parseDouble(fields[2].trim()),
+                    emptyToNull(fields[3]), emptyToNull(fields[4]));
+            return new Range(start, start + size - 1, location);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private record Range(long start, long end, UserLocationResponse location) {}
+}
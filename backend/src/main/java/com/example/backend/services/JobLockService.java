@@ -0,0 +1,78 @@
+package com.example.backend.services;
+
+import com.example.backend.model.JobLock;
+import com.example.backend.repository.JobLockRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lock između instanci aplikacije preko job_locks tabele.
+ *
+ * Svako zauzimanje i oslobađanje je kratka zasebna transakcija, pa posao ne drži konekciju
+ * (ni transakciju) dok radi. Lease ograničava koliko dugo lock ostaje zauzet ako instanca padne.
+ */
+@Service
+public class JobLockService {
+
+    private final JobLockRepository jobLockRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Jedinstven za ovu instancu (i ovo pokretanje) aplikacije
+    private final String ownerId;
+
+    public JobLockService(JobLockRepository jobLockRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.jobLockRepository = jobLockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ownerId = hostName() + ":" + UUID.randomUUID();
+    }
+
+    /**
+     * Pokušaj da zauzmeš lock na najviše lease vremena. Ne čeka ako je zauzet.
+     */
+    public boolean tryLock(String name, Duration lease) {
+        try {
+            return acquire(name, lease, true);
+        } catch (DataIntegrityViolationException e) {
+            // druga instanca je istovremeno napravila red za ovaj lock
+            return acquire(name, lease, false);
+        }
+    }
+
+    public void unlock(String name) {
+        transactionTemplate.executeWithoutResult(status -> jobLockRepository.release(name, ownerId));
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    private boolean acquire(String name, Duration lease, boolean createIfMissing) {
+        Integer updated = transactionTemplate.execute(status -> {
+            if (createIfMissing && !jobLockRepository.existsById(name)) {
+                jobLockRepository.saveAndFlush(new JobLock(name));
+            }
+            LocalDateTime now = LocalDateTime.now();
+            return jobLockRepository.tryAcquire(name, ownerId, now, now.plus(lease));
+        });
+        return updated != null && updated == 1;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
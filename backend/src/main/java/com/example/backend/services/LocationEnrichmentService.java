@@ -0,0 +1,188 @@
+package com.example.backend.services;
+
+import com.example.backend.config.GeolocationConfig;
+import com.example.backend.dto.UserLocationResponse;
+import com.example.backend.model.Video;
+import com.example.backend.repository.VideoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Naknadno određivanje lokacije videa po IP adresi, van upload zahteva.
+ *
+ * Upload čuva video bez koordinata i odmah vraća odgovor; posle commit-a se prijavljuje posao
+ * koji na posebnom pool-u (ograničen red, enrichment-queue-size) traži lokaciju i upisuje
+ * latitude/longitude (i tekstualnu lokaciju ako je prazna) u kratkoj transakciji.
+ * Tako upload ne drži konekciju ka bazi dok čeka spoljni API.
+ *
+ * - neuspeo pokušaj (nepoznata lokacija) se ponavlja do enrichment-max-attempts puta,
+ *   sa eksponencijalnim backoff-om od enrichment-initial-backoff-ms
+ * - kad je red pun, posao se odbacuje (video ostaje bez koordinata) umesto da usporava upload
+ * - metrike: location_enrichment_total{result=...} i location_enrichment_queue
+ */
+@Service
+public class LocationEnrichmentService {
+
+    private final GeolocationService geolocationService;
+    private final VideoRepository videoRepository;
+    private final VideoSpatialIndex videoSpatialIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final GeolocationConfig config;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public LocationEnrichmentService(GeolocationService geolocationService,
+                                     VideoRepository videoRepository,
+                                     VideoSpatialIndex videoSpatialIndex,
+                                     PlatformTransactionManager transactionManager,
+                                     GeolocationConfig config,
+                                     MeterRegistry meterRegistry) {
+        this.geolocationService = geolocationService;
+        this.videoRepository = videoRepository;
+        this.videoSpatialIndex = videoSpatialIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = config;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                config.getEnrichmentThreads(), config.getEnrichmentThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getEnrichmentQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "location-enrichment-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-enrichment-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.succeeded = counter(meterRegistry, "success");
+        this.retried = counter(meterRegistry, "retry");
+        this.failed = counter(meterRegistry, "failed");
+        this.rejected = counter(meterRegistry, "rejected");
+        Gauge.builder("location_enrichment_queue", workers, executor -> executor.getQueue().size())
+                .description("Broj videa koji čekaju određivanje lokacije")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prijavi određivanje lokacije za video. Ako je transakcija aktivna, posao kreće tek posle
+     * commit-a (video tada sigurno postoji u bazi), a posle rollback-a se ne pokreće.
+     */
+    public void enrichAfterCommit(Long videoId, String clientIp) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(videoId, clientIp, 1);
+                }
+            });
+        } else {
+            submit(videoId, clientIp, 1);
+        }
+    }
+
+    public int getQueueSize() {
+        return workers.getQueue().size();
+    }
+
+    private void submit(Long videoId, String clientIp, int attempt) {
+        try {
+            workers.execute(() -> enrich(videoId, clientIp, attempt));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            System.err.println("Location enrichment queue full, video " + videoId + " stays without coordinates");
+        }
+    }
+
+    private void enrich(Long videoId, String clientIp, int attempt) {
+        UserLocationResponse location;
+        try {
+            location = geolocationService.getLocationFromIp(clientIp);
+        } catch (RuntimeException e) {
+            location = UserLocationResponse.unknown();
+        }
+
+        if (location.hasValidLocation()) {
+            applyLocation(videoId, location);
+            return;
+        }
+
+        if (attempt >= config.getEnrichmentMaxAttempts()) {
+            failed.increment();
+            System.out.println("❌ Could not determine location for video " + videoId + " after " + attempt + " attempts");
+            return;
+        }
+        retried.increment();
+        long backoffMs = config.getEnrichmentInitialBackoffMs() << (attempt - 1);
+        try {
+            retryScheduler.schedule(() -> submit(videoId, clientIp, attempt + 1), backoffMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // aplikacija se gasi
+            failed.increment();
+        }
+    }
+
+    private void applyLocation(Long videoId, UserLocationResponse location) {
+        Video updated = transactionTemplate.execute(status -> videoRepository.findById(videoId)
+                .map(video -> {
+                    // Koordinate koje je u međuvremenu postavio neko drugi se ne prepisuju
+                    if (video.getLatitude() != null && video.getLongitude() != null) {
+                        return null;
+                    }
+                    video.setLatitude(location.getLatitude());
+                    video.setLongitude(location.getLongitude());
+                    if ((video.getLocation() == null || video.getLocation().trim().isEmpty())
+                            && location.getCity() != null) {
+                        video.setLocation(location.getCity() + ", " + location.getCountry());
+                    }
+                    return videoRepository.save(video);
+                })
+                .orElse(null));
+
+        if (updated != null) {
+            videoSpatialIndex.update(updated);
+            succeeded.increment();
+            System.out.println("⚠️ Using IP geolocation fallback for video " + videoId + ": " +
+                    location.getLatitude() + ", " + location.getLongitude());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        workers.shutdown();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("location_enrichment_total")
+                .description("Ishodi naknadnog određivanja lokacije videa")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
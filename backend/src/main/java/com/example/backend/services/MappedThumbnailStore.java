@@ -0,0 +1,288 @@
+package com.example.backend.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap skladište thumbnail-a u memorijski mapiranim, append-only segment fajlovima.
+ *
+ * Format zapisa: [magic][dužina imena][dužina podataka][ime fajla UTF-8][JPEG bajtovi]
+ * - dužina podataka -1 je tombstone (thumbnail obrisan)
+ * - magic se upisuje poslednji, pa se nedovršen zapis posle pada ignoriše
+ * - indeks (ime fajla -> segment/offset/dužina) je u memoriji i gradi se skeniranjem segmenata pri startu
+ * - kada ukupna veličina pređe limit, briše se najstariji segment (FIFO po segmentima)
+ *
+ * Čitanje je bez zaključavanja i vraća read-only slice direktno nad mapiranom memorijom.
+ * Upis je serijalizovan (jedan pisac).
+ */
+public class MappedThumbnailStore implements Closeable {
+
+    private static final int MAGIC = 0x54484D42; // "THMB"
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Slot> index = new ConcurrentHashMap<>();
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    // Segment u koji se trenutno upisuje (čuva ga monitor ovog objekta)
+    private Segment active;
+
+    public MappedThumbnailStore(Path directory, int segmentBytes, long maxBytes) throws IOException {
+        if (segmentBytes <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentBytes);
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Vrati read-only slice sa thumbnail-om, ili null ako nije u skladištu.
+     */
+    public ByteBuffer get(String filename) {
+        Slot slot = index.get(filename);
+        if (slot == null) {
+            return null;
+        }
+        Segment segment = segments.get(slot.segmentId());
+        if (segment == null) {
+            // segment je upravo izbačen
+            return null;
+        }
+        return segment.slice(slot.offset(), slot.length());
+    }
+
+    /**
+     * Dopiši thumbnail na kraj aktivnog segmenta i vrati slice nad upisanim bajtovima.
+     */
+    public synchronized ByteBuffer put(String filename, byte[] data) throws IOException {
+        byte[] key = filename.getBytes(StandardCharsets.UTF_8);
+        int offset = append(key, data, data.length);
+        putInIndex(filename, new Slot(active.id, offset, data.length));
+        return active.slice(offset, data.length);
+    }
+
+    /**
+     * Obriši thumbnail - upisuje se tombstone da brisanje preživi restart.
+     */
+    public synchronized void remove(String filename) throws IOException {
+        if (!index.containsKey(filename)) {
+            return;
+        }
+        append(filename.getBytes(StandardCharsets.UTF_8), null, TOMBSTONE);
+        removeFromIndex(filename);
+    }
+
+    /**
+     * Obriši sve segmente i kreni od praznog skladišta.
+     */
+    public synchronized void clear() throws IOException {
+        long nextId = active.id + 1;
+        while (!segments.isEmpty()) {
+            dropOldest();
+        }
+        active = openSegment(nextId);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Ukupna veličina živih thumbnail-a u bajtovima (bez tombstone-ova i prepisanih zapisa)
+     */
+    public long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+    }
+
+    // ===== Upis =====
+
+    private int append(byte[] key, byte[] data, int dataLength) throws IOException {
+        int recordSize = HEADER_SIZE + key.length + Math.max(dataLength, 0);
+        if (recordSize > segmentBytes) {
+            throw new IllegalArgumentException("Thumbnail larger than segment: " + recordSize + " bytes");
+        }
+        if (active.writePosition + recordSize > active.buffer.capacity()) {
+            rollSegment();
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.putInt(position + 4, key.length);
+        buffer.putInt(position + 8, dataLength);
+        buffer.put(position + HEADER_SIZE, key);
+        if (data != null) {
+            buffer.put(position + HEADER_SIZE + key.length, data);
+        }
+        // magic poslednji - tek tada je zapis validan pri oporavku
+        buffer.putInt(position, MAGIC);
+
+        active.writePosition = position + recordSize;
+        return position + HEADER_SIZE + key.length;
+    }
+
+    private void rollSegment() throws IOException {
+        active = openSegment(active.id + 1);
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+    }
+
+    private void dropOldest() throws IOException {
+        Segment oldest = segments.pollFirstEntry().getValue();
+
+        Iterator<Map.Entry<String, Slot>> it = index.entrySet().iterator();
+        while (it.hasNext()) {
+            Slot slot = it.next().getValue();
+            if (slot.segmentId() == oldest.id) {
+                it.remove();
+                liveBytes.addAndGet(-slot.length());
+            }
+        }
+
+        // Mapiranje ostaje validno dok postoje slice-ovi koje čitaoci još šalju
+        oldest.channel.close();
+        Files.deleteIfExists(oldest.path);
+    }
+
+    private void putInIndex(String filename, Slot slot) {
+        Slot previous = index.put(filename, slot);
+        liveBytes.addAndGet(slot.length() - (previous != null ? previous.length() : 0));
+    }
+
+    private void removeFromIndex(String filename) {
+        Slot previous = index.remove(filename);
+        if (previous != null) {
+            liveBytes.addAndGet(-previous.length());
+        }
+    }
+
+    // ===== Oporavak posle restarta =====
+
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                     Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+
+        for (long id : ids) {
+            replay(openSegment(id));
+        }
+
+        if (segments.isEmpty()) {
+            active = openSegment(0);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+    }
+
+    private void replay(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int position = 0;
+
+        while (position + HEADER_SIZE <= capacity && buffer.getInt(position) == MAGIC) {
+            int keyLength = buffer.getInt(position + 4);
+            int dataLength = buffer.getInt(position + 8);
+            if (keyLength <= 0 || dataLength < TOMBSTONE
+                    || (long) position + HEADER_SIZE + keyLength + Math.max(dataLength, 0) > capacity) {
+                break; // oštećen zapis - sve iza njega se ignoriše i prepisuje
+            }
+
+            byte[] key = new byte[keyLength];
+            buffer.get(position + HEADER_SIZE, key);
+            String filename = new String(key, StandardCharsets.UTF_8);
+            int offset = position + HEADER_SIZE + keyLength;
+
+            if (dataLength == TOMBSTONE) {
+                removeFromIndex(filename);
+            } else {
+                putInIndex(filename, new Slot(segment.id, offset, dataLength));
+            }
+            position = offset + Math.max(dataLength, 0);
+        }
+
+        segment.writePosition = position;
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentBytes);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        Segment segment = new Segment(id, path, channel, buffer);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private ByteBuffer slice(int offset, int length) {
+            return buffer.slice(offset, length).asReadOnlyBuffer();
+        }
+    }
+
+    private record Slot(long segmentId, int offset, int length) {}
+}
@@ -3,19 +3,30 @@ package com.example.backend.services;
 import com.example.backend.config.GeolocationConfig;
 import com.example.backend.model.Video;
 import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.VideoSpatialIndex.NearbyVideo;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Pretraga videa u blizini. Kandidate u radijusu daje VideoSpatialIndex (memorija),
+ * a iz baze se učitavaju samo ti videi, jednim upitom po id-jevima.
+ */
 @Service
 public class NearbyVideoService {
 
     private final VideoRepository videoRepository;
+    private final VideoSpatialIndex videoSpatialIndex;
     private final GeolocationConfig geolocationConfig;
 
     public NearbyVideoService(VideoRepository videoRepository,
+                              VideoSpatialIndex videoSpatialIndex,
                               GeolocationConfig geolocationConfig) {
         this.videoRepository = videoRepository;
+        this.videoSpatialIndex = videoSpatialIndex;
         this.geolocationConfig = geolocationConfig;
     }
 
@@ -27,10 +38,8 @@ public class NearbyVideoService {
         // Ako je radiusKm null, stavi default npr. 10km
         double validatedRadiusKm = (radiusKm != null) ? geolocationConfig.validateRadius(radiusKm) : 10.0;
 
-        // Pretvaranje km u metre: 10km -> 10000m
-        double radiusMeters = geolocationConfig.kmToMeters(validatedRadiusKm);
-
-        return videoRepository.findVideosNearby(latitude, longitude, radiusMeters);
+        // Sortirano po udaljenosti
+        return loadVideos(videoSpatialIndex.findWithinRadius(latitude, longitude, validatedRadiusKm));
     }
 
     public List<Video> findPopularVideosNearby(Double latitude, Double longitude,
@@ -40,11 +49,25 @@ public class NearbyVideoService {
         }
 
         double validatedRadiusKm = geolocationConfig.validateRadius(radiusKm);
-        double radiusMeters = geolocationConfig.kmToMeters(validatedRadiusKm);
         int validatedLimit = (limit != null && limit > 0) ? limit : 20;
 
-        return videoRepository.findPopularVideosNearby(
-                latitude, longitude, radiusMeters, validatedLimit
-        );
+        // Po popularnosti, pa po udaljenosti - iz tile-ova ćelija u radijusu
+        return loadVideos(videoSpatialIndex.findPopularWithinRadius(
+                latitude, longitude, validatedRadiusKm, validatedLimit));
+    }
+
+    private List<Video> loadVideos(List<NearbyVideo> nearby) {
+        if (nearby.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Video> videos = videoRepository.findByIdIn(nearby.stream().map(NearbyVideo::videoId).toList())
+                .stream()
+                .collect(Collectors.toMap(Video::getId, Function.identity()));
+
+        // Video obrisan posle upisa u indeks se preskače
+        return nearby.stream()
+                .map(hit -> videos.get(hit.videoId()))
+                .filter(video -> video != null)
+                .toList();
     }
-}
\ No newline at end of file
+}
@@ -1,70 +1,197 @@
 package com.example.backend.services;
 
 import com.example.backend.model.Video;
-import com.example.backend.repository.CommentRepository;
-import com.example.backend.repository.VideoLikeRepository;
 import com.example.backend.repository.VideoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Popularity score = (views * 1 + likes * 5 + comments * 10) * 2^(-starost / 7 dana)
+ *
+ * Inkrementalni preračun umesto periodičnog skeniranja cele tabele:
+ * - pregledi, lajkovi i komentari samo označe video kao "dirty" (markDirty)
+ * - rescoreDirtyVideos preračunava samo označene videe; lajkovi i komentari se čitaju
+ *   iz denormalizovanih brojača na Video, bez COUNT upita
+ * - vremenski decay se primenjuje na sve videe jednim UPDATE-om (score * faktor),
+ *   jer je eksponencijalni decay za isti protekli period isti faktor za svaki video
+ *
+ * - svaki preračun se odmah upisuje i u TrendingIndexService, koji služi /trending iz memorije,
+ *   i u VideoSpatialIndex, čiji tile-ovi služe popularne videe u blizini
+ * - reconcileEngagementCounters periodično ispravlja brojače koji su se razišli sa tabelama
+ *
+ * Svi sačuvani score-ovi su izračunati na isti trenutak (decayReference), pa su
+ * međusobno uporedivi i kad se dirty videi preračunavaju između dva decay-a.
+ */
 @Service
 public class PopularityCalculationService {
 
     private final VideoRepository videoRepository;
-    private final VideoLikeRepository videoLikeRepository;
-    private final CommentRepository commentRepository;
+    private final TrendingIndexService trendingIndexService;
+    private final VideoSpatialIndex videoSpatialIndex;
     private static final double VIEW_WEIGHT = 1.0;
     private static final double LIKE_WEIGHT = 5.0;
     private static final double COMMENT_WEIGHT = 10.0;
+    private static final double HALF_LIFE_DAYS = 7.0;
+
+    // Maksimalan broj ID-jeva u jednom IN (...) upitu
+    private static final int RESCORE_CHUNK_SIZE = 1000;
+
+    // Videi sa novim engagement-om od poslednjeg preračuna
+    private final Set<Long> dirtyVideoIds = ConcurrentHashMap.newKeySet();
+
+    // Trenutak do kog je decay primenjen na sve sačuvane score-ove
+    private volatile LocalDateTime decayReference = LocalDateTime.now();
+    private final Object scoreLock = new Object();
 
     public PopularityCalculationService(VideoRepository videoRepository,
-                                        VideoLikeRepository videoLikeRepository,
-                                        CommentRepository commentRepository) {
+                                        TrendingIndexService trendingIndexService,
+                                        VideoSpatialIndex videoSpatialIndex) {
         this.videoRepository = videoRepository;
-        this.videoLikeRepository = videoLikeRepository;
-        this.commentRepository = commentRepository;
+        this.trendingIndexService = trendingIndexService;
+        this.videoSpatialIndex = videoSpatialIndex;
     }
 
     public double calculatePopularityScore(Video video) {
-        long viewCount = video.getViewCount();
-        long likeCount = videoLikeRepository.countByVideo(video);
-        long commentCount = commentRepository.countByVideo(video);
-        double engagementScore = (viewCount * VIEW_WEIGHT) +
+        //  noviji videi dobijaju boost
+        return engagementScore(video) * calculateTimeDecay(video.getCreatedAt(), LocalDateTime.now());
+    }
+
+    private double engagementScore(Video video) {
+        return engagementScore(video.getViewCount(), video.getLikeCount(), video.getCommentCount());
+    }
+
+    private double engagementScore(long viewCount, long likeCount, long commentCount) {
+        return (viewCount * VIEW_WEIGHT) +
                 (likeCount * LIKE_WEIGHT) +
                 (commentCount * COMMENT_WEIGHT);
+    }
 
-        //  noviji videi dobijaju boost
-        double timeDecay = calculateTimeDecay(video.getCreatedAt());
+    private double calculateTimeDecay(LocalDateTime createdAt, LocalDateTime reference) {
+        double daysOld = Duration.between(createdAt, reference).toSeconds() / 86400.0;
 
-        return engagementScore * timeDecay;
+        // Eksponencijalni decay: 2^(-daysOld / halfLife)
+        return Math.pow(2, -daysOld / HALF_LIFE_DAYS);
     }
 
-    private double calculateTimeDecay(LocalDateTime createdAt) {
-        long hoursOld = Duration.between(createdAt, LocalDateTime.now()).toHours();
-        double daysOld = hoursOld / 24.0;
+    /**
+     * Označi video za preračun (novi pregled, lajk ili komentar)
+     */
+    public void markDirty(Long videoId) {
+        dirtyVideoIds.add(videoId);
+    }
 
-        // Eksponencijalni decay: 2^(-daysOld / halfLife)
-        double halfLifeDays = 7.0;
-        return Math.pow(2, -daysOld / halfLifeDays);
+    public int getDirtyCount() {
+        return dirtyVideoIds.size();
     }
 
-    @Scheduled(fixedRate = 900000) // 15 minuta
+    /**
+     * Preračunaj score samo za videe koji su imali engagement od poslednjeg preračuna.
+     * Za K videa: jedan findByIdIn po chunk-u, brojači su već na Video redu.
+     */
+    @Scheduled(fixedDelayString = "${app.popularity.rescore-interval-ms:30000}")
     @Transactional
-    public void updateAllPopularityScores() {
-        List<Video> videos = videoRepository.findAll();
+    public void rescoreDirtyVideos() {
+        synchronized (scoreLock) {
+            List<Long> ids = new ArrayList<>(dirtyVideoIds);
+            if (ids.isEmpty()) {
+                return;
+            }
+            dirtyVideoIds.removeAll(ids);
 
-        for (Video video : videos) {
-            double score = calculatePopularityScore(video);
-            video.setPopularityScore(score);
+            try {
+                for (int from = 0; from < ids.size(); from += RESCORE_CHUNK_SIZE) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + RESCORE_CHUNK_SIZE, ids.size()));
+                    List<Video> videos = videoRepository.findByIdIn(chunk);
+                    applyScores(videos, decayReference);
+                    videoRepository.saveAll(videos);
+                    trendingIndexService.update(videos);
+                    videoSpatialIndex.updateScores(videos);
+                }
+            } catch (RuntimeException e) {
+                // pokušaj ponovo pri sledećem preračunu
+                dirtyVideoIds.addAll(ids);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Primeni decay za period od poslednjeg poziva na sve videe jednim UPDATE-om.
+     */
+    @Scheduled(fixedDelayString = "${app.popularity.decay-interval-ms:900000}",
+               initialDelayString = "${app.popularity.decay-interval-ms:900000}")
+    @Transactional
+    public void applyTimeDecay() {
+        synchronized (scoreLock) {
+            LocalDateTime now = LocalDateTime.now();
+            double factor = calculateTimeDecay(decayReference, now);
+            int updated = videoRepository.scalePopularityScores(factor);
+            trendingIndexService.scaleScores(factor);
+            videoSpatialIndex.scaleScores(factor);
+            decayReference = now;
+            System.out.println("Applied popularity decay (x" + factor + ") to " + updated + " videos");
+        }
+    }
+
+    /**
+     * Ispravi denormalizovane brojače lajkova/komentara koji se razlikuju od stvarnog broja redova
+     * (npr. ručne izmene u bazi ili redovi upisani mimo servisa). Ispravljeni videi se označavaju za preračun.
+     *
+     * @return broj videa čiji je bar jedan brojač ispravljen
+     */
+    @Scheduled(fixedDelayString = "${app.popularity.reconcile-interval-ms:3600000}",
+               initialDelayString = "${app.popularity.reconcile-interval-ms:3600000}")
+    @Transactional
+    public int reconcileEngagementCounters() {
+        List<Long> likeDrift = videoRepository.findIdsWithLikeCountDrift();
+        List<Long> commentDrift = videoRepository.findIdsWithCommentCountDrift();
+
+        for (int from = 0; from < likeDrift.size(); from += RESCORE_CHUNK_SIZE) {
+            videoRepository.recountLikes(likeDrift.subList(from, Math.min(from + RESCORE_CHUNK_SIZE, likeDrift.size())));
+        }
+        for (int from = 0; from < commentDrift.size(); from += RESCORE_CHUNK_SIZE) {
+            videoRepository.recountComments(commentDrift.subList(from, Math.min(from + RESCORE_CHUNK_SIZE, commentDrift.size())));
+        }
+
+        Set<Long> repaired = new LinkedHashSet<>(likeDrift);
+        repaired.addAll(commentDrift);
+        repaired.forEach(this::markDirty);
+        if (!repaired.isEmpty()) {
+            System.out.println("Reconciled like/comment counters for " + repaired.size() + " videos");
         }
+        return repaired.size();
+    }
 
-        videoRepository.saveAll(videos);
-        System.out.println("Updated popularity scores for " + videos.size() + " videos");
+    /**
+     * Kompletan preračun svih videa (pri startu aplikacije, ili ručno).
+     * Prvo se ispravljaju brojači, pa se score računa iz njih bez COUNT upita po videu.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void updateAllPopularityScores() {
+        synchronized (scoreLock) {
+            reconcileEngagementCounters();
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Video> videos = videoRepository.findAll();
+            applyScores(videos, now);
+            videoRepository.saveAll(videos);
+            decayReference = now;
+            trendingIndexService.rebuild();
+            videoSpatialIndex.rebuild();
+            System.out.println("Updated popularity scores for " + videos.size() + " videos");
+        }
     }
 
     @Transactional
@@ -72,8 +199,15 @@ public class PopularityCalculationService {
         Video video = videoRepository.findById(videoId)
                 .orElseThrow(() -> new IllegalArgumentException("Video not found"));
 
-        double score = calculatePopularityScore(video);
-        video.setPopularityScore(score);
+        video.setPopularityScore(engagementScore(video) * calculateTimeDecay(video.getCreatedAt(), decayReference));
         videoRepository.save(video);
+        trendingIndexService.update(video);
+        videoSpatialIndex.updateScores(List.of(video));
+    }
+
+    private void applyScores(List<Video> videos, LocalDateTime reference) {
+        for (Video video : videos) {
+            video.setPopularityScore(engagementScore(video) * calculateTimeDecay(video.getCreatedAt(), reference));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,287 @@
+package com.example.backend.services;
+
+import com.example.backend.config.UploadConfig;
+import com.example.backend.dto.CreateVideoRequest;
+import com.example.backend.dto.VideoResponse;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nastavljiv upload videa u chunk-ovima (po uzoru na tus protokol).
+ *
+ * 1. createSession - server određuje veličinu chunk-a i otvara delimičan fajl u direktorijumu videa
+ * 2. writeChunk - chunk se upisuje na svoju poziciju (FileChannel pozicioni upis), pa chunk-ovi
+ *    mogu da stižu paralelno i bilo kojim redom; checksum (Upload-Checksum) se računa tokom upisa
+ * 3. findSession/toResponse - koji chunk-ovi nedostaju i offset, da klijent posle prekida nastavi
+ *    tamo gde je stao umesto od nule
+ * 4. complete - proveri se thumbnail, pa fajl (MP4 magic bajtovi), preimenuje se u konačno ime
+ *    i kreira se Video; ako ne uspe iz razloga koji nije sadržaj videa, sesija ostaje za ponovni complete
+ *
+ * Sesije su u memoriji ove instance; posle restarta delimični fajlovi se brišu i upload
+ * kreće ispočetka. Neaktivne sesije se brišu posle session-ttl-minutes.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // tus checksum ekstenzija: "Upload-Checksum: <algoritam> <base64>"
+    private static final Map<String, String> CHECKSUM_ALGORITHMS = Map.of(
+            "sha256", "SHA-256",
+            "sha1", "SHA-1",
+            "md5", "MD5"
+    );
+
+    private final FileStorageService fileStorageService;
+    private final VideoService videoService;
+    private final UploadConfig config;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ResumableUploadService(FileStorageService fileStorageService,
+                                  VideoService videoService,
+                                  UploadConfig config) {
+        this.fileStorageService = fileStorageService;
+        this.videoService = videoService;
+        this.config = config;
+    }
+
+    public UploadSession createSession(String userEmail, long totalSize) throws IOException {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("Upload-Length must be positive");
+        }
+        if (totalSize > FileStorageService.MAX_VIDEO_SIZE) {
+            throw new IllegalArgumentException("File size exceeds 200MB limit");
+        }
+        if (sessions.size() >= config.getMaxActiveSessions()) {
+            throw new IllegalStateException("Too many active uploads, try again later");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path partialPath = fileStorageService.partialVideoPath(uploadId);
+        FileChannel channel = FileChannel.open(partialPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        UploadSession session = new UploadSession(uploadId, userEmail, totalSize, config.getChunkSize(),
+                partialPath, channel);
+        sessions.put(uploadId, session);
+        return session;
+    }
+
+    /**
+     * Sesija sa datim id-jem koja pripada korisniku; tuđa sesija se ne razlikuje od nepostojeće.
+     */
+    public Optional<UploadSession> findSession(String uploadId, String userEmail) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.getUserEmail().equals(userEmail)) {
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+
+    /**
+     * Upis jednog chunk-a direktno iz request stream-a na njegovu poziciju u fajlu.
+     * Chunk mora imati tačnu dužinu (samo poslednji je kraći) i checksum koji je klijent poslao;
+     * u suprotnom se ne računa kao primljen.
+     */
+    public void writeChunk(UploadSession session, int index, InputStream in, String checksumHeader)
+            throws IOException {
+        ExpectedChecksum expected = parseChecksum(checksumHeader);
+        session.beginChunk(index);
+        boolean success = false;
+        try {
+            long position = session.chunkOffset(index);
+            long expectedLength = session.chunkLength(index);
+            FileChannel channel = session.getChannel();
+
+            byte[] chunk = new byte[WRITE_BUFFER_SIZE];
+            long written = 0;
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                if (written + n > expectedLength) {
+                    throw new IllegalArgumentException("Chunk " + index + " is larger than " + expectedLength + " bytes");
+                }
+                expected.digest.update(chunk, 0, n);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, position + written);
+                }
+            }
+            if (written != expectedLength) {
+                throw new IllegalArgumentException("Chunk " + index + " has " + written
+                        + " bytes, expected " + expectedLength);
+            }
+            if (!MessageDigest.isEqual(expected.digest.digest(), expected.value)) {
+                throw new ChecksumMismatchException("Checksum mismatch for chunk " + index);
+            }
+            success = true;
+        } finally {
+            session.endChunk(index, success);
+        }
+    }
+
+    /**
+     * Završetak upload-a: delimičan fajl postaje video i kreira se Video entitet.
+     * Upload se odbacuje samo ako fajl nije MP4. Za svaku drugu grešku (neispravni metapodaci
+     * ili thumbnail, nepostojeći korisnik, greška baze) fajl se vraća pod delimično ime,
+     * sesija ostaje i complete se može ponoviti.
+     */
+    public VideoResponse complete(UploadSession session, CreateVideoRequest request, MultipartFile thumbnailFile,
+                                  HttpServletRequest httpRequest) throws IOException {
+        if (request.getTitle() == null || request.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Title is required");
+        }
+        if (thumbnailFile == null || thumbnailFile.isEmpty()) {
+            throw new IllegalArgumentException("Thumbnail image is required");
+        }
+        session.beginComplete();
+
+        String videoPath = null;
+        String thumbnailPath = null;
+        boolean created = false;
+        boolean notVideo = false;
+        try {
+            // Thumbnail pre videa: neispravna slika ne sme da odbaci već primljen video
+            thumbnailPath = fileStorageService.uploadThumbnail(thumbnailFile);
+
+            session.getChannel().force(true);
+            session.close();
+            try {
+                videoPath = fileStorageService.promotePartialVideo(session.getPartialPath());
+            } catch (IllegalArgumentException e) {
+                notVideo = true;
+                throw e;
+            }
+
+            VideoResponse video = videoService.createVideoFromStoredFiles(
+                    request, videoPath, thumbnailPath, session.getUserEmail(), httpRequest);
+            created = true;
+            return video;
+        } finally {
+            if (created) {
+                sessions.remove(session.getUploadId());
+            } else {
+                if (thumbnailPath != null) fileStorageService.deleteFile(thumbnailPath, false);
+                if (notVideo) {
+                    discard(session, null);
+                } else {
+                    keepForRetry(session, videoPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * Vrati preimenovan fajl pod delimično ime i otključaj sesiju za ponovni complete.
+     * Ako to ne uspe, upload se odbacuje.
+     */
+    private void keepForRetry(UploadSession session, String videoPath) {
+        try {
+            if (videoPath != null) {
+                fileStorageService.restorePartialVideo(videoPath, session.getPartialPath());
+            }
+            session.reopen();
+            session.cancelComplete();
+        } catch (IOException e) {
+            System.err.println("Could not keep upload " + session.getUploadId() + " for retry: " + e.getMessage());
+            discard(session, videoPath);
+        }
+    }
+
+    private void discard(UploadSession session, String videoPath) {
+        sessions.remove(session.getUploadId());
+        session.close();
+        try {
+            Files.deleteIfExists(session.getPartialPath());
+        } catch (IOException e) {
+            System.err.println("Could not delete upload " + session.getUploadId() + ": " + e.getMessage());
+        }
+        if (videoPath != null) fileStorageService.deleteFile(videoPath, true);
+    }
+
+    public void abort(UploadSession session) throws IOException {
+        if (sessions.remove(session.getUploadId(), session)) {
+            session.close();
+            Files.deleteIfExists(session.getPartialPath());
+        }
+    }
+
+    public long getSessionTtlMinutes() {
+        return config.getSessionTtlMinutes();
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Brisanje napuštenih upload-a (klijent nije poslao ništa session-ttl-minutes).
+     */
+    @Scheduled(fixedDelayString = "${app.upload.cleanup-interval-ms:600000}")
+    public void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - config.getSessionTtlMinutes() * 60_000L;
+        for (UploadSession session : sessions.values()) {
+            if (session.expireIfIdle(cutoff)) {
+                try {
+                    abort(session);
+                    System.out.println("Expired idle upload " + session.getUploadId());
+                } catch (IOException e) {
+                    System.err.println("Could not delete expired upload " + session.getUploadId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Sesije ne preživljavaju restart, pa ni njihovi delimični fajlovi
+        for (UploadSession session : sessions.values()) {
+            try {
+                abort(session);
+            } catch (IOException e) {
+                System.err.println("Could not delete upload " + session.getUploadId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static ExpectedChecksum parseChecksum(String header) {
+        if (header == null || header.isBlank()) {
+            throw new IllegalArgumentException("Upload-Checksum header is required");
+        }
+        String[] parts = header.trim().split("\\s+");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Upload-Checksum must be '<algorithm> <base64 digest>'");
+        }
+        String algorithm = CHECKSUM_ALGORITHMS.get(parts[0].toLowerCase(Locale.ROOT));
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unsupported checksum algorithm: " + parts[0]
+                    + " (supported: " + String.join(", ", CHECKSUM_ALGORITHMS.keySet()) + ")");
+        }
+        try {
+            return new ExpectedChecksum(MessageDigest.getInstance(algorithm), Base64.getDecoder().decode(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Upload-Checksum digest is not valid base64");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    private record ExpectedChecksum(MessageDigest digest, byte[] value) {}
+}
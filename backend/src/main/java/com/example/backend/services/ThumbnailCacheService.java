@@ -1,60 +1,225 @@
 package com.example.backend.services;
 
+import com.example.backend.config.ThumbnailCacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Simple in-memory cache za thumbnail slike
- * Umesto da se svaki put čita sa file sistema, keširamo u memoriji
+ * In-memory keš za thumbnail slike, ograničen ukupnom veličinom u bajtovima.
+ * Umesto da se svaki put čita sa file sistema, keširamo u memoriji.
+ *
+ * - Caffeine W-TinyLFU politika odlučuje šta se prima u keš i šta se izbacuje
+ * - Težina svakog unosa je veličina slike u bajtovima (app.thumbnail-cache.max-bytes)
+ * - Istovremeni zahtevi za isti thumbnail čitaju fajl samo jednom (single-flight)
+ * - Hit/miss/eviction metrike se izvoze kroz Micrometer (cache_* sa tagom cache="thumbnails")
+ *
+ * U modu app.thumbnail-cache.mode=mapped thumbnail-i se ne drže na heap-u nego u
+ * memorijski mapiranim segment fajlovima (MappedThumbnailStore). Endpoint tada šalje
+ * slice direktno iz mapirane memorije, a keš je topao odmah posle restarta.
  */
 @Service
 public class ThumbnailCacheService {
 
-    private final ConcurrentHashMap<String, byte[]> cache = new ConcurrentHashMap<>();
     private final FileStorageService fileStorageService;
 
-    public ThumbnailCacheService(FileStorageService fileStorageService) {
+    // heap mod
+    private final Cache<String, byte[]> cache;
+
+    // mapped mod
+    private final MappedThumbnailStore mappedStore;
+    private final ConcurrentHashMap<String, CompletableFuture<ByteBuffer>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder mappedHits = new LongAdder();
+    private final LongAdder mappedMisses = new LongAdder();
+
+    public ThumbnailCacheService(FileStorageService fileStorageService,
+                                 ThumbnailCacheConfig config,
+                                 MeterRegistry meterRegistry) {
         this.fileStorageService = fileStorageService;
+
+        if (config.isMapped()) {
+            this.cache = null;
+            try {
+                this.mappedStore = new MappedThumbnailStore(Paths.get(config.getSegmentDir()),
+                        config.getSegmentBytes(), config.getMaxBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open thumbnail segment store", e);
+            }
+            System.out.println("Thumbnail store: " + mappedStore.size() + " thumbnails recovered from "
+                    + mappedStore.getSegmentCount() + " segments");
+
+            FunctionCounter.builder("cache.gets", mappedHits, LongAdder::sum)
+                    .tags("cache", "thumbnails", "result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.gets", mappedMisses, LongAdder::sum)
+                    .tags("cache", "thumbnails", "result", "miss")
+                    .register(meterRegistry);
+            Gauge.builder("cache.size", mappedStore, MappedThumbnailStore::size)
+                    .tags("cache", "thumbnails")
+                    .register(meterRegistry);
+        } else {
+            this.mappedStore = null;
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(config.getMaxBytes())
+                    .weigher((String filename, byte[] data) -> data.length)
+                    .expireAfterAccess(Duration.ofMinutes(config.getExpireAfterAccessMinutes()))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "thumbnails");
+        }
+
+        Gauge.builder("thumbnail_cache_bytes", this, ThumbnailCacheService::getCacheBytes)
+                .description("Ukupna veličina thumbnail-a u kešu (bajtovi)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     /**
-     * Dobavi thumbnail iz keša, ili učitaj sa file sistema i keširaj
+     * Dobavi thumbnail iz keša, ili učitaj sa file sistema i keširaj.
+     * Caffeine garantuje da se loader za isti ključ izvršava samo jednom,
+     * ostale niti čekaju na isti rezultat.
      */
     public byte[] getThumbnail(String filename) throws IOException {
-        // Prvo proveri keš
-        if (cache.containsKey(filename)) {
-            return cache.get(filename);
+        if (mappedStore != null) {
+            ByteBuffer buffer = getThumbnailBuffer(filename);
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            return data;
+        }
+        try {
+            return cache.get(filename, key -> {
+                try {
+                    return fileStorageService.loadFile(key, false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Dobavi thumbnail kao read-only ByteBuffer (za slanje bez kopiranja na heap).
+     * U mapped modu to je slice nad mapiranim segmentom, u heap modu omotač oko keširanog niza.
+     */
+    public ByteBuffer getThumbnailBuffer(String filename) throws IOException {
+        if (mappedStore == null) {
+            return ByteBuffer.wrap(getThumbnail(filename)).asReadOnlyBuffer();
         }
 
-        // Ako nije u kešu, učitaj sa file sistema
-        byte[] thumbnailData = fileStorageService.loadFile(filename, false);
+        ByteBuffer stored = mappedStore.get(filename);
+        if (stored != null) {
+            mappedHits.increment();
+            return stored;
+        }
 
-        // Keširaj za sledeći put
-        cache.put(filename, thumbnailData);
+        // Single-flight: samo prva nit čita fajl, ostale čekaju isti rezultat
+        CompletableFuture<ByteBuffer> loading = new CompletableFuture<>();
+        CompletableFuture<ByteBuffer> existing = inFlight.putIfAbsent(filename, loading);
+        if (existing != null) {
+            mappedHits.increment();
+            return awaitLoad(existing);
+        }
 
-        return thumbnailData;
+        mappedMisses.increment();
+        try {
+            stored = mappedStore.get(filename);
+            if (stored == null) {
+                stored = mappedStore.put(filename, fileStorageService.loadFile(filename, false));
+            }
+            loading.complete(stored);
+            return stored.duplicate();
+        } catch (IOException | RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(filename, loading);
+        }
+    }
+
+    private ByteBuffer awaitLoad(CompletableFuture<ByteBuffer> loading) throws IOException {
+        try {
+            return loading.join().duplicate();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
     }
 
     /**
      * Briši thumbnail iz keša
      */
     public void evict(String filename) {
-        cache.remove(filename);
+        if (mappedStore == null) {
+            cache.invalidate(filename);
+            return;
+        }
+        try {
+            mappedStore.remove(filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Očisti kompletan keš
      */
     public void clearCache() {
-        cache.clear();
+        if (mappedStore == null) {
+            cache.invalidateAll();
+            return;
+        }
+        try {
+            mappedStore.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Dobavi veličinu keša (za monitoring)
      */
     public int getCacheSize() {
-        return cache.size();
+        if (mappedStore != null) {
+            return mappedStore.size();
+        }
+        return (int) cache.estimatedSize();
+    }
+
+    /**
+     * Ukupna veličina keširanih thumbnail-a u bajtovima (za monitoring)
+     */
+    public long getCacheBytes() {
+        if (mappedStore != null) {
+            return mappedStore.getLiveBytes();
+        }
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (mappedStore != null) {
+            mappedStore.close();
+        }
     }
 }
@@ -0,0 +1,64 @@
+package com.example.backend.services;
+
+import java.util.Locale;
+
+/**
+ * Unapred renderovane veličine thumbnail-a (?size= na /api/videos/{id}/thumbnail).
+ * LARGE se čuva pod osnovnim imenom fajla (kao i pre uvođenja varijanti),
+ * ostale pod imenom sa sufiksom, npr. abc_320x180.jpg.
+ */
+public enum ThumbnailSize {
+
+    SMALL(160, 90),
+    MEDIUM(320, 180),
+    LARGE(640, 360);
+
+    private final int width;
+    private final int height;
+
+    ThumbnailSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Ime fajla varijante za osnovno ime thumbnail-a.
+     */
+    public String fileName(String baseFilename) {
+        if (this == LARGE) {
+            return baseFilename;
+        }
+        int dot = baseFilename.lastIndexOf('.');
+        String name = dot > 0 ? baseFilename.substring(0, dot) : baseFilename;
+        String extension = dot > 0 ? baseFilename.substring(dot) : "";
+        return name + "_" + width + "x" + height + extension;
+    }
+
+    /**
+     * Veličina iz query parametra: ime (small), širina (160) ili dimenzije (160x90).
+     * Bez parametra se vraća LARGE.
+     */
+    public static ThumbnailSize fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return LARGE;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (ThumbnailSize size : values()) {
+            if (normalized.equals(size.name().toLowerCase(Locale.ROOT))
+                    || normalized.equals(String.valueOf(size.width))
+                    || normalized.equals(size.width + "x" + size.height)) {
+                return size;
+            }
+        }
+        throw new IllegalArgumentException("Unknown thumbnail size: " + value
+                + " (allowed: small/160x90, medium/320x180, large/640x360)");
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.backend.services;
+
+import com.example.backend.config.TrendingConfig;
+import com.example.backend.dto.VideoResponse;
+import com.example.backend.model.Video;
+import com.example.backend.repository.VideoRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Rang lista najpopularnijih videa u memoriji.
+ *
+ * Drži se najviše index-capacity videa u ConcurrentSkipListSet-u sortiranom po score-u,
+ * zajedno sa podacima potrebnim za VideoResponse, pa se /trending?limit=N služi
+ * čitanjem prvih N elemenata - O(N), bez upita ka bazi.
+ *
+ * Ažurira ga PopularityCalculationService pri svakom preračunu score-a; vremenski decay
+ * je isti faktor za sve videe, pa ne menja redosled i primenjuje se kao jedan množilac
+ * (scoreScale) umesto da se dira svaki element. Pri startu aplikacije se puni iz baze.
+ */
+@Service
+public class TrendingIndexService {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble(Entry::rawScore).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::videoId).reversed());
+
+    private final VideoRepository videoRepository;
+    private final int capacity;
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // score = rawScore * scoreScale; decay menja samo scoreScale
+    private volatile double scoreScale = 1.0;
+    private final Object scaleLock = new Object();
+
+    public TrendingIndexService(VideoRepository videoRepository, TrendingConfig config) {
+        this.videoRepository = videoRepository;
+        this.capacity = config.getIndexCapacity();
+    }
+
+    /**
+     * Top N dostupnih videa po popularnosti. Zakazani videi se preskaču dok ne postanu dostupni.
+     */
+    public List<VideoResponse> getTop(int limit) {
+        List<VideoResponse> top = new ArrayList<>(Math.min(limit, capacity));
+        double scale = scoreScale;
+        for (Entry entry : ranking) {
+            if (top.size() >= limit) {
+                break;
+            }
+            // entry može biti zamenjen novijim između čitanja rang liste i mape
+            if (entries.get(entry.videoId()) != entry) {
+                continue;
+            }
+            VideoResponse video = entry.toResponse(entry.rawScore() * scale);
+            if (video.isAvailable()) {
+                top.add(video);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Upiši nove score-ove i podatke za videe (posle preračuna popularnosti).
+     * Video mora imati učitanog autora (user).
+     */
+    public void update(Collection<Video> videos) {
+        for (Video video : videos) {
+            update(video);
+        }
+    }
+
+    public void update(Video video) {
+        double scale = scoreScale;
+        Entry entry = Entry.of(video, video.getPopularityScore() / scale);
+        entries.compute(video.getId(), (id, previous) -> {
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+            ranking.add(entry);
+            return entry;
+        });
+        evictOverCapacity();
+    }
+
+    public void remove(Long videoId) {
+        entries.computeIfPresent(videoId, (id, previous) -> {
+            ranking.remove(previous);
+            return null;
+        });
+    }
+
+    /**
+     * Decay primenjen na sve score-ove u bazi - redosled ostaje isti, menja se samo množilac.
+     */
+    public void scaleScores(double factor) {
+        synchronized (scaleLock) {
+            scoreScale *= factor;
+            if (scoreScale < 1e-100) {
+                // sprečava underflow posle dugog rada bez restarta
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Napuni indeks iz baze (top index-capacity po popularityScore).
+     */
+    public void rebuild() {
+        synchronized (scaleLock) {
+            List<VideoResponse> top = videoRepository.findTrendingSnapshot(PageRequest.of(0, capacity));
+            entries.clear();
+            ranking.clear();
+            scoreScale = 1.0;
+            for (VideoResponse video : top) {
+                Entry entry = Entry.of(video, video.getPopularityScore());
+                entries.put(entry.videoId(), entry);
+                ranking.add(entry);
+            }
+            System.out.println("Trending index rebuilt with " + top.size() + " videos");
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictOverCapacity() {
+        while (entries.size() > capacity) {
+            Entry last = ranking.pollLast();
+            if (last == null) {
+                return;
+            }
+            entries.remove(last.videoId(), last);
+        }
+    }
+
+    /**
+     * Nepromenljiv snimak videa u indeksu; VideoResponse se pravi pri svakom čitanju
+     * da bi dostupnost zakazanih videa bila računata u trenutku zahteva.
+     */
+    private record Entry(long videoId, double rawScore, VideoResponse data) {
+
+        static Entry of(Video video, double rawScore) {
+            return new Entry(video.getId(), rawScore, new VideoResponse(video, video.getLikeCount()));
+        }
+
+        static Entry of(VideoResponse video, double rawScore) {
+            return new Entry(video.getId(), rawScore, video);
+        }
+
+        VideoResponse toResponse(double score) {
+            return new VideoResponse(data.getId(), data.getTitle(), data.getDescription(), data.getTags(),
+                    data.getLocation(), data.getCreatedAt(), data.getViewCount(), data.getUsername(),
+                    data.getUserId(), data.getLikeCount(), score, data.getLatitude(), data.getLongitude(),
+                    data.getScheduledAt());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.UploadSessionResponse;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Jedna nastavljiva upload sesija: delimičan fajl i koji chunk-ovi su primljeni.
+ *
+ * Chunk-ovi se upisuju pozicionim FileChannel.write(buffer, position) pozivima, pa više
+ * chunk-ova može da se upisuje paralelno preko istog kanala. Stanje chunk-ova menjaju
+ * zahtevi za različite chunk-ove istovremeno, zato su metode koje ga diraju sinhronizovane.
+ */
+public class UploadSession {
+
+    private final String uploadId;
+    private final String userEmail;
+    private final long totalSize;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final Path partialPath;
+    private volatile FileChannel channel;
+
+    private final BitSet received;
+    private final BitSet inFlight;
+    private boolean completing;
+    private boolean expired;
+    private volatile long lastActivityMillis = System.currentTimeMillis();
+
+    UploadSession(String uploadId, String userEmail, long totalSize, int chunkSize,
+                  Path partialPath, FileChannel channel) {
+        this.uploadId = uploadId;
+        this.userEmail = userEmail;
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((totalSize + chunkSize - 1) / chunkSize);
+        this.partialPath = partialPath;
+        this.channel = channel;
+        this.received = new BitSet(chunkCount);
+        this.inFlight = new BitSet(chunkCount);
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    Path getPartialPath() {
+        return partialPath;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Pozicija chunk-a u fajlu.
+     */
+    long chunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    /**
+     * Tačna dužina chunk-a; samo poslednji može biti kraći od chunkSize.
+     */
+    long chunkLength(int index) {
+        return Math.min(chunkSize, totalSize - chunkOffset(index));
+    }
+
+    /**
+     * Zauzmi chunk za upis. Ponovno slanje već primljenog chunk-a je dozvoljeno (klijent
+     * nije dobio odgovor), ali se chunk smatra neprimljenim dok novi upis ne uspe.
+     */
+    synchronized void beginChunk(int index) {
+        if (index < 0 || index >= chunkCount) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (chunkCount - 1));
+        }
+        if (expired) {
+            throw new IllegalStateException("Upload has expired");
+        }
+        if (completing) {
+            throw new IllegalStateException("Upload is being completed");
+        }
+        if (inFlight.get(index)) {
+            throw new IllegalStateException("Chunk " + index + " is already being uploaded");
+        }
+        inFlight.set(index);
+        received.clear(index);
+        lastActivityMillis = System.currentTimeMillis();
+    }
+
+    synchronized void endChunk(int index, boolean success) {
+        inFlight.clear(index);
+        if (success) {
+            received.set(index);
+        }
+        lastActivityMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Prelazak u završavanje: svi chunk-ovi moraju biti primljeni i nijedan upis ne sme da traje.
+     */
+    synchronized void beginComplete() {
+        if (expired) {
+            throw new IllegalStateException("Upload has expired");
+        }
+        if (completing) {
+            throw new IllegalStateException("Upload is already being completed");
+        }
+        if (!inFlight.isEmpty()) {
+            throw new IllegalStateException("Chunks are still being uploaded");
+        }
+        if (received.cardinality() != chunkCount) {
+            throw new IllegalStateException("Upload is incomplete: " + (chunkCount - received.cardinality())
+                    + " of " + chunkCount + " chunks missing");
+        }
+        completing = true;
+    }
+
+    synchronized void cancelComplete() {
+        completing = false;
+    }
+
+    /**
+     * Označi sesiju kao isteklu ako od cutoff-a nije bilo aktivnosti i ništa ne radi nad njom.
+     * Provera i označavanje su pod istim lock-om, pa chunk ili complete koji stigne posle
+     * ne mogu da počnu nad fajlom koji se briše.
+     */
+    synchronized boolean expireIfIdle(long cutoffMillis) {
+        if (expired || completing || !inFlight.isEmpty() || lastActivityMillis > cutoffMillis) {
+            return false;
+        }
+        expired = true;
+        return true;
+    }
+
+    /**
+     * Ponovo otvori kanal posle neuspelog complete-a, da bi se chunk-ovi mogli ponovo slati.
+     */
+    synchronized void reopen() throws IOException {
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(partialPath, StandardOpenOption.WRITE);
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized UploadSessionResponse toResponse(long ttlMinutes) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        // Kao tus Upload-Offset: bajtovi primljeni redom od početka fajla
+        long offset = Math.min(totalSize, chunkOffset(received.nextClearBit(0)));
+        LocalDateTime expiresAt = LocalDateTime.now()
+                .plusMinutes(ttlMinutes)
+                .minusNanos((System.currentTimeMillis() - lastActivityMillis) * 1_000_000L);
+        return new UploadSessionResponse(uploadId, totalSize, chunkSize, chunkCount, offset, missing, expiresAt);
+    }
+}
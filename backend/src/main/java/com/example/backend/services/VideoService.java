@@ -1,61 +1,75 @@
 package com.example.backend.services;
 
 import com.example.backend.dto.CreateVideoRequest;
-import com.example.backend.dto.UserLocationResponse;
+import com.example.backend.dto.FeedCursor;
+import com.example.backend.dto.MediaValidators;
+import com.example.backend.dto.VideoFeedPage;
 import com.example.backend.dto.VideoResponse;
 import com.example.backend.model.User;
 import com.example.backend.model.Video;
 import com.example.backend.model.VideoLike;
-import com.example.backend.model.VideoView;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.repository.VideoLikeRepository;
 import com.example.backend.repository.VideoRepository;
-import com.example.backend.repository.VideoViewRepository;
 import com.example.backend.utils.IpUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class VideoService {
 
+    // Veličina strane feed-a (podrazumevana i gornja granica)
+    private static final int DEFAULT_FEED_SIZE = 20;
+    private static final int MAX_FEED_SIZE = 50;
+
     private final VideoRepository videoRepository;
     private final UserRepository userRepository;
     private final VideoLikeRepository videoLikeRepository;
-    private final VideoViewRepository videoViewRepository;
+    private final ViewCountBufferService viewCountBufferService;
     private final FileStorageService fileStorageService;
     private final ThumbnailCacheService thumbnailCacheService;
     private final PopularityCalculationService popularityCalculationService;
-    private final GeolocationService geolocationService;
+    private final LocationEnrichmentService locationEnrichmentService;
+    private final TrendingIndexService trendingIndexService;
+    private final VideoSpatialIndex videoSpatialIndex;
 
     public VideoService(VideoRepository videoRepository,
                         UserRepository userRepository,
                         VideoLikeRepository videoLikeRepository,
-                        VideoViewRepository videoViewRepository,
+                        ViewCountBufferService viewCountBufferService,
                         FileStorageService fileStorageService,
                         ThumbnailCacheService thumbnailCacheService,
                         PopularityCalculationService popularityCalculationService,
-                        GeolocationService geolocationService) {
+                        LocationEnrichmentService locationEnrichmentService,
+                        TrendingIndexService trendingIndexService,
+                        VideoSpatialIndex videoSpatialIndex) {
         this.videoRepository = videoRepository;
         this.userRepository = userRepository;
         this.videoLikeRepository = videoLikeRepository;
-        this.videoViewRepository = videoViewRepository;
+        this.viewCountBufferService = viewCountBufferService;
         this.fileStorageService = fileStorageService;
         this.thumbnailCacheService = thumbnailCacheService;
         this.popularityCalculationService = popularityCalculationService;
-        this.geolocationService = geolocationService;
+        this.locationEnrichmentService = locationEnrichmentService;
+        this.trendingIndexService = trendingIndexService;
+        this.videoSpatialIndex = videoSpatialIndex;
     }
 
     // ================= CREATE VIDEO =================
@@ -87,89 +101,140 @@ public class VideoService {
             videoPath = fileStorageService.uploadVideo(videoFile);
             thumbnailPath = fileStorageService.uploadThumbnail(thumbnailFile);
 
-            Video video = new Video(
-                    request.getTitle(),
-                    request.getDescription(),
-                    request.getTags(),
-                    thumbnailPath,
-                    videoPath,
-                    user,
-                    request.getLocation()
-            );
-
-            // Postavi zakazano vreme ako postoji
-            if (request.getScheduledAt() != null) {
-                video.setScheduledAt(request.getScheduledAt());
-            }
+            return saveVideo(request, videoPath, thumbnailPath, user, httpRequest);
 
-            // ========== NOVO: Postavi koordinate ==========
+        } catch (IOException e) {
+            if (videoPath != null) fileStorageService.deleteFile(videoPath, true);
+            if (thumbnailPath != null) fileStorageService.deleteFile(thumbnailPath, false);
+            throw new RuntimeException("Failed to upload files: " + e.getMessage(), e);
+        }
+    }
 
-            // Ako frontend poslao koordinate - koristi ih
-            if (request.hasValidCoordinates()) {
-                video.setLatitude(request.getLatitude());
-                video.setLongitude(request.getLongitude());
+    /**
+     * Kreiranje videa za fajlove koji su već upisani na disk (streaming upload, vidi
+     * FileStorageService.storeVideo). Transakcija ne obuhvata prenos fajlova; ako kreiranje
+     * ne uspe, pozivalac briše upisane fajlove.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public VideoResponse createVideoFromStoredFiles(
+            CreateVideoRequest request,
+            String videoPath,
+            String thumbnailPath,
+            String userEmail,
+            HttpServletRequest httpRequest) {
 
-                System.out.println("✅ Using coordinates from frontend: " +
-                        request.getLatitude() + ", " + request.getLongitude());
-            }
-            // Ako nije - koristi IP geolokaciju kao fallback
-            else {
-                String clientIp = IpUtil.getClientIp(httpRequest);
-                UserLocationResponse ipLocation = geolocationService.getLocationFromIp(clientIp);
-
-                if (ipLocation.hasValidLocation()) {
-                    video.setLatitude(ipLocation.getLatitude());
-                    video.setLongitude(ipLocation.getLongitude());
-
-                    System.out.println("⚠️ Using IP geolocation fallback: " +
-                            ipLocation.getLatitude() + ", " + ipLocation.getLongitude());
-
-                    // Opciono: Ažuriraj tekstualnu lokaciju ako frontend nije poslao
-                    if (request.getLocation() == null || request.getLocation().trim().isEmpty()) {
-                        String locationText = ipLocation.getCity() + ", " + ipLocation.getCountry();
-                        video.setLocation(locationText);
-                    }
-                } else {
-                    System.out.println("❌ Could not determine location (no coordinates or IP)");
-                }
-            }
+        if (request.getTitle() == null || request.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Title is required");
+        }
+        if (videoPath == null) {
+            throw new IllegalArgumentException("Video file is required");
+        }
+        if (thumbnailPath == null) {
+            throw new IllegalArgumentException("Thumbnail image is required");
+        }
 
-            // Sačuvaj u bazu
-            video = videoRepository.save(video);
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-            return new VideoResponse(video, 0L);
+        return saveVideo(request, videoPath, thumbnailPath, user, httpRequest);
+    }
 
-        } catch (IOException e) {
-            if (videoPath != null) fileStorageService.deleteFile(videoPath, true);
-            if (thumbnailPath != null) fileStorageService.deleteFile(thumbnailPath, false);
-            throw new RuntimeException("Failed to upload files: " + e.getMessage(), e);
+    private VideoResponse saveVideo(CreateVideoRequest request, String videoPath, String thumbnailPath,
+                                    User user, HttpServletRequest httpRequest) {
+        Video video = new Video(
+                request.getTitle(),
+                request.getDescription(),
+                request.getTags(),
+                thumbnailPath,
+                videoPath,
+                user,
+                request.getLocation()
+        );
+
+        // Postavi zakazano vreme ako postoji
+        if (request.getScheduledAt() != null) {
+            video.setScheduledAt(request.getScheduledAt());
+        }
+
+        // ========== NOVO: Postavi koordinate ==========
+
+        // Ako frontend poslao koordinate - koristi ih
+        if (request.hasValidCoordinates()) {
+            video.setLatitude(request.getLatitude());
+            video.setLongitude(request.getLongitude());
+
+            System.out.println("✅ Using coordinates from frontend: " +
+                    request.getLatitude() + ", " + request.getLongitude());
         }
+        // Ako nije - lokacija se određuje po IP adresi posle commit-a (LocationEnrichmentService),
+        // da upload ne drži konekciju ka bazi dok čeka spoljni API
+        String clientIp = request.hasValidCoordinates() ? null : IpUtil.getClientIp(httpRequest);
+
+        // Sačuvaj u bazu
+        video = videoRepository.save(video);
+        Video saved = video;
+        afterCommit(() -> {
+            trendingIndexService.update(saved);
+            videoSpatialIndex.update(saved);
+        });
+        if (clientIp != null) {
+            locationEnrichmentService.enrichAfterCommit(video.getId(), clientIp);
+        }
+
+        return new VideoResponse(video, 0L);
     }
 
     // ================= GET VIDEOS =================
-    public List<VideoResponse> getAllVideos() {
-        return videoRepository.findAllByOrderByCreatedAtDesc()
-                .stream()
-                .filter(Video::isAvailable)
-                .map(video -> {
-                    Long likes = videoLikeRepository.countByVideo(video);
-                    return new VideoResponse(video, likes);
-                })
-                .collect(Collectors.toList());
+    /**
+     * Strana feed-a najnovijih dostupnih videa (keyset paginacija po (createdAt, id)).
+     * Cena zahteva zavisi od veličine strane, a ne od ukupnog broja videa.
+     *
+     * @param cursor nextCursor iz prethodne strane, ili null za prvu stranu
+     * @param size   broj videa po strani (ograničen na MAX_FEED_SIZE)
+     */
+    public VideoFeedPage getVideoFeed(String cursor, Integer size) {
+        int pageSize = (size == null || size <= 0) ? DEFAULT_FEED_SIZE : Math.min(size, MAX_FEED_SIZE);
+        // jedan red više nego što vraćamo - tako znamo da li postoji sledeća strana bez COUNT upita
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<VideoResponse> videos;
+        if (cursor == null || cursor.isBlank()) {
+            videos = videoRepository.findFeedFirstPage(now, pageable);
+        } else {
+            FeedCursor position = FeedCursor.decode(cursor);
+            videos = videoRepository.findFeedAfter(now, position.createdAt(), position.id(), pageable);
+        }
+
+        boolean hasMore = videos.size() > pageSize;
+        if (hasMore) {
+            videos = videos.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? FeedCursor.of(videos.get(videos.size() - 1)).encode() : null;
+        return new VideoFeedPage(videos, nextCursor, hasMore);
     }
 
     public VideoResponse getVideoById(Long id) {
         Video video = videoRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        Long likes = videoLikeRepository.countByVideo(video);
-        return new VideoResponse(video, likes);
+        VideoResponse response = new VideoResponse(video, video.getLikeCount());
+        // uračunaj i preglede koji još nisu upisani u bazu
+        response.setViewCount(video.getViewCount() + viewCountBufferService.getPendingViews(id));
+        return response;
+    }
+
+    /**
+     * Video za zahteve koji ga koriste više puta (stream, thumbnail) - učitava se jednom
+     * i prosleđuje metodama ispod, umesto findById u svakoj od njih.
+     */
+    public Video getVideo(Long videoId) {
+        return videoRepository.findById(videoId)
+                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
     }
 
     // ================= SCHEDULED VIDEO HELPERS =================
     public boolean isVideoAvailable(Long videoId) {
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        return video.isAvailable();
+        return getVideo(videoId).isAvailable();
     }
 
     public Map<String, Object> getStreamInfo(Long videoId) {
@@ -194,41 +259,55 @@ public class VideoService {
     }
 
     // ================= VIEW COUNT =================
-    @Transactional
+    // Pregled se baferiše u memoriji; viewCount, VideoView red (za ETL) i popularity score
+    // upisuje pozadinski flush u ViewCountBufferService
     public void incrementViewCount(Long videoId) {
-        int updatedRows = videoRepository.incrementViewCount(videoId);
-        if (updatedRows == 0) {
-            throw new IllegalArgumentException("Video not found");
-        }
+        viewCountBufferService.recordView(videoId);
+    }
 
-        // Loguj pojedinacni pregled za ETL pipeline
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        videoViewRepository.save(new VideoView(video));
+    // ================= FILES =================
+    public Resource getVideoResource(Long videoId) throws IOException {
+        return getVideoResource(getVideo(videoId));
+    }
 
-        popularityCalculationService.updateVideoPopularityScore(videoId);
+    public Resource getVideoResource(Video video) throws IOException {
+        return fileStorageService.loadAsResource(video.getVideoPath(), true);
     }
 
-    // ================= FILES =================
-    public byte[] getVideoFile(Long videoId) throws IOException {
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        return fileStorageService.loadFile(video.getVideoPath(), true);
+    public MediaValidators getVideoValidators(Video video) {
+        return MediaValidators.fromStoredFile(video.getVideoPath(), video.getCreatedAt());
     }
 
-    public byte[] getThumbnail(Long videoId) throws IOException {
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        return thumbnailCacheService.getThumbnail(video.getThumbnailPath());
+    public MediaValidators getThumbnailValidators(Video video, ThumbnailSize size) {
+        return MediaValidators.fromStoredFile(size.fileName(video.getThumbnailPath()), video.getCreatedAt());
+    }
+
+    /**
+     * Thumbnail u traženoj veličini. Ako se varijante još renderuju (tek upload-ovan video),
+     * čeka se obrada; thumbnail-i sačuvani pre uvođenja varijanti imaju samo osnovnu (LARGE) sliku.
+     */
+    public ByteBuffer getThumbnail(Video video, ThumbnailSize size) throws IOException {
+        String thumbnailPath = video.getThumbnailPath();
+        fileStorageService.awaitThumbnail(thumbnailPath);
+        try {
+            return thumbnailCacheService.getThumbnailBuffer(size.fileName(thumbnailPath));
+        } catch (NoSuchFileException e) {
+            if (size == ThumbnailSize.LARGE) {
+                throw e;
+            }
+            return thumbnailCacheService.getThumbnailBuffer(thumbnailPath);
+        }
     }
 
     // ================= LIKE / UNLIKE =================
     public Long getLikesCount(Long videoId) {
-        Video video = videoRepository.findById(videoId)
+        return videoRepository.findLikeCountById(videoId)
                 .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        return videoLikeRepository.countByVideo(video);
     }
 
+    // Lajk i brojač se menjaju u istoj transakciji - dupli lajk (unique constraint)
+    // ili dupli unlike poništavaju i promenu brojača
+    @Transactional
     public boolean toggleLike(Long videoId, String userEmail) {
         Video video = videoRepository.findById(videoId)
                 .orElseThrow(() -> new IllegalArgumentException("Video not found"));
@@ -240,12 +319,14 @@ public class VideoService {
 
         if (existingLike.isPresent()) {
             videoLikeRepository.delete(existingLike.get());
-            popularityCalculationService.updateVideoPopularityScore(videoId);
+            videoRepository.addLikeCount(videoId, -1);
+            popularityCalculationService.markDirty(videoId);
             return false; // unlike
         } else {
             VideoLike like = new VideoLike(video, user);
             videoLikeRepository.save(like);
-            popularityCalculationService.updateVideoPopularityScore(videoId);
+            videoRepository.addLikeCount(videoId, 1);
+            popularityCalculationService.markDirty(videoId);
             return true; // like
         }
     }
@@ -262,23 +343,40 @@ public class VideoService {
 
         fileStorageService.deleteFile(video.getVideoPath(), true);
         fileStorageService.deleteFile(video.getThumbnailPath(), false);
-        thumbnailCacheService.evict(video.getThumbnailPath());
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            thumbnailCacheService.evict(size.fileName(video.getThumbnailPath()));
+        }
 
         // Prvo obrišemo sve lajkove
         videoLikeRepository.deleteAllByVideo(video);
 
         videoRepository.delete(video);
+        viewCountBufferService.forget(videoId);
+        afterCommit(() -> {
+            trendingIndexService.remove(videoId);
+            videoSpatialIndex.remove(videoId);
+        });
+    }
+
+    /**
+     * Indeksi u memoriji se menjaju tek posle commit-a, da rollback (npr. pad upisa u bazu)
+     * ne ostavi u njima video koji ne postoji ili izbaci video koji i dalje postoji.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
+    // Služi se iz TrendingIndexService (memorija), bez upita ka bazi
     public List<VideoResponse> getTrendingVideos(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return videoRepository.findTrendingVideos(pageable)
-                .stream()
-                .filter(Video::isAvailable)
-                .map(video -> {
-                    Long likes = videoLikeRepository.countByVideo(video);
-                    return new VideoResponse(video, likes);
-                })
-                .collect(Collectors.toList());
+        return trendingIndexService.getTop(limit);
     }
-}
\ No newline at end of file
+}
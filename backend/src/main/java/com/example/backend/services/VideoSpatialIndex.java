@@ -0,0 +1,327 @@
+package com.example.backend.services;
+
+import com.example.backend.config.GeolocationConfig;
+import com.example.backend.model.Video;
+import com.example.backend.repository.VideoRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prostorni indeks koordinata videa u memoriji (mreža ćelija od grid-cell-degrees stepeni).
+ *
+ * Pretraga po radijusu obilazi samo ćelije koje pokrivaju bounding box kruga, a kandidate
+ * proverava tačnom Haversine udaljenošću (GeolocationService.calculateDistance). Ne zavisi od
+ * cube/earthdistance ekstenzija, pa radi isto na PostgreSQL-u i na H2.
+ *
+ * Za popularne videe u blizini svaka ćelija ima unapred izračunat "tile": top tile-size videa
+ * ćelije po popularity score-u. Ćelija koja je cela unutar kruga doprinosi samo svojim tile-om,
+ * a ivične ćelije se proveravaju video po video, pa je rezultat isti kao kod punog pregleda.
+ * Tile se preračunava kad se ćelija promeni (novi, obrisan ili preračunat video).
+ *
+ * VideoService ga ažurira pri kreiranju i brisanju videa, a PopularityCalculationService
+ * posle preračuna score-ova i pri startu aplikacije (rebuild iz baze).
+ * Decay (scaleScores) menja samo zajednički množilac: tačke i tile-ovi čuvaju score podeljen njime,
+ * pa se redosled ne menja, a videi preračunati posle decay-a se porede sa ostalima u istoj skali.
+ */
+@Service
+public class VideoSpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    // Od boljeg ka lošijem: veći score, pa manji videoId
+    private static final Comparator<TileEntry> TILE_ORDER = Comparator
+            .comparingDouble(TileEntry::popularityScore).reversed()
+            .thenComparing(TileEntry::videoId);
+
+    private final VideoRepository videoRepository;
+    private final GeolocationService geolocationService;
+    private final double cellDegrees;
+    private final int tileSize;
+    private final int rows;
+    private final int columns;
+
+    private final ConcurrentHashMap<Long, Point> points = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, List<TileEntry>> tiles = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyCells = ConcurrentHashMap.newKeySet();
+    private final Object tileLock = new Object();
+
+    // Score u tačkama i tile-ovima je podeljen ovim množiocem (kao u TrendingIndexService)
+    private volatile double scoreScale = 1.0;
+
+    public VideoSpatialIndex(VideoRepository videoRepository,
+                             GeolocationService geolocationService,
+                             GeolocationConfig geolocationConfig) {
+        this.videoRepository = videoRepository;
+        this.geolocationService = geolocationService;
+        this.cellDegrees = geolocationConfig.getGridCellDegrees();
+        this.tileSize = geolocationConfig.getTileSize();
+        this.rows = (int) Math.ceil(180.0 / cellDegrees);
+        this.columns = (int) Math.ceil(360.0 / cellDegrees);
+    }
+
+    /**
+     * Upiši (ili pomeri) video; video bez koordinata se izbacuje iz indeksa.
+     */
+    public void update(Video video) {
+        if (video.getLatitude() == null || video.getLongitude() == null) {
+            remove(video.getId());
+        } else {
+            double score = video.getPopularityScore() != null ? video.getPopularityScore() : 0.0;
+            put(video.getId(), video.getLatitude(), video.getLongitude(), score);
+        }
+    }
+
+    /**
+     * Novi score-ovi posle preračuna popularnosti; tile-ovi promenjenih ćelija se odmah preračunavaju.
+     */
+    public void updateScores(Collection<Video> videos) {
+        for (Video video : videos) {
+            update(video);
+        }
+        refreshTiles();
+    }
+
+    public void put(Long videoId, double latitude, double longitude, double popularityScore) {
+        Point point = new Point(latitude, longitude, cellKey(row(latitude), column(longitude)),
+                popularityScore / scoreScale);
+        points.compute(videoId, (id, previous) -> {
+            if (previous != null && previous.cellKey() != point.cellKey()) {
+                removeFromCell(previous.cellKey(), id);
+            }
+            cells.compute(point.cellKey(), (key, ids) -> {
+                Set<Long> target = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                target.add(id);
+                return target;
+            });
+            dirtyCells.add(point.cellKey());
+            return point;
+        });
+    }
+
+    public void remove(Long videoId) {
+        points.computeIfPresent(videoId, (id, previous) -> {
+            removeFromCell(previous.cellKey(), id);
+            return null;
+        });
+    }
+
+    /**
+     * Videi na najviše radiusKm od tačke, sortirani po udaljenosti (najbliži prvi).
+     */
+    public List<NearbyVideo> findWithinRadius(double latitude, double longitude, double radiusKm) {
+        List<NearbyVideo> nearby = new ArrayList<>();
+        forEachCoveredCell(latitude, longitude, radiusKm,
+                (key, row, column) -> scanCell(key, latitude, longitude, radiusKm, nearby));
+
+        nearby.sort(Comparator.comparingDouble(NearbyVideo::distanceKm).thenComparing(NearbyVideo::videoId));
+        return nearby;
+    }
+
+    /**
+     * Najpopularnijih limit videa na najviše radiusKm od tačke (po score-u, pa po udaljenosti).
+     * Ćelije cele unutar kruga doprinose samo svojim tile-om (ako limit nije veći od tile-size).
+     */
+    public List<NearbyVideo> findPopularWithinRadius(double latitude, double longitude, double radiusKm, int limit) {
+        List<NearbyVideo> candidates = new ArrayList<>();
+        forEachCoveredCell(latitude, longitude, radiusKm, (key, row, column) -> {
+            if (limit <= tileSize && isCellInside(row, column, latitude, longitude, radiusKm)) {
+                for (TileEntry entry : tile(key)) {
+                    Point point = points.get(entry.videoId());
+                    if (point != null && point.cellKey() == key) {
+                        candidates.add(new NearbyVideo(entry.videoId(), geolocationService.calculateDistance(
+                                latitude, longitude, point.latitude(), point.longitude()), entry.popularityScore() * scoreScale));
+                    }
+                }
+            } else {
+                scanCell(key, latitude, longitude, radiusKm, candidates);
+            }
+        });
+
+        candidates.sort(Comparator.comparingDouble(NearbyVideo::popularityScore).reversed()
+                .thenComparingDouble(NearbyVideo::distanceKm)
+                .thenComparing(NearbyVideo::videoId));
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * Preračunaj tile-ove svih promenjenih ćelija.
+     */
+    public void refreshTiles() {
+        for (Long key : dirtyCells) {
+            refreshTile(key);
+        }
+    }
+
+    /**
+     * Decay primenjen na sve score-ove u bazi - redosled ostaje isti, menja se samo množilac.
+     */
+    public void scaleScores(double factor) {
+        synchronized (tileLock) {
+            scoreScale *= factor;
+            if (scoreScale < 1e-100) {
+                // sprečava underflow posle dugog rada bez restarta
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Napuni indeks iz baze (svi videi sa koordinatama) i izračunaj sve tile-ove.
+     */
+    public void rebuild() {
+        List<Object[]> coordinates = videoRepository.findAllCoordinates();
+        synchronized (tileLock) {
+            points.clear();
+            cells.clear();
+            tiles.clear();
+            dirtyCells.clear();
+            scoreScale = 1.0;
+            for (Object[] row : coordinates) {
+                double score = row[3] != null ? ((Number) row[3]).doubleValue() : 0.0;
+                put((Long) row[0], ((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue(), score);
+            }
+        }
+        refreshTiles();
+        System.out.println("Spatial index rebuilt with " + points.size() + " videos in " + tiles.size() + " cells");
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    private List<TileEntry> tile(long key) {
+        if (dirtyCells.contains(key)) {
+            refreshTile(key);
+        }
+        return tiles.getOrDefault(key, List.of());
+    }
+
+    private void refreshTile(long key) {
+        // Jedan preračun u isto vreme, da stariji tile ne prepiše noviji
+        synchronized (tileLock) {
+            if (!dirtyCells.remove(key)) {
+                return;
+            }
+            Set<Long> ids = cells.get(key);
+            List<TileEntry> entries = new ArrayList<>();
+            if (ids != null) {
+                for (Long id : ids) {
+                    Point point = points.get(id);
+                    if (point != null && point.cellKey() == key) {
+                        entries.add(new TileEntry(id, point.popularityScore()));
+                    }
+                }
+            }
+            if (entries.isEmpty()) {
+                tiles.remove(key);
+                return;
+            }
+            entries.sort(TILE_ORDER);
+            tiles.put(key, List.copyOf(entries.subList(0, Math.min(tileSize, entries.size()))));
+        }
+    }
+
+    private void scanCell(long key, double latitude, double longitude, double radiusKm, List<NearbyVideo> out) {
+        Set<Long> ids = cells.get(key);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            Point point = points.get(id);
+            if (point == null || point.cellKey() != key) {
+                continue; // video je u međuvremenu obrisan ili pomeren
+            }
+            double distanceKm = geolocationService.calculateDistance(
+                    latitude, longitude, point.latitude(), point.longitude());
+            if (distanceKm <= radiusKm) {
+                out.add(new NearbyVideo(id, distanceKm, point.popularityScore() * scoreScale));
+            }
+        }
+    }
+
+    /**
+     * Obiđi neprazne ćelije koje pokrivaju sferni bounding box kruga. column je neprelomljen indeks
+     * kolone (može biti van [0, columns) kad box prelazi 180. meridijan), a key je ključ stvarne ćelije.
+     */
+    private void forEachCoveredCell(double latitude, double longitude, double radiusKm, CellVisitor visitor) {
+        // Ugaoni radijus kruga na sferi istog poluprečnika kao u calculateDistance
+        double angularRadius = radiusKm / EARTH_RADIUS_KM;
+        double latDelta = Math.toDegrees(angularRadius);
+        int minRow = Math.max(0, row(latitude - latDelta));
+        int maxRow = Math.min(rows - 1, row(latitude + latDelta));
+
+        // Opseg geografske dužine bounding box-a; ako krug obuhvata pol, pokriva sve kolone
+        int minColumn = 0;
+        int columnCount = columns;
+        if (Math.abs(latitude) + latDelta < 90.0) {
+            double lngDelta = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude))));
+            minColumn = (int) Math.floor((longitude - lngDelta + 180.0) / cellDegrees);
+            int maxColumn = (int) Math.floor((longitude + lngDelta + 180.0) / cellDegrees);
+            columnCount = Math.min(columns, maxColumn - minColumn + 1);
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int i = 0; i < columnCount; i++) {
+                int column = minColumn + i;
+                long key = cellKey(row, Math.floorMod(column, columns));
+                if (cells.containsKey(key)) {
+                    visitor.visit(key, row, column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Da li je cela ćelija unutar kruga. Na pravougaoniku u lat/lng udaljenost od tačke
+     * je najveća u nekom od temena, pa je dovoljno proveriti četiri temena.
+     */
+    private boolean isCellInside(int row, int column, double latitude, double longitude, double radiusKm) {
+        double south = row * cellDegrees - 90.0;
+        double north = Math.min(90.0, south + cellDegrees);
+        double west = column * cellDegrees - 180.0;
+        double east = west + cellDegrees;
+        return geolocationService.calculateDistance(latitude, longitude, south, west) <= radiusKm
+                && geolocationService.calculateDistance(latitude, longitude, south, east) <= radiusKm
+                && geolocationService.calculateDistance(latitude, longitude, north, west) <= radiusKm
+                && geolocationService.calculateDistance(latitude, longitude, north, east) <= radiusKm;
+    }
+
+    private void removeFromCell(long cellKey, Long videoId) {
+        cells.computeIfPresent(cellKey, (key, ids) -> {
+            ids.remove(videoId);
+            return ids.isEmpty() ? null : ids;
+        });
+        dirtyCells.add(cellKey);
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, (int) Math.floor((latitude + 90.0) / cellDegrees));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / cellDegrees), columns);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    public record NearbyVideo(Long videoId, double distanceKm, double popularityScore) {}
+
+    private record TileEntry(Long videoId, double popularityScore) {}
+
+    private record Point(double latitude, double longitude, long cellKey, double popularityScore) {}
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        void visit(long key, int row, int column);
+    }
+}
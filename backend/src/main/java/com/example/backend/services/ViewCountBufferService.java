@@ -0,0 +1,225 @@
+package com.example.backend.services;
+
+import com.example.backend.config.ViewCountConfig;
+import com.example.backend.model.VideoView;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.repository.VideoViewRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind brojač pregleda.
+ *
+ * Pregled se na niti zahteva samo dodaje u red u memoriji i u LongAdder za taj video,
+ * bez ijednog upita ka bazi (osim prve provere da video postoji). Pozadinski flush
+ * periodično (ili kad se nakupi flush-threshold pregleda) u jednoj transakciji:
+ * - poveća viewCount jednim UPDATE-om po videu (umesto jednim po pregledu)
+ * - upiše sve VideoView redove za ETL u JDBC batch-evima
+ * - označi videe koji su imali preglede za preračun popularity score-a
+ *
+ * Popularni video više ne serijalizuje zahteve na row lock-u jer se njegov red
+ * ažurira jednom po flush-u. Pri gašenju aplikacije radi se poslednji flush.
+ */
+@Service
+public class ViewCountBufferService {
+
+    private final VideoRepository videoRepository;
+    private final VideoViewRepository videoViewRepository;
+    private final PopularityCalculationService popularityCalculationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ViewCountConfig config;
+
+    // Pregledi koji još nisu upisani u bazu (izvor istine za flush)
+    private final Queue<PendingView> pendingViews = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+
+    // Broj neupisanih pregleda po videu - za prikaz ažurnog viewCount-a
+    private final ConcurrentHashMap<Long, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+
+    // Videi za koje je već potvrđeno da postoje
+    private final Set<Long> knownVideoIds = ConcurrentHashMap.newKeySet();
+
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "view-count-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean shuttingDown = false;
+
+    public ViewCountBufferService(VideoRepository videoRepository,
+                                  VideoViewRepository videoViewRepository,
+                                  PopularityCalculationService popularityCalculationService,
+                                  PlatformTransactionManager transactionManager,
+                                  ViewCountConfig config,
+                                  MeterRegistry meterRegistry) {
+        this.videoRepository = videoRepository;
+        this.videoViewRepository = videoViewRepository;
+        this.popularityCalculationService = popularityCalculationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = config;
+
+        Gauge.builder("view_count_pending", pendingSize, AtomicInteger::get)
+                .description("Broj pregleda koji čekaju upis u bazu")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Zabeleži pregled. Ne piše u bazu - upis radi flush().
+     */
+    public void recordView(Long videoId) {
+        if (!knownVideoIds.contains(videoId)) {
+            if (!videoRepository.existsById(videoId)) {
+                throw new IllegalArgumentException("Video not found");
+            }
+            knownVideoIds.add(videoId);
+        }
+
+        pendingViews.add(new PendingView(videoId, LocalDateTime.now()));
+        pendingCounts.computeIfAbsent(videoId, id -> new LongAdder()).increment();
+        int size = pendingSize.incrementAndGet();
+
+        if (shuttingDown || size >= config.getMaxPending()) {
+            // Bafer je pun (npr. baza je spora) - usporavamo pozivaoca umesto da rastemo bez granice
+            flush();
+        } else if (size >= config.getFlushThreshold() && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Broj pregleda videa koji još nisu upisani u bazu
+     */
+    public long getPendingViews(Long videoId) {
+        LongAdder adder = pendingCounts.get(videoId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public int getPendingSize() {
+        return pendingSize.get();
+    }
+
+    /**
+     * Video je obrisan - neupisani pregledi se odbacuju pri sledećem flush-u.
+     */
+    public void forget(Long videoId) {
+        knownVideoIds.remove(videoId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.view-count.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Upiši sve baferisane preglede u bazu. Ako upis ne uspe, pregledi se vraćaju u red
+     * i pokušavaju ponovo pri sledećem flush-u.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<PendingView> batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Long> deltas = new LinkedHashMap<>();
+            for (PendingView view : batch) {
+                deltas.merge(view.videoId(), 1L, Long::sum);
+            }
+
+            Set<Long> updated;
+            try {
+                updated = transactionTemplate.execute(status -> writeBatch(deltas, batch));
+            } catch (RuntimeException e) {
+                pendingViews.addAll(batch);
+                pendingSize.addAndGet(batch.size());
+                System.out.println("View count flush failed, " + batch.size() + " views re-queued: " + e.getMessage());
+                return;
+            }
+
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                LongAdder adder = pendingCounts.get(entry.getKey());
+                if (adder != null) {
+                    adder.add(-entry.getValue());
+                }
+                if (!updated.contains(entry.getKey())) {
+                    // video je u međuvremenu obrisan
+                    knownVideoIds.remove(entry.getKey());
+                    pendingCounts.remove(entry.getKey());
+                }
+            }
+
+            updated.forEach(popularityCalculationService::markDirty);
+        }
+    }
+
+    private List<PendingView> drain() {
+        List<PendingView> batch = new ArrayList<>();
+        PendingView view;
+        while ((view = pendingViews.poll()) != null) {
+            batch.add(view);
+        }
+        pendingSize.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private Set<Long> writeBatch(Map<Long, Long> deltas, List<PendingView> batch) {
+        Set<Long> updated = new HashSet<>();
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            if (videoRepository.addViewCount(entry.getKey(), entry.getValue()) > 0) {
+                updated.add(entry.getKey());
+            }
+        }
+
+        List<VideoView> views = new ArrayList<>(batch.size());
+        for (PendingView view : batch) {
+            if (updated.contains(view.videoId())) {
+                views.add(new VideoView(videoRepository.getReferenceById(view.videoId()), view.viewedAt()));
+            }
+        }
+        videoViewRepository.insertInBatches(views);
+        return updated;
+    }
+
+    /**
+     * Pri gašenju se upisuje sve što je ostalo u baferu, pre nego što se zatvori konekcija ka bazi.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        if (pendingSize.get() > 0) {
+            System.out.println("View count buffer: " + pendingSize.get() + " views could not be written on shutdown");
+        }
+    }
+
+    private record PendingView(Long videoId, LocalDateTime viewedAt) {}
+}
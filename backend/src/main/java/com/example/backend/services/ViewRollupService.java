@@ -0,0 +1,254 @@
+package com.example.backend.services;
+
+import com.example.backend.config.ViewRetentionConfig;
+import com.example.backend.model.VideoViewDaily;
+import com.example.backend.model.ViewRollupWatermark;
+import com.example.backend.repository.VideoViewDailyRepository;
+import com.example.backend.repository.VideoViewRepository;
+import com.example.backend.repository.ViewRollupWatermarkRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Kompakcija i retencija video_views tabele.
+ *
+ * - compact: sirovi redovi se u rollup (video_view_daily) prebacuju redom kojim su upisani (recorded_at),
+ *   a ne po danu pregleda. Granica (view_rollup_watermarks) kaže do kog trenutka upisa je sve uračunato;
+ *   opseg [granica, sada - grace) se GROUP BY-em po videu i danu dodaje na postojeće rollup redove,
+ *   pa se i pregled koji flush upiše sa zakašnjenjem (posle ponovnog pokušaja) uračuna u svoj dan,
+ *   čak i ako je taj dan već u rollup-u. Grace pokriva flush transakcije koje su još u toku.
+ *   Jedan opseg od najviše jednog dana je jedna transakcija koja zaključava red granice,
+ *   pa se isti redovi ne broje dvaput ni kad kompakcija radi na više instanci.
+ * - prune: sirovi redovi stariji od raw-retention-days se brišu u chunk-ovima (svaki u svojoj transakciji),
+ *   ali samo oni koji su već u rollup-u.
+ * - readWindowCounts: rollup + sirovi redovi posle granice za jedan opseg videa, kao jedan konzistentan
+ *   pogled (za ETL).
+ *
+ * Umesto particionisanja tabele (koje ddl-auto ne ume da napravi, a H2 ne podržava) koristi se
+ * brisanje u chunk-ovima po indeksu na viewed_at.
+ */
+@Service
+public class ViewRollupService {
+
+    static final String WATERMARK_NAME = "video_views";
+
+    // Najveći opseg vremena upisa koji se kompaktuje jednom transakcijom
+    private static final Duration MAX_COMPACTION_RANGE = Duration.ofDays(1);
+
+    private final VideoViewRepository videoViewRepository;
+    private final VideoViewDailyRepository videoViewDailyRepository;
+    private final ViewRollupWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ViewRetentionConfig config;
+
+    private final Object runLock = new Object();
+
+    public ViewRollupService(VideoViewRepository videoViewRepository,
+                             VideoViewDailyRepository videoViewDailyRepository,
+                             ViewRollupWatermarkRepository watermarkRepository,
+                             PlatformTransactionManager transactionManager,
+                             ViewRetentionConfig config) {
+        this.videoViewRepository = videoViewRepository;
+        this.videoViewDailyRepository = videoViewDailyRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = config;
+    }
+
+    @Scheduled(fixedDelayString = "${app.view-retention.interval-ms:3600000}",
+               initialDelayString = "${app.view-retention.interval-ms:3600000}")
+    public void compactAndPrune() {
+        synchronized (runLock) {
+            int views = compact();
+            int deleted = pruneRawViews();
+            if (views > 0 || deleted > 0) {
+                System.out.println("View rollup: compacted " + views + " views, pruned " + deleted + " raw views");
+            }
+        }
+    }
+
+    /**
+     * Prebaci u rollup sve sirove redove upisane od granice do (sada - grace).
+     *
+     * @return broj pregleda dodatih u rollup
+     */
+    public int compact() {
+        synchronized (runLock) {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(config.getCompactionGraceMinutes());
+            ensureWatermark();
+
+            int compacted = 0;
+            while (true) {
+                CompactedRange range = transactionTemplate.execute(status -> compactNextRange(cutoff));
+                if (range == null || range.done()) {
+                    return compacted;
+                }
+                compacted += range.views();
+            }
+        }
+    }
+
+    private CompactedRange compactNextRange(LocalDateTime cutoff) {
+        ViewRollupWatermark watermark = watermarkRepository.findForUpdate(WATERMARK_NAME).orElseThrow();
+        LocalDateTime from = watermark.getCompactedThrough();
+        if (from == null) {
+            // Ništa još nije kompaktovano - kreće se od najstarijeg pregleda (upisan je posle njega)
+            LocalDateTime oldestView = videoViewRepository.findMinViewedAt();
+            from = oldestView != null && oldestView.isBefore(cutoff) ? oldestView : cutoff;
+        }
+        if (!from.isBefore(cutoff)) {
+            watermark.setCompactedThrough(from);
+            return new CompactedRange(0, true);
+        }
+
+        LocalDateTime to = from.plus(MAX_COMPACTION_RANGE).isBefore(cutoff) ? from.plus(MAX_COMPACTION_RANGE) : cutoff;
+        int views = addToRollup(videoViewRepository.countViewsPerVideoPerDayRecordedBetween(from, to));
+        watermark.setCompactedThrough(to);
+        return new CompactedRange(views, false);
+    }
+
+    /**
+     * Dodaj [videoId, dan, broj] redove na rollup: postojeći red se uveća, nov se upiše.
+     */
+    private int addToRollup(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Set<LocalDate> days = new HashSet<>();
+        Set<Long> videoIds = new HashSet<>();
+        for (Object[] row : rows) {
+            videoIds.add((Long) row[0]);
+            days.add((LocalDate) row[1]);
+        }
+        Map<VideoViewDaily.Key, VideoViewDaily> existing = new HashMap<>();
+        for (VideoViewDaily daily : videoViewDailyRepository.findByViewDatesAndVideoIds(days, videoIds)) {
+            existing.put(daily.getId(), daily);
+        }
+
+        int views = 0;
+        List<VideoViewDaily> created = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long videoId = (Long) row[0];
+            LocalDate day = (LocalDate) row[1];
+            long count = ((Number) row[2]).longValue();
+            VideoViewDaily daily = existing.get(new VideoViewDaily.Key(videoId, day));
+            if (daily != null) {
+                daily.addViews(count);
+            } else {
+                created.add(new VideoViewDaily(videoId, day, count));
+            }
+            views += (int) count;
+        }
+        videoViewDailyRepository.saveAll(created);
+        return views;
+    }
+
+    /**
+     * Red granice se pravi jednom. Ako rollup već postoji iz vremena kad se kompaktovalo po danu
+     * pregleda, granica počinje od dana posle poslednjeg kompaktovanog.
+     */
+    private void ensureWatermark() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!watermarkRepository.existsById(WATERMARK_NAME)) {
+                    LocalDate compactedDay = videoViewDailyRepository.findMaxViewDate();
+                    watermarkRepository.saveAndFlush(new ViewRollupWatermark(WATERMARK_NAME,
+                            compactedDay != null ? compactedDay.plusDays(1).atStartOfDay() : null));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // druga instanca je istovremeno napravila red granice
+        }
+    }
+
+    /**
+     * Dnevni brojevi pregleda od dana since za videe iz [fromVideoId, toVideoId): rollup plus sirovi
+     * redovi koji još nisu u njemu. Redovi se strimuju u consumer, bez punjenja liste.
+     * Čita se u jednoj transakciji uz deljeni lock na granici, pa kompakcija ne može da je pomeri
+     * između dva upita (isti pregled bi se inače video i u rollup-u i u sirovim redovima).
+     * Isti video i dan mogu stići više puta (iz rollup-a i iz sirovih redova).
+     */
+    public void readWindowCounts(LocalDate since, long fromVideoId, long toVideoId, DailyCountConsumer consumer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime compactedThrough = watermarkRepository.findForShare(WATERMARK_NAME)
+                    .map(ViewRollupWatermark::getCompactedThrough)
+                    .orElse(null);
+            if (compactedThrough == null) {
+                LocalDate compactedDay = videoViewDailyRepository.findMaxViewDate();
+                if (compactedDay == null) {
+                    forEachRow(videoViewRepository.streamViewsPerVideoPerDay(
+                            since.atStartOfDay(), fromVideoId, toVideoId), consumer);
+                    return;
+                }
+                // Rollup iz vremena kad se kompaktovalo po danu pregleda
+                compactedThrough = compactedDay.plusDays(1).atStartOfDay();
+            }
+            forEachRow(videoViewDailyRepository.streamDailyCountsSince(since, fromVideoId, toVideoId), consumer);
+            forEachRow(videoViewRepository.streamUncompactedViewsPerVideoPerDay(
+                    since.atStartOfDay(), compactedThrough, fromVideoId, toVideoId), consumer);
+        });
+    }
+
+    private static void forEachRow(Stream<Object[]> rows, DailyCountConsumer consumer) {
+        try (rows) {
+            rows.forEach(row -> consumer.accept(((Number) row[0]).longValue(),
+                    ((LocalDate) row[1]).toEpochDay(), ((Number) row[2]).longValue()));
+        }
+    }
+
+    /**
+     * Prima jedan red [videoId, dan, broj pregleda] iz readWindowCounts.
+     */
+    @FunctionalInterface
+    public interface DailyCountConsumer {
+        void accept(long videoId, long epochDay, long count);
+    }
+
+    /**
+     * Obriši sirove preglede starije od retencije koji su već u rollup-u.
+     *
+     * @return broj obrisanih redova
+     */
+    public int pruneRawViews() {
+        synchronized (runLock) {
+            LocalDateTime compactedThrough = watermarkRepository.findById(WATERMARK_NAME)
+                    .map(ViewRollupWatermark::getCompactedThrough)
+                    .orElse(null);
+            if (compactedThrough == null) {
+                return 0;
+            }
+
+            LocalDateTime before = LocalDate.now().minusDays(config.getRawRetentionDays()).atStartOfDay();
+
+            int deleted = 0;
+            while (true) {
+                Integer chunk = transactionTemplate.execute(status -> {
+                    List<Long> ids = videoViewRepository.findIdsCompactedViewedBefore(
+                            before, compactedThrough, PageRequest.of(0, config.getPruneBatchSize()));
+                    return ids.isEmpty() ? 0 : videoViewRepository.deleteByIdIn(ids);
+                });
+                if (chunk == null || chunk == 0) {
+                    return deleted;
+                }
+                deleted += chunk;
+            }
+        }
+    }
+
+    private record CompactedRange(int views, boolean done) {}
+}
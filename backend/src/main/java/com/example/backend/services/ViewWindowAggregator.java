@@ -0,0 +1,312 @@
+package com.example.backend.services;
+
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.ViewRollupService.DailyCountConsumer;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Težinski 7-dnevni prozor pregleda po videu (extract i transform faze ETL-a).
+ *
+ * Videi se dele na opsege id-jeva (planRanges). Svaki opseg se posebno čita iz baze
+ * (ViewRollupService.readWindowCounts: video_view_daily rollup i sirovi video_views redovi koji još
+ * nisu kompaktovani), redovi se strimuju direktno u bucket-e opsega i opseg se odmah boduje, pa
+ * se ceo prozor nikad ne drži u memoriji. Kod rankParallel svaki zadatak pool-a čita i boduje
+ * svoj opseg, pa su paralelni i čitanje i bodovanje.
+ *
+ * Svaki video dobija prsten od 7 dnevnih bucket-a (indeks = epochDay % 7), a težinski score
+ * je suma 7 bucket-a.
+ */
+@Service
+public class ViewWindowAggregator {
+
+    public static final int WINDOW_DAYS = 7;
+
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    // Najmanji opseg id-jeva koji čita jedan zadatak (manji opsezi bi samo umnožili upite)
+    static final int MIN_RANGE_IDS = 8192;
+
+    // Opsega po niti pool-a, da se posao rasporedi i kad su pregledi neravnomerni po opsezima
+    private static final int RANGES_PER_THREAD = 4;
+
+    // Od lošijeg ka boljem: manji score, pa za isti score veći videoId
+    private static final Comparator<ScoredVideo> RANKING = Comparator.comparingDouble(ScoredVideo::score)
+            .thenComparing(ScoredVideo::videoId, Comparator.reverseOrder());
+
+    private final ViewRollupService viewRollupService;
+    private final VideoRepository videoRepository;
+
+    public ViewWindowAggregator(ViewRollupService viewRollupService, VideoRepository videoRepository) {
+        this.viewRollupService = viewRollupService;
+        this.videoRepository = videoRepository;
+    }
+
+    /**
+     * Težina pregleda od pre daysAgo dana: danas i juče 7, pre 2 dana 6, ..., pre 6 dana 2.
+     * Van prozora težina je 0.
+     */
+    public static double weight(long daysAgo) {
+        if (daysAgo < 0 || daysAgo >= WINDOW_DAYS) {
+            return 0.0;
+        }
+        return daysAgo == 0 ? 7.0 : 8.0 - daysAgo;
+    }
+
+    /**
+     * Podela svih videa na opsege id-jeva (extract faza ETL-a): najviše parallelism * RANGES_PER_THREAD
+     * opsega, svaki od bar MIN_RANGE_IDS id-jeva. Prazna lista ako nema videa.
+     */
+    public List<VideoIdRange> planRanges(int parallelism) {
+        Long minId = videoRepository.findMinId();
+        Long maxId = videoRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            return List.of();
+        }
+        long span = maxId - minId + 1;
+        long rangeCount = Math.max(1, Math.min((long) parallelism * RANGES_PER_THREAD,
+                (span + MIN_RANGE_IDS - 1) / MIN_RANGE_IDS));
+        long rangeSize = (span + rangeCount - 1) / rangeCount;
+
+        List<VideoIdRange> ranges = new ArrayList<>();
+        for (long fromId = minId; fromId <= maxId; fromId += rangeSize) {
+            ranges.add(new VideoIdRange(fromId, Math.min(fromId + rangeSize, maxId + 1)));
+        }
+        return ranges;
+    }
+
+    /**
+     * Čitanje i bodovanje opsega jedan za drugim i izbor top limit (transform faza ETL-a).
+     * Bira se min-heap-om veličine limit, bez sortiranja svih videa.
+     *
+     * @throws CancellationException ako cancelled vrati true (proverava se na svakih CANCEL_CHECK_INTERVAL
+     *                               redova i videa)
+     */
+    public List<ScoredVideo> rank(List<VideoIdRange> ranges, int limit, LocalDate today, BooleanSupplier cancelled) {
+        PriorityQueue<ScoredVideo> heap = new PriorityQueue<>(RANKING);
+        for (VideoIdRange range : ranges) {
+            for (ScoredVideo candidate : rankRange(range, limit, today, cancelled)) {
+                offer(heap, candidate, limit);
+            }
+        }
+        return sorted(heap);
+    }
+
+    /**
+     * Isto što i rank, ali svaki opseg čita i boduje poseban zadatak pool-a (svaki u svojoj
+     * transakciji, pa istovremeno najviše parallelism konekcija); svaki opseg ima svoj top limit
+     * heap, a heap-ovi se spajaju pri povratku iz rekurzije. Rezultat je isti kao kod rank
+     * (isti score rešava manji videoId).
+     */
+    public List<ScoredVideo> rankParallel(List<VideoIdRange> ranges, int limit, LocalDate today,
+                                          BooleanSupplier cancelled, ForkJoinPool pool) {
+        if (ranges.size() <= 1) {
+            return rank(ranges, limit, today, cancelled);
+        }
+        return sorted(pool.invoke(new RankTask(ranges, 0, ranges.size(), limit, today, cancelled)));
+    }
+
+    private PriorityQueue<ScoredVideo> rankRange(VideoIdRange range, int limit, LocalDate today,
+                                                 BooleanSupplier cancelled) {
+        WindowTable table = new WindowTable(cancelled);
+        // isti video i dan mogu doći i iz rollup-a i iz sirovih redova
+        viewRollupService.readWindowCounts(today.minusDays(WINDOW_DAYS - 1), range.fromId(), range.toId(), table);
+
+        long todayEpochDay = today.toEpochDay();
+        PriorityQueue<ScoredVideo> heap = new PriorityQueue<>(RANKING);
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (slot % CANCEL_CHECK_INTERVAL == 0) {
+                checkCancelled(cancelled);
+            }
+            if (!table.isUsed(slot)) {
+                continue;
+            }
+            double score = table.score(slot, todayEpochDay);
+            if (score > 0.0) {
+                offer(heap, new ScoredVideo(table.videoId(slot), score), limit);
+            }
+        }
+        return heap;
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Ranking cancelled");
+        }
+    }
+
+    private static void offer(PriorityQueue<ScoredVideo> heap, ScoredVideo candidate, int limit) {
+        if (heap.size() < limit) {
+            heap.add(candidate);
+        } else if (limit > 0 && RANKING.compare(candidate, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    private static List<ScoredVideo> sorted(PriorityQueue<ScoredVideo> heap) {
+        List<ScoredVideo> top = new ArrayList<>(heap);
+        top.sort(RANKING.reversed());
+        return top;
+    }
+
+    public record ScoredVideo(Long videoId, double score) {}
+
+    /**
+     * Opseg id-jeva videa [fromId, toId).
+     */
+    public record VideoIdRange(long fromId, long toId) {}
+
+    /**
+     * Deli listu opsega na pola dok ne ostane jedan opseg, pa spaja top limit heap-ove polovina.
+     */
+    private final class RankTask extends RecursiveTask<PriorityQueue<ScoredVideo>> {
+        private final List<VideoIdRange> ranges;
+        private final int from;
+        private final int to;
+        private final int limit;
+        private final LocalDate today;
+        private final BooleanSupplier cancelled;
+
+        RankTask(List<VideoIdRange> ranges, int from, int to, int limit, LocalDate today,
+                 BooleanSupplier cancelled) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+            this.today = today;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected PriorityQueue<ScoredVideo> compute() {
+            if (to - from == 1) {
+                return rankRange(ranges.get(from), limit, today, cancelled);
+            }
+            int middle = (from + to) >>> 1;
+            RankTask left = new RankTask(ranges, from, middle, limit, today, cancelled);
+            RankTask right = new RankTask(ranges, middle, to, limit, today, cancelled);
+            left.fork();
+            PriorityQueue<ScoredVideo> merged = right.compute();
+            for (ScoredVideo candidate : left.join()) {
+                offer(merged, candidate, limit);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Prstenovi dnevnih bucket-a videa jednog opsega dok se čitaju redovi iz baze. Hash tabela sa
+     * otvorenim adresiranjem i long ključevima: 7 slotova videa na poziciji p su days/counts
+     * [p * 7, p * 7 + 7), pa nema objekta ni boxovanog ključa po videu.
+     */
+    private static final class WindowTable implements DailyCountConsumer {
+        private static final long EMPTY = Long.MIN_VALUE;
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final BooleanSupplier cancelled;
+        private long[] videoIds;
+        private long[] days;
+        private long[] counts;
+        private int size;
+        private long rows;
+
+        WindowTable(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+            allocate(INITIAL_CAPACITY);
+        }
+
+        @Override
+        public void accept(long videoId, long epochDay, long count) {
+            if (++rows % CANCEL_CHECK_INTERVAL == 0) {
+                checkCancelled(cancelled);
+            }
+            int day = slotOf(videoId) * WINDOW_DAYS + (int) Math.floorMod(epochDay, WINDOW_DAYS);
+            if (days[day] == epochDay) {
+                counts[day] += count;
+            } else if (days[day] < epochDay) {
+                // slot pripada danu koji je ispao iz prozora
+                days[day] = epochDay;
+                counts[day] = count;
+            }
+            // pregledi stariji od dana u slotu su već van prozora
+        }
+
+        int capacity() {
+            return videoIds.length;
+        }
+
+        boolean isUsed(int slot) {
+            return videoIds[slot] != EMPTY;
+        }
+
+        long videoId(int slot) {
+            return videoIds[slot];
+        }
+
+        double score(int slot, long todayEpochDay) {
+            double score = 0.0;
+            for (int day = slot * WINDOW_DAYS; day < (slot + 1) * WINDOW_DAYS; day++) {
+                // prazan slot ima count 0, pa mu težina ne utiče na zbir
+                score += counts[day] * weight(todayEpochDay - days[day]);
+            }
+            return score;
+        }
+
+        private int slotOf(long videoId) {
+            int mask = videoIds.length - 1;
+            int slot = hash(videoId) & mask;
+            while (videoIds[slot] != EMPTY && videoIds[slot] != videoId) {
+                slot = (slot + 1) & mask;
+            }
+            if (videoIds[slot] == EMPTY) {
+                if ((size + 1) * 2 > videoIds.length) {
+                    grow();
+                    return slotOf(videoId);
+                }
+                videoIds[slot] = videoId;
+                size++;
+            }
+            return slot;
+        }
+
+        private static int hash(long videoId) {
+            long h = videoId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void allocate(int capacity) {
+            videoIds = new long[capacity];
+            days = new long[capacity * WINDOW_DAYS];
+            counts = new long[capacity * WINDOW_DAYS];
+            Arrays.fill(videoIds, EMPTY);
+            Arrays.fill(days, EMPTY);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldVideoIds = videoIds;
+            long[] oldDays = days;
+            long[] oldCounts = counts;
+            allocate(oldVideoIds.length * 2);
+            for (int old = 0; old < oldVideoIds.length; old++) {
+                if (oldVideoIds[old] == EMPTY) {
+                    continue;
+                }
+                int slot = slotOf(oldVideoIds[old]);
+                System.arraycopy(oldDays, old * WINDOW_DAYS, days, slot * WINDOW_DAYS, WINDOW_DAYS);
+                System.arraycopy(oldCounts, old * WINDOW_DAYS, counts, slot * WINDOW_DAYS, WINDOW_DAYS);
+            }
+        }
+    }
+}
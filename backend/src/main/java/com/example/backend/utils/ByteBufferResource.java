@@ -0,0 +1,72 @@
+package com.example.backend.utils;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Resource nad ByteBuffer-om (npr. slice iz memorijski mapiranog fajla).
+ * Podaci se čitaju direktno iz bafera, bez kopiranja celog sadržaja u byte[].
+ */
+public class ByteBufferResource extends AbstractResource {
+
+    private final ByteBuffer buffer;
+    private final String description;
+
+    public ByteBufferResource(ByteBuffer buffer, String description) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.description = description;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer source = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return source.hasRemaining() ? source.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, source.remaining());
+                source.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) {
+                int skipped = (int) Math.max(0, Math.min(n, source.remaining()));
+                source.position(source.position() + skipped);
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return source.remaining();
+            }
+        };
+    }
+
+    @Override
+    public String getDescription() {
+        return "ByteBuffer resource [" + description + "]";
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.backend.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Inkrementalno čitanje multipart/form-data tela, deo po deo, direktno iz request InputStream-a.
+ *
+ * Za razliku od MultipartFile-a, ništa se ne spool-uje u temp fajl ili memoriju: sadržaj dela
+ * se čita kroz {@link Part#getInputStream()} dok se ne naiđe na sledeći boundary, a u memoriji
+ * je samo bafer fiksne veličine. Delovi se moraju čitati redom - {@link #nextPart()} preskače
+ * ostatak prethodnog dela.
+ *
+ * <pre>
+ * MultipartStreamParser parser = new MultipartStreamParser(in, boundary);
+ * MultipartStreamParser.Part part;
+ * while ((part = parser.nextPart()) != null) { ... part.getInputStream() ... }
+ * </pre>
+ */
+public class MultipartStreamParser {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private final InputStream in;
+    // "\r\n--" + boundary; telo dela se završava tačno pre ove sekvence
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+
+    private Part currentPart;
+    private boolean partDone;
+    private boolean finished;
+
+    public MultipartStreamParser(InputStream in, String boundary) {
+        this(in, boundary, DEFAULT_BUFFER_SIZE);
+    }
+
+    public MultipartStreamParser(InputStream in, String boundary, int bufferSize) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("Invalid multipart boundary");
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(bufferSize, MAX_HEADER_SIZE + delimiter.length)];
+
+        // Prvi boundary nema CRLF ispred sebe; dodajemo ga da bi preambula bila "deo" kao i svaki drugi
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    /**
+     * Boundary iz Content-Type zaglavlja (multipart/form-data; boundary=...), ili null.
+     */
+    public static String extractBoundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String boundary = trimmed.substring("boundary=".length());
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary.isEmpty() ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sledeći deo, ili null posle završnog boundary-ja.
+     *
+     * @throws IOException ako se stream završi pre završnog boundary-ja ili su zaglavlja neispravna
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // Ostatak prethodnog dela (ili preambula pre prvog boundary-ja) se preskače
+        skipCurrentBody();
+
+        // Posle boundary-ja sledi "--" (kraj) ili CRLF pa zaglavlja sledećeg dela
+        require(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            head += 2;
+            return null;
+        }
+        // Transport padding (razmaci) posle boundary-ja je dozvoljen
+        while (buffer[head] == ' ' || buffer[head] == '\t') {
+            head++;
+            require(2);
+        }
+        if (buffer[head] != '\r' || buffer[head + 1] != '\n') {
+            throw new IOException("Malformed multipart boundary line");
+        }
+        head += 2;
+
+        currentPart = parseHeaders(readHeaderBlock());
+        partDone = false;
+        return currentPart;
+    }
+
+    private void skipCurrentBody() throws IOException {
+        byte[] scratch = new byte[8192];
+        while (readBody(scratch, 0, scratch.length) != -1) {
+            // preskoči
+        }
+    }
+
+    private String readHeaderBlock() throws IOException {
+        while (true) {
+            int end = indexOf(HEADER_END, head, tail);
+            if (end >= 0) {
+                String headers = new String(buffer, head, end - head, StandardCharsets.UTF_8);
+                head = end + HEADER_END.length;
+                return headers;
+            }
+            if (tail - head >= MAX_HEADER_SIZE) {
+                throw new IOException("Multipart part headers exceed " + MAX_HEADER_SIZE + " bytes");
+            }
+            if (!fill()) {
+                throw new EOFException("Multipart stream ended inside part headers");
+            }
+        }
+    }
+
+    private Part parseHeaders(String block) {
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        for (String line : block.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (header.equals("content-disposition")) {
+                name = dispositionParameter(value, "name");
+                filename = dispositionParameter(value, "filename");
+            } else if (header.equals("content-type")) {
+                contentType = value;
+            }
+        }
+        return new Part(name, filename, contentType);
+    }
+
+    private static String dispositionParameter(String disposition, String parameter) {
+        for (String token : disposition.split(";")) {
+            String trimmed = token.trim();
+            int equals = trimmed.indexOf('=');
+            if (equals > 0 && trimmed.substring(0, equals).trim().equalsIgnoreCase(parameter)) {
+                String value = trimmed.substring(equals + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Čita telo tekućeg dela do sledećeg boundary-ja. Bajtovi koji bi mogli biti početak
+     * boundary-ja se zadržavaju u baferu dok se ne dočita dovoljno da se to proveri.
+     */
+    private int readBody(byte[] target, int offset, int length) throws IOException {
+        if (partDone) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        while (true) {
+            int match = indexOf(delimiter, head, tail);
+            if (match == head) {
+                head += delimiter.length;
+                partDone = true;
+                return -1;
+            }
+            int safe = match >= 0 ? match - head : tail - head - (delimiter.length - 1);
+            if (safe > 0) {
+                int n = Math.min(length, safe);
+                System.arraycopy(buffer, head, target, offset, n);
+                head += n;
+                return n;
+            }
+            if (!fill()) {
+                throw new EOFException("Multipart stream ended before the closing boundary");
+            }
+        }
+    }
+
+    private void require(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                throw new EOFException("Multipart stream ended before the closing boundary");
+            }
+        }
+    }
+
+    /**
+     * Pomeri nepročitane bajtove na početak bafera i dopuni ga iz stream-a.
+     *
+     * @return false na kraju stream-a
+     */
+    private boolean fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read == -1) {
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        int last = to - pattern.length;
+        byte first = pattern[0];
+        for (int i = from; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && buffer[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Jedan deo multipart tela. Sadržaj je dostupan samo dok se ne pozove sledeći nextPart().
+     */
+    public final class Part {
+
+        private final String name;
+        private final String filename;
+        private final String contentType;
+
+        private Part(String name, String filename, String contentType) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public boolean isFile() {
+            return filename != null;
+        }
+
+        public InputStream getInputStream() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] single = new byte[1];
+                    int n = read(single, 0, 1);
+                    return n == -1 ? -1 : single[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] target, int offset, int length) throws IOException {
+                    if (currentPart != Part.this) {
+                        return -1;
+                    }
+                    return readBody(target, offset, length);
+                }
+            };
+        }
+
+        /**
+         * Sadržaj tekstualnog polja (UTF-8), ograničen na maxBytes.
+         */
+        public String readString(int maxBytes) throws IOException {
+            byte[] value = getInputStream().readNBytes(maxBytes + 1);
+            if (value.length > maxBytes) {
+                throw new IllegalArgumentException("Field '" + name + "' exceeds " + maxBytes + " bytes");
+            }
+            return new String(value, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.backend;
 
+import com.example.backend.config.EtlConfig;
 import com.example.backend.controller.EtlController;
 import com.example.backend.dto.EtlPopularVideoResponse;
+import com.example.backend.dto.EtlRunResponse;
 import com.example.backend.model.EtlPipelineResult;
 import com.example.backend.model.User;
 import com.example.backend.model.Video;
+import com.example.backend.repository.EtlPipelineResultEntryRepository;
 import com.example.backend.repository.EtlPipelineResultRepository;
 import com.example.backend.services.EtlPipelineService;
+import com.example.backend.services.EtlRun;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +18,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -27,6 +32,12 @@ class EtlControllerTest {
     @Mock
     private EtlPipelineResultRepository etlPipelineResultRepository;
 
+    @Mock
+    private EtlPipelineResultEntryRepository etlPipelineResultEntryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     // Rucno kreiran EtlPipelineService (Mockito ne moze da ga mokuje na Java 25)
     private EtlPipelineService etlPipelineService;
 
@@ -43,16 +54,18 @@ class EtlControllerTest {
     void setUp() {
         pipelineWasRun = false;
 
-        // Kreiranje EtlPipelineService sa null zavisnostima
+        // EtlPipelineService sa mock repozitorijumima rezultata; submit() je zamenjen
         // jer ga koristimo samo za runPipeline() test
-        etlPipelineService = new EtlPipelineService(null, null, null) {
+        etlPipelineService = new EtlPipelineService(null, null, etlPipelineResultRepository,
+                etlPipelineResultEntryRepository, null, transactionManager, new EtlConfig()) {
             @Override
-            public void runEtlPipeline() {
+            public EtlRun submit(String trigger) {
                 pipelineWasRun = true;
+                return new EtlRun("run-1", trigger);
             }
         };
 
-        etlController = new EtlController(etlPipelineResultRepository, etlPipelineService);
+        etlController = new EtlController(etlPipelineService);
 
         testUser = new User();
         testUser.setId(1L);
@@ -102,15 +115,15 @@ class EtlControllerTest {
     void testGetPopularVideos_WithResults_ReturnsTop3() {
         // Given - postoji ETL rezultat sa 3 videa
         EtlPipelineResult etlResult = new EtlPipelineResult(LocalDateTime.now());
-        etlResult.setVideo1(video1);
-        etlResult.setScore1(70.0);
-        etlResult.setVideo2(video2);
-        etlResult.setScore2(35.0);
-        etlResult.setVideo3(video3);
-        etlResult.setScore3(14.0);
+        etlResult.setId(10L);
+        etlResult.addEntry(video1, 70.0);
+        etlResult.addEntry(video2, 35.0);
+        etlResult.addEntry(video3, 14.0);
 
         when(etlPipelineResultRepository.findTopByOrderByExecutedAtDesc())
                 .thenReturn(Optional.of(etlResult));
+        when(etlPipelineResultEntryRepository.findWithVideosByResultId(10L))
+                .thenReturn(etlResult.getEntries());
 
         // When
         ResponseEntity<?> response = etlController.getPopularVideos();
@@ -144,12 +157,13 @@ class EtlControllerTest {
     void testGetPopularVideos_WithPartialResults_OnlyOneVideo() {
         // Given - ETL rezultat sa samo jednim videom
         EtlPipelineResult etlResult = new EtlPipelineResult(LocalDateTime.now());
-        etlResult.setVideo1(video1);
-        etlResult.setScore1(42.0);
-        // video2 i video3 su null
+        etlResult.setId(10L);
+        etlResult.addEntry(video1, 42.0);
 
         when(etlPipelineResultRepository.findTopByOrderByExecutedAtDesc())
                 .thenReturn(Optional.of(etlResult));
+        when(etlPipelineResultEntryRepository.findWithVideosByResultId(10L))
+                .thenReturn(etlResult.getEntries());
 
         // When
         ResponseEntity<?> response = etlController.getPopularVideos();
@@ -167,13 +181,14 @@ class EtlControllerTest {
     void testGetPopularVideos_WithPartialResults_TwoVideos() {
         // Given - ETL rezultat sa 2 videa
         EtlPipelineResult etlResult = new EtlPipelineResult(LocalDateTime.now());
-        etlResult.setVideo1(video1);
-        etlResult.setScore1(70.0);
-        etlResult.setVideo2(video2);
-        etlResult.setScore2(35.0);
+        etlResult.setId(10L);
+        etlResult.addEntry(video1, 70.0);
+        etlResult.addEntry(video2, 35.0);
 
         when(etlPipelineResultRepository.findTopByOrderByExecutedAtDesc())
                 .thenReturn(Optional.of(etlResult));
+        when(etlPipelineResultEntryRepository.findWithVideosByResultId(10L))
+                .thenReturn(etlResult.getEntries());
 
         // When
         ResponseEntity<?> response = etlController.getPopularVideos();
@@ -186,14 +201,31 @@ class EtlControllerTest {
     }
 
     @Test
-    void testRunPipeline_Returns200() {
+    void testRunPipeline_Returns202WithRunStatus() {
         // Given & When
-        ResponseEntity<String> response = etlController.runPipeline();
+        ResponseEntity<EtlRunResponse> response = etlController.runPipeline();
 
         // Then
-        assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("ETL pipeline uspesno pokrenut.", response.getBody());
-        assertTrue(pipelineWasRun, "runEtlPipeline() je trebao biti pozvan");
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/etl/runs/run-1", response.getHeaders().getLocation().toString());
+        assertNotNull(response.getBody());
+        assertEquals("run-1", response.getBody().runId());
+        assertEquals("QUEUED", response.getBody().state());
+        assertTrue(pipelineWasRun, "submit() je trebao biti pozvan");
+    }
+
+    @Test
+    void testGetRun_UnknownRun_Returns404() {
+        ResponseEntity<EtlRunResponse> response = etlController.getRun("unknown");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testCancelRun_UnknownRun_Returns404() {
+        ResponseEntity<?> response = etlController.cancelRun("unknown");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     @Test
@@ -208,4 +240,25 @@ class EtlControllerTest {
         // Then - verifikuje da se poziva findTopByOrderByExecutedAtDesc
         verify(etlPipelineResultRepository, times(1)).findTopByOrderByExecutedAtDesc();
     }
+
+    @Test
+    void testGetPopularVideos_ServedFromCacheWithinTtl() {
+        // Given
+        EtlPipelineResult etlResult = new EtlPipelineResult(LocalDateTime.now());
+        etlResult.setId(10L);
+        etlResult.addEntry(video1, 70.0);
+        when(etlPipelineResultRepository.findTopByOrderByExecutedAtDesc())
+                .thenReturn(Optional.of(etlResult));
+        when(etlPipelineResultEntryRepository.findWithVideosByResultId(10L))
+                .thenReturn(etlResult.getEntries());
+
+        // When - vise zahteva zaredom
+        for (int i = 0; i < 5; i++) {
+            etlController.getPopularVideos();
+        }
+
+        // Then - baza se cita samo za prvi
+        verify(etlPipelineResultRepository, times(1)).findTopByOrderByExecutedAtDesc();
+        verify(etlPipelineResultEntryRepository, times(1)).findWithVideosByResultId(10L);
+    }
 }
@@ -1,5 +1,7 @@
 package com.example.backend;
 
+import com.example.backend.config.ViewRetentionConfig;
+import com.example.backend.dto.EtlPopularVideoResponse;
 import com.example.backend.model.EtlPipelineResult;
 import com.example.backend.model.User;
 import com.example.backend.model.Video;
@@ -9,6 +11,7 @@ import com.example.backend.repository.UserRepository;
 import com.example.backend.repository.VideoRepository;
 import com.example.backend.repository.VideoViewRepository;
 import com.example.backend.services.EtlPipelineService;
+import com.example.backend.services.ViewRollupService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +45,12 @@ class EtlPipelineIntegrationTest {
     @Autowired
     private EtlPipelineResultRepository etlPipelineResultRepository;
 
+    @Autowired
+    private ViewRollupService viewRollupService;
+
+    @Autowired
+    private ViewRetentionConfig viewRetentionConfig;
+
     private User testUser;
 
     @BeforeEach
@@ -81,19 +90,19 @@ class EtlPipelineIntegrationTest {
         assertNotNull(etlResult.getExecutedAt());
 
         // Top 1: Popular Video (10 * 7 = 70)
-        assertNotNull(etlResult.getVideo1());
-        assertEquals(v1.getId(), etlResult.getVideo1().getId());
-        assertEquals(70.0, etlResult.getScore1(), 0.01);
+        assertNotNull(etlResult.getEntries().get(0).getVideo());
+        assertEquals(v1.getId(), etlResult.getEntries().get(0).getVideo().getId());
+        assertEquals(70.0, etlResult.getEntries().get(0).getScore(), 0.01);
 
         // Top 2: Medium Video (5 * 7 = 35)
-        assertNotNull(etlResult.getVideo2());
-        assertEquals(v2.getId(), etlResult.getVideo2().getId());
-        assertEquals(35.0, etlResult.getScore2(), 0.01);
+        assertNotNull(etlResult.getEntries().get(1).getVideo());
+        assertEquals(v2.getId(), etlResult.getEntries().get(1).getVideo().getId());
+        assertEquals(35.0, etlResult.getEntries().get(1).getScore(), 0.01);
 
         // Top 3: Unpopular Video (2 * 7 = 14)
-        assertNotNull(etlResult.getVideo3());
-        assertEquals(v3.getId(), etlResult.getVideo3().getId());
-        assertEquals(14.0, etlResult.getScore3(), 0.01);
+        assertNotNull(etlResult.getEntries().get(2).getVideo());
+        assertEquals(v3.getId(), etlResult.getEntries().get(2).getVideo().getId());
+        assertEquals(14.0, etlResult.getEntries().get(2).getScore(), 0.01);
     }
 
     @Test
@@ -112,7 +121,7 @@ class EtlPipelineIntegrationTest {
         // Then - ukupno: 21 + 14 + 20 + 2 = 57
         Optional<EtlPipelineResult> result = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc();
         assertTrue(result.isPresent());
-        assertEquals(57.0, result.get().getScore1(), 0.01);
+        assertEquals(57.0, result.get().getEntries().get(0).getScore(), 0.01);
     }
 
     @Test
@@ -126,9 +135,7 @@ class EtlPipelineIntegrationTest {
         // Then - rezultat postoji ali nema videa
         Optional<EtlPipelineResult> result = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc();
         assertTrue(result.isPresent());
-        assertNull(result.get().getVideo1());
-        assertNull(result.get().getVideo2());
-        assertNull(result.get().getVideo3());
+        assertTrue(result.get().getEntries().isEmpty());
     }
 
     @Test
@@ -149,10 +156,10 @@ class EtlPipelineIntegrationTest {
         // Then - recentVideo (21) je iznad oldVideo (10)
         Optional<EtlPipelineResult> result = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc();
         assertTrue(result.isPresent());
-        assertEquals(recentVideo.getId(), result.get().getVideo1().getId());
-        assertEquals(21.0, result.get().getScore1(), 0.01);
-        assertEquals(oldVideo.getId(), result.get().getVideo2().getId());
-        assertEquals(10.0, result.get().getScore2(), 0.01);
+        assertEquals(recentVideo.getId(), result.get().getEntries().get(0).getVideo().getId());
+        assertEquals(21.0, result.get().getEntries().get(0).getScore(), 0.01);
+        assertEquals(oldVideo.getId(), result.get().getEntries().get(1).getVideo().getId());
+        assertEquals(10.0, result.get().getEntries().get(1).getScore(), 0.01);
     }
 
     @Test
@@ -171,9 +178,9 @@ class EtlPipelineIntegrationTest {
         // Then
         Optional<EtlPipelineResult> result = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc();
         assertTrue(result.isPresent());
-        assertNotNull(result.get().getVideo1());
-        assertNotNull(result.get().getVideo2());
-        assertNull(result.get().getVideo3()); // treci nema pregleda
+        assertNotNull(result.get().getEntries().get(0).getVideo());
+        assertNotNull(result.get().getEntries().get(1).getVideo());
+        assertEquals(2, result.get().getEntries().size()); // treci nema pregleda
     }
 
     @Test
@@ -193,13 +200,56 @@ class EtlPipelineIntegrationTest {
         assertTrue(result.isPresent());
 
         // Poslednji ETL run vidi ukupno 8 pregleda danas: 8 * 7 = 56
-        assertEquals(56.0, result.get().getScore1(), 0.01);
+        assertEquals(56.0, result.get().getEntries().get(0).getScore(), 0.01);
 
         // Ukupno 2 rezultata u bazi
         List<EtlPipelineResult> allResults = etlPipelineResultRepository.findAll();
         assertEquals(2, allResults.size());
     }
 
+    @Test
+    void testGetPopularVideos_ReflectsLatestRunWithAuthors() {
+        // Given
+        Video video = createVideo("Cached Popular Video");
+        addViews(video, 2, 0);
+
+        // When
+        etlPipelineService.runEtlPipeline();
+        EtlPopularVideoResponse response = etlPipelineService.getPopularVideos();
+
+        // Then - novi rezultat je odmah vidljiv, sa autorom videa
+        EtlPipelineResult latest = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc().orElseThrow();
+        assertEquals(latest.getExecutedAt(), response.getExecutedAt());
+        assertEquals(1, response.getVideos().size());
+        assertEquals(video.getId(), response.getVideos().get(0).getVideoId());
+        assertEquals("etltestuser", response.getVideos().get(0).getUsername());
+        assertEquals(14.0, response.getVideos().get(0).getPopularityScore(), 0.01);
+    }
+
+    @Test
+    void testRunEtlPipeline_CountsRollupAndUncompactedViews() {
+        // Given - deo pregleda je vec kompaktovan u video_view_daily, deo je upisan posle kompakcije
+        // (npr. flush druge instance); ETL mora da vidi oba
+        Video video = createVideo("Rollup Video");
+        addViews(video, 2, 2);
+        int originalGrace = viewRetentionConfig.getCompactionGraceMinutes();
+        viewRetentionConfig.setCompactionGraceMinutes(0);
+        try {
+            viewRollupService.compact();
+        } finally {
+            viewRetentionConfig.setCompactionGraceMinutes(originalGrace);
+        }
+        addViews(video, 4, 0);
+
+        // When
+        etlPipelineService.runEtlPipeline();
+
+        // Then - 4 * 7 + 2 * 6 = 40
+        EtlPipelineResult result = etlPipelineResultRepository.findTopByOrderByExecutedAtDesc().orElseThrow();
+        assertEquals(video.getId(), result.getEntries().get(0).getVideo().getId());
+        assertEquals(40.0, result.getEntries().get(0).getScore(), 0.01);
+    }
+
     @Test
     void testRunEtlPipeline_MoreThan3Videos_OnlyTop3Stored() {
         // Given - 5 videa
@@ -223,12 +273,12 @@ class EtlPipelineIntegrationTest {
         assertTrue(result.isPresent());
 
         EtlPipelineResult etlResult = result.get();
-        assertEquals(v2.getId(), etlResult.getVideo1().getId());
-        assertEquals(70.0, etlResult.getScore1(), 0.01);
-        assertEquals(v5.getId(), etlResult.getVideo2().getId());
-        assertEquals(56.0, etlResult.getScore2(), 0.01);
-        assertEquals(v3.getId(), etlResult.getVideo3().getId());
-        assertEquals(35.0, etlResult.getScore3(), 0.01);
+        assertEquals(v2.getId(), etlResult.getEntries().get(0).getVideo().getId());
+        assertEquals(70.0, etlResult.getEntries().get(0).getScore(), 0.01);
+        assertEquals(v5.getId(), etlResult.getEntries().get(1).getVideo().getId());
+        assertEquals(56.0, etlResult.getEntries().get(1).getScore(), 0.01);
+        assertEquals(v3.getId(), etlResult.getEntries().get(2).getVideo().getId());
+        assertEquals(35.0, etlResult.getEntries().get(2).getScore(), 0.01);
     }
 
     // ===== Helper metode =====
@@ -249,6 +299,7 @@ class EtlPipelineIntegrationTest {
 
     /**
      * Dodaje odredjeni broj pregleda za video, postavljajuci viewedAt na pre daysAgo dana.
+     * Kao flush ViewCountBufferService-a (bilo koje instance): red u video_views.
      */
     private void addViews(Video video, int count, int daysAgo) {
         for (int i = 0; i < count; i++) {
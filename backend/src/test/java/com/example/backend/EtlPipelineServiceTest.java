@@ -1,43 +1,62 @@
 package com.example.backend;
 
+import com.example.backend.config.EtlConfig;
+import com.example.backend.dto.EtlRunResponse;
 import com.example.backend.model.EtlPipelineResult;
 import com.example.backend.model.User;
 import com.example.backend.model.Video;
 import com.example.backend.repository.EtlPipelineResultRepository;
+import com.example.backend.repository.JobLockRepository;
 import com.example.backend.repository.VideoRepository;
-import com.example.backend.repository.VideoViewRepository;
 import com.example.backend.services.EtlPipelineService;
+import com.example.backend.services.EtlRun;
+import com.example.backend.services.JobLockService;
+import com.example.backend.services.ViewRollupService;
+import com.example.backend.services.ViewRollupService.DailyCountConsumer;
+import com.example.backend.services.ViewWindowAggregator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class EtlPipelineServiceTest {
 
-    @Mock
-    private VideoViewRepository videoViewRepository;
-
     @Mock
     private VideoRepository videoRepository;
 
     @Mock
     private EtlPipelineResultRepository etlPipelineResultRepository;
 
-    @InjectMocks
+    @Mock
+    private JobLockRepository jobLockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ViewRollupService viewRollupService;
+
+    // Dnevni brojevi pregleda u bazi [videoId, epochDay, broj] - transform faza ih cita po opsezima
+    // videa preko ViewRollupService-a
+    private final List<long[]> dailyViews = new ArrayList<>();
+
+    private ViewWindowAggregator viewWindowAggregator;
+    private JobLockService jobLockService;
     private EtlPipelineService etlPipelineService;
 
     private User testUser;
@@ -47,6 +66,28 @@ class EtlPipelineServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(videoRepository.findMinId()).thenAnswer(invocation ->
+                dailyViews.stream().mapToLong(row -> row[0]).boxed().min(Long::compare).orElse(null));
+        lenient().when(videoRepository.findMaxId()).thenAnswer(invocation ->
+                dailyViews.stream().mapToLong(row -> row[0]).boxed().max(Long::compare).orElse(null));
+        lenient().doAnswer(invocation -> {
+            long fromId = invocation.getArgument(1);
+            long toId = invocation.getArgument(2);
+            DailyCountConsumer consumer = invocation.getArgument(3);
+            for (long[] row : dailyViews) {
+                if (row[0] >= fromId && row[0] < toId) {
+                    consumer.accept(row[0], row[1], row[2]);
+                }
+            }
+            return null;
+        }).when(viewRollupService).readWindowCounts(any(), anyLong(), anyLong(), any());
+        viewWindowAggregator = new ViewWindowAggregator(viewRollupService, videoRepository);
+        // Lock izmedju instanci je uvek slobodan
+        lenient().when(jobLockRepository.tryAcquire(any(), any(), any(), any())).thenReturn(1);
+        jobLockService = new JobLockService(jobLockRepository, transactionManager);
+        etlPipelineService = new EtlPipelineService(viewWindowAggregator, videoRepository, etlPipelineResultRepository,
+                null, jobLockService, transactionManager, new EtlConfig());
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -69,13 +110,18 @@ class EtlPipelineServiceTest {
         video3.setTitle("Video 3");
         video3.setUser(testUser);
         video3.setViewCount(30L);
+
+        // Videi rang liste se ucitavaju jednim findByIdIn
+        Map<Long, Video> videos = Map.of(1L, video1, 2L, video2, 3L, video3);
+        lenient().when(videoRepository.findByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(videos::containsKey).map(videos::get).toList();
+        });
     }
 
     @Test
     void testRunEtlPipeline_NoViews_SavesEmptyResult() {
         // Given - nema pregleda u poslednjih 7 dana
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(new ArrayList<>());
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -86,24 +132,15 @@ class EtlPipelineServiceTest {
 
         EtlPipelineResult saved = captor.getValue();
         assertNotNull(saved.getExecutedAt());
-        assertNull(saved.getVideo1());
-        assertNull(saved.getVideo2());
-        assertNull(saved.getVideo3());
-        assertNull(saved.getScore1());
-        assertNull(saved.getScore2());
-        assertNull(saved.getScore3());
+        assertTrue(saved.getEntries().isEmpty());
     }
 
     @Test
     void testRunEtlPipeline_SingleVideo_SavesAsTop1() {
         // Given - jedan video sa pregledima danas
         LocalDate today = LocalDate.now();
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, today, 5L}); // videoId=1, danas, 5 pregleda
+        addViews(1L, today, 5); // videoId=1, danas, 5 pregleda
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -113,24 +150,19 @@ class EtlPipelineServiceTest {
         verify(etlPipelineResultRepository).save(captor.capture());
 
         EtlPipelineResult saved = captor.getValue();
-        assertNotNull(saved.getVideo1());
-        assertEquals(1L, saved.getVideo1().getId());
+        assertNotNull(saved.getEntries().get(0).getVideo());
+        assertEquals(1L, saved.getEntries().get(0).getVideo().getId());
         // 5 pregleda * tezina 7 (danas) = 35.0
-        assertEquals(35.0, saved.getScore1(), 0.01);
-        assertNull(saved.getVideo2());
-        assertNull(saved.getVideo3());
+        assertEquals(35.0, saved.getEntries().get(0).getScore(), 0.01);
+        assertEquals(1, saved.getEntries().size());
     }
 
     @Test
     void testRunEtlPipeline_WeightCalculation_TodayWeight7() {
         // Given - pregledi danas trebaju imati tezinu 7
         LocalDate today = LocalDate.now();
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, today, 10L}); // 10 pregleda danas
+        addViews(1L, today, 10); // 10 pregleda danas
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -138,19 +170,15 @@ class EtlPipelineServiceTest {
         // Then - 10 * 7 = 70
         ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
         verify(etlPipelineResultRepository).save(captor.capture());
-        assertEquals(70.0, captor.getValue().getScore1(), 0.01);
+        assertEquals(70.0, captor.getValue().getEntries().get(0).getScore(), 0.01);
     }
 
     @Test
     void testRunEtlPipeline_WeightCalculation_YesterdayWeight7() {
         // Given - pregledi od juce trebaju imati tezinu 7 (8 - 1 = 7)
         LocalDate yesterday = LocalDate.now().minusDays(1);
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, yesterday, 10L});
+        addViews(1L, yesterday, 10);
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -158,19 +186,15 @@ class EtlPipelineServiceTest {
         // Then - 10 * 7 (8-1) = 70
         ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
         verify(etlPipelineResultRepository).save(captor.capture());
-        assertEquals(70.0, captor.getValue().getScore1(), 0.01);
+        assertEquals(70.0, captor.getValue().getEntries().get(0).getScore(), 0.01);
     }
 
     @Test
     void testRunEtlPipeline_WeightCalculation_6DaysAgoWeight2() {
         // Given - pregledi od pre 6 dana trebaju imati tezinu 2 (8 - 6 = 2)
         LocalDate sixDaysAgo = LocalDate.now().minusDays(6);
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, sixDaysAgo, 10L});
+        addViews(1L, sixDaysAgo, 10);
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -178,29 +202,23 @@ class EtlPipelineServiceTest {
         // Then - 10 * 2 (8-6) = 20
         ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
         verify(etlPipelineResultRepository).save(captor.capture());
-        assertEquals(20.0, captor.getValue().getScore1(), 0.01);
+        assertEquals(20.0, captor.getValue().getEntries().get(0).getScore(), 0.01);
     }
 
     @Test
     void testRunEtlPipeline_Top3Selection_CorrectOrder() {
         // Given - 4 videa, trebaju se sacuvati samo top 3
         LocalDate today = LocalDate.now();
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, today, 2L});  // video1: 2*7 = 14
-        viewData.add(new Object[]{2L, today, 5L});  // video2: 5*7 = 35
-        viewData.add(new Object[]{3L, today, 10L}); // video3: 10*7 = 70
-        viewData.add(new Object[]{4L, today, 1L});  // video4: 1*7 = 7 (ne ulazi u top 3)
+        addViews(1L, today, 2);  // video1: 2*7 = 14
+        addViews(2L, today, 5);  // video2: 5*7 = 35
+        addViews(3L, today, 10); // video3: 10*7 = 70
+        addViews(4L, today, 1);  // video4: 1*7 = 7 (ne ulazi u top 3)
 
         Video video4 = new Video();
         video4.setId(4L);
         video4.setTitle("Video 4");
         video4.setUser(testUser);
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(3L)).thenReturn(Optional.of(video3));
-        when(videoRepository.findById(2L)).thenReturn(Optional.of(video2));
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -210,12 +228,12 @@ class EtlPipelineServiceTest {
         verify(etlPipelineResultRepository).save(captor.capture());
 
         EtlPipelineResult saved = captor.getValue();
-        assertEquals(3L, saved.getVideo1().getId()); // #1: video3 sa score 70
-        assertEquals(70.0, saved.getScore1(), 0.01);
-        assertEquals(2L, saved.getVideo2().getId()); // #2: video2 sa score 35
-        assertEquals(35.0, saved.getScore2(), 0.01);
-        assertEquals(1L, saved.getVideo3().getId()); // #3: video1 sa score 14
-        assertEquals(14.0, saved.getScore3(), 0.01);
+        assertEquals(3L, saved.getEntries().get(0).getVideo().getId()); // #1: video3 sa score 70
+        assertEquals(70.0, saved.getEntries().get(0).getScore(), 0.01);
+        assertEquals(2L, saved.getEntries().get(1).getVideo().getId()); // #2: video2 sa score 35
+        assertEquals(35.0, saved.getEntries().get(1).getScore(), 0.01);
+        assertEquals(1L, saved.getEntries().get(2).getVideo().getId()); // #3: video1 sa score 14
+        assertEquals(14.0, saved.getEntries().get(2).getScore(), 0.01);
     }
 
     @Test
@@ -225,14 +243,10 @@ class EtlPipelineServiceTest {
         LocalDate yesterday = LocalDate.now().minusDays(1);
         LocalDate twoDaysAgo = LocalDate.now().minusDays(2);
 
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, today, 3L});      // 3 * 7 = 21
-        viewData.add(new Object[]{1L, yesterday, 5L});   // 5 * 7 (8-1) = 35
-        viewData.add(new Object[]{1L, twoDaysAgo, 2L});  // 2 * 6 (8-2) = 12
+        addViews(1L, today, 3);      // 3 * 7 = 21
+        addViews(1L, yesterday, 5);   // 5 * 7 (8-1) = 35
+        addViews(1L, twoDaysAgo, 2);  // 2 * 6 (8-2) = 12
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -240,21 +254,16 @@ class EtlPipelineServiceTest {
         // Then - ukupno: 21 + 35 + 12 = 68
         ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
         verify(etlPipelineResultRepository).save(captor.capture());
-        assertEquals(68.0, captor.getValue().getScore1(), 0.01);
+        assertEquals(68.0, captor.getValue().getEntries().get(0).getScore(), 0.01);
     }
 
     @Test
     void testRunEtlPipeline_TwoVideos_SavesOnlyTwo() {
         // Given - samo 2 videa
         LocalDate today = LocalDate.now();
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, today, 5L});  // video1: 35
-        viewData.add(new Object[]{2L, today, 10L}); // video2: 70
+        addViews(1L, today, 5);  // video1: 35
+        addViews(2L, today, 10); // video2: 70
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(2L)).thenReturn(Optional.of(video2));
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -264,11 +273,11 @@ class EtlPipelineServiceTest {
         verify(etlPipelineResultRepository).save(captor.capture());
 
         EtlPipelineResult saved = captor.getValue();
-        assertNotNull(saved.getVideo1()); // #1: video2
-        assertEquals(2L, saved.getVideo1().getId());
-        assertNotNull(saved.getVideo2()); // #2: video1
-        assertEquals(1L, saved.getVideo2().getId());
-        assertNull(saved.getVideo3());    // nema treceg
+        assertNotNull(saved.getEntries().get(0).getVideo()); // #1: video2
+        assertEquals(2L, saved.getEntries().get(0).getVideo().getId());
+        assertNotNull(saved.getEntries().get(1).getVideo()); // #2: video1
+        assertEquals(1L, saved.getEntries().get(1).getVideo().getId());
+        assertEquals(2, saved.getEntries().size()); // nema treceg
     }
 
     @Test
@@ -277,14 +286,9 @@ class EtlPipelineServiceTest {
         LocalDate today = LocalDate.now();
         LocalDate sixDaysAgo = LocalDate.now().minusDays(6);
 
-        List<Object[]> viewData = new ArrayList<>();
-        viewData.add(new Object[]{1L, sixDaysAgo, 10L}); // video1: 10 * 2 (8-6) = 20
-        viewData.add(new Object[]{2L, today, 5L});        // video2: 5 * 7 = 35
+        addViews(1L, sixDaysAgo, 10); // video1: 10 * 2 (8-6) = 20
+        addViews(2L, today, 5);        // video2: 5 * 7 = 35
 
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(viewData);
-        when(videoRepository.findById(2L)).thenReturn(Optional.of(video2));
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(video1));
 
         // When
         etlPipelineService.runEtlPipeline();
@@ -294,18 +298,73 @@ class EtlPipelineServiceTest {
         verify(etlPipelineResultRepository).save(captor.capture());
 
         EtlPipelineResult saved = captor.getValue();
-        assertEquals(2L, saved.getVideo1().getId()); // video2 je #1
-        assertEquals(35.0, saved.getScore1(), 0.01);
-        assertEquals(1L, saved.getVideo2().getId()); // video1 je #2
-        assertEquals(20.0, saved.getScore2(), 0.01);
+        assertEquals(2L, saved.getEntries().get(0).getVideo().getId()); // video2 je #1
+        assertEquals(35.0, saved.getEntries().get(0).getScore(), 0.01);
+        assertEquals(1L, saved.getEntries().get(1).getVideo().getId()); // video1 je #2
+        assertEquals(20.0, saved.getEntries().get(1).getScore(), 0.01);
+    }
+
+    @Test
+    void testRunEtlPipeline_ViewsOlderThanWindow_Ignored() {
+        // Given - pregledi od pre 7 dana su van prozora
+        addViews(1L, LocalDate.now().minusDays(7), 100);
+        addViews(2L, LocalDate.now(), 1);
+
+        // When
+        etlPipelineService.runEtlPipeline();
+
+        // Then - samo video2 (1 * 7 = 7)
+        ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
+        verify(etlPipelineResultRepository).save(captor.capture());
+        assertEquals(2L, captor.getValue().getEntries().get(0).getVideo().getId());
+        assertEquals(7.0, captor.getValue().getEntries().get(0).getScore(), 0.01);
+        assertEquals(1, captor.getValue().getEntries().size());
+    }
+
+    @Test
+    void testRunEtlPipeline_ConfigurableTopN() {
+        // Given - cuva se samo top 2
+        EtlConfig config = new EtlConfig();
+        config.setTopN(2);
+        etlPipelineService = new EtlPipelineService(viewWindowAggregator, videoRepository, etlPipelineResultRepository,
+                null, jobLockService, transactionManager, config);
+        addViews(1L, LocalDate.now(), 1);
+        addViews(2L, LocalDate.now(), 2);
+        addViews(3L, LocalDate.now(), 3);
+
+        // When
+        etlPipelineService.runEtlPipeline();
+
+        // Then - jedan batch upit za videe, dva mesta u rang listi
+        ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
+        verify(etlPipelineResultRepository).save(captor.capture());
+        verify(videoRepository, times(1)).findByIdIn(anyCollection());
+        assertEquals(2, captor.getValue().getEntries().size());
+        assertEquals(1, captor.getValue().getEntries().get(0).getPosition());
+        assertEquals(3L, captor.getValue().getEntries().get(0).getVideo().getId());
+        assertEquals(2, captor.getValue().getEntries().get(1).getPosition());
+        assertEquals(2L, captor.getValue().getEntries().get(1).getVideo().getId());
+    }
+
+    @Test
+    void testRunEtlPipeline_DeletedVideoSkipped() {
+        // Given - video 99 ima preglede, ali vise ne postoji
+        addViews(99L, LocalDate.now(), 100);
+        addViews(1L, LocalDate.now(), 1);
+
+        // When
+        etlPipelineService.runEtlPipeline();
+
+        // Then
+        ArgumentCaptor<EtlPipelineResult> captor = ArgumentCaptor.forClass(EtlPipelineResult.class);
+        verify(etlPipelineResultRepository).save(captor.capture());
+        assertEquals(1, captor.getValue().getEntries().size());
+        assertEquals(1L, captor.getValue().getEntries().get(0).getVideo().getId());
     }
 
     @Test
     void testRunEtlPipeline_ExecutedAtIsSetCorrectly() {
         // Given
-        when(videoViewRepository.countViewsPerVideoPerDay(any(LocalDateTime.class)))
-                .thenReturn(new ArrayList<>());
-
         LocalDateTime before = LocalDateTime.now();
 
         // When
@@ -322,4 +381,56 @@ class EtlPipelineServiceTest {
         assertFalse(executedAt.isBefore(before));
         assertFalse(executedAt.isAfter(after));
     }
+
+    @Test
+    void testRunEtlPipeline_RecordsPhaseDurationsAndReleasesLock() {
+        // Given
+        addViews(1L, LocalDate.now(), 1);
+
+        // When
+        EtlRun run = etlPipelineService.runEtlPipeline();
+
+        // Then
+        EtlRunResponse status = run.toResponse();
+        assertEquals("SUCCEEDED", status.state());
+        assertEquals(List.of("EXTRACT", "TRANSFORM", "LOAD"),
+                List.copyOf(status.phaseDurationsMs().keySet()));
+        assertNotNull(status.finishedAt());
+        verify(jobLockRepository).release(eq("etl-pipeline"), eq(jobLockService.getOwnerId()));
+    }
+
+    @Test
+    void testRunEtlPipeline_LockHeldByAnotherInstance_Skipped() {
+        // Given - druga instanca drzi lock
+        when(jobLockRepository.tryAcquire(any(), any(), any(), any())).thenReturn(0);
+        addViews(1L, LocalDate.now(), 1);
+
+        // When
+        EtlRun run = etlPipelineService.runEtlPipeline();
+
+        // Then - nista se ne upisuje, a tudji lock se ne oslobadja
+        assertEquals(EtlRun.State.SKIPPED, run.getState());
+        verify(etlPipelineResultRepository, never()).save(any());
+        verify(jobLockRepository, never()).release(any(), any());
+    }
+
+    @Test
+    void testGetRun_ReturnsFinishedRunById() {
+        EtlRun run = etlPipelineService.runEtlPipeline();
+
+        assertSame(run, etlPipelineService.getRun(run.getRunId()).orElseThrow());
+        assertTrue(etlPipelineService.getRun("unknown").isEmpty());
+    }
+
+    @Test
+    void testCancel_UnknownOrFinishedRun_Throws() {
+        EtlRun run = etlPipelineService.runEtlPipeline();
+
+        assertThrows(IllegalArgumentException.class, () -> etlPipelineService.cancel("unknown"));
+        assertThrows(IllegalStateException.class, () -> etlPipelineService.cancel(run.getRunId()));
+    }
+
+    private void addViews(long videoId, LocalDate day, long count) {
+        dailyViews.add(new long[]{videoId, day.toEpochDay(), count});
+    }
 }
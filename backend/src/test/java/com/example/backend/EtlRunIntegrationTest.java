@@ -0,0 +1,101 @@
+package com.example.backend;
+
+import com.example.backend.dto.EtlRunResponse;
+import com.example.backend.model.JobLock;
+import com.example.backend.repository.EtlPipelineResultRepository;
+import com.example.backend.repository.JobLockRepository;
+import com.example.backend.services.EtlPipelineService;
+import com.example.backend.services.EtlRun;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ETL izvrsavanje na pozadinskoj niti. Bez @Transactional - izvrsavanje radi u svojim transakcijama,
+ * pa test sam brise ono sto je upisano.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class EtlRunIntegrationTest {
+
+    @Autowired
+    private EtlPipelineService etlPipelineService;
+
+    @Autowired
+    private EtlPipelineResultRepository etlPipelineResultRepository;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @AfterEach
+    void tearDown() {
+        etlPipelineResultRepository.deleteAll();
+        jobLockRepository.deleteAll();
+    }
+
+    @Test
+    void testSubmit_RunsInBackgroundAndRecordsPhases() throws InterruptedException {
+        // When
+        EtlRun run = etlPipelineService.submit("TEST");
+        EtlRunResponse status = awaitFinished(run);
+
+        // Then
+        assertEquals("SUCCEEDED", status.state());
+        assertEquals("TEST", status.trigger());
+        assertEquals(List.of("EXTRACT", "TRANSFORM", "LOAD"), List.copyOf(status.phaseDurationsMs().keySet()));
+        assertNotNull(status.startedAt());
+        assertEquals(1, etlPipelineResultRepository.count());
+
+        // Status je dostupan preko runId-a, a lock je oslobodjen
+        assertSame(run, etlPipelineService.getRun(run.getRunId()).orElseThrow());
+        assertNull(jobLockRepository.findById("etl-pipeline").orElseThrow().getLockedUntil());
+    }
+
+    @Test
+    void testSubmit_LockHeldByAnotherInstance_Skipped() throws InterruptedException {
+        // Given - druga instanca drzi lock jos sat vremena
+        JobLock lock = new JobLock("etl-pipeline");
+        lock.setOwner("other-node:1");
+        lock.setLockedUntil(LocalDateTime.now().plusHours(1));
+        jobLockRepository.save(lock);
+
+        // When
+        EtlRunResponse status = awaitFinished(etlPipelineService.submit("TEST"));
+
+        // Then - nista nije upisano, tudji lock je ostao
+        assertEquals("SKIPPED", status.state());
+        assertEquals(0, etlPipelineResultRepository.count());
+        assertEquals("other-node:1", jobLockRepository.findById("etl-pipeline").orElseThrow().getOwner());
+    }
+
+    @Test
+    void testSubmit_ExpiredLockIsTakenOver() throws InterruptedException {
+        // Given - instanca koja je drzala lock je pala
+        JobLock lock = new JobLock("etl-pipeline");
+        lock.setOwner("crashed-node:1");
+        lock.setLockedUntil(LocalDateTime.now().minusMinutes(1));
+        jobLockRepository.save(lock);
+
+        // When
+        EtlRunResponse status = awaitFinished(etlPipelineService.submit("TEST"));
+
+        // Then
+        assertEquals("SUCCEEDED", status.state());
+        assertEquals(1, etlPipelineResultRepository.count());
+    }
+
+    private EtlRunResponse awaitFinished(EtlRun run) throws InterruptedException {
+        for (int i = 0; i < 100 && !run.isFinished(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(run.isFinished(), "ETL izvrsavanje se nije zavrsilo na vreme");
+        return run.toResponse();
+    }
+}
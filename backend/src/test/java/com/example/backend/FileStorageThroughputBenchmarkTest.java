@@ -0,0 +1,178 @@
+package com.example.backend;
+
+import com.example.backend.services.FileStorageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark propusnosti slanja video fajla:
+ * Files.readAllBytes (stari loadFile put) vs FileStorageService.transferTo (zero-copy u SocketChannel).
+ *
+ * Fajl se salje kroz loopback TCP socket da bi se simulirao egress ka klijentu.
+ * Pored MB/s meri se i koliko heap memorije alocira nit koja salje fajl.
+ *
+ * Pokretanje (pise 250 MB privremenih fajlova, pa je iskljucen po default-u):
+ *   mvn test -Dtest=FileStorageThroughputBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FileStorageThroughputBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 5;
+
+    @TempDir
+    Path tempDir;
+
+    private final FileStorageService fileStorageService = new FileStorageService();
+
+    @Test
+    void benchmark50MB() throws Exception {
+        runBenchmark(50);
+    }
+
+    @Test
+    void benchmark200MB() throws Exception {
+        runBenchmark(200);
+    }
+
+    private void runBenchmark(int sizeMb) throws Exception {
+        Path file = createFile(sizeMb);
+        long size = Files.size(file);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                sendReadAllBytes(server, file);
+                sendTransferTo(server, file, size);
+            }
+
+            Result readAllBytes = new Result();
+            Result transferTo = new Result();
+            for (int i = 0; i < ITERATIONS; i++) {
+                readAllBytes.add(sendReadAllBytes(server, file), size);
+                transferTo.add(sendTransferTo(server, file, size), size);
+            }
+
+            System.out.println();
+            System.out.println("========== FILE THROUGHPUT BENCHMARK: " + sizeMb + " MB ==========");
+            System.out.printf("%-14s %12s %18s%n", "Strategija", "MB/s", "Heap alokacija (MB)");
+            System.out.printf("%-14s %12.1f %18.1f%n", "readAllBytes", readAllBytes.mbPerSecond(), readAllBytes.avgAllocatedMb());
+            System.out.printf("%-14s %12.1f %18.1f%n", "transferTo", transferTo.mbPerSecond(), transferTo.avgAllocatedMb());
+            System.out.println("==========================================================");
+
+            // readAllBytes mora da alocira bar ceo fajl na heap-u, transferTo ne
+            assertTrue(readAllBytes.avgAllocatedMb() >= sizeMb);
+            assertTrue(transferTo.avgAllocatedMb() < sizeMb / 10.0,
+                    "transferTo ne bi trebao da kopira fajl kroz heap");
+        }
+    }
+
+    private Sample sendReadAllBytes(ServerSocketChannel server, Path file) throws Exception {
+        return send(server, client -> {
+            byte[] data = Files.readAllBytes(file);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                client.write(buffer);
+            }
+            return data.length;
+        });
+    }
+
+    private Sample sendTransferTo(ServerSocketChannel server, Path file, long size) throws Exception {
+        return send(server, client -> fileStorageService.transferTo(file, 0, size, client));
+    }
+
+    private Sample send(ServerSocketChannel server, Sender sender) throws Exception {
+        CompletableFuture<Long> drained = CompletableFuture.supplyAsync(() -> drain(server));
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long sent;
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        try (SocketChannel client = SocketChannel.open(server.getLocalAddress())) {
+            sent = sender.send(client);
+        }
+        long received = drained.get(2, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertEquals(sent, received);
+        return new Sample(elapsed, allocated);
+    }
+
+    private static long drain(ServerSocketChannel server) {
+        try (SocketChannel socket = server.accept()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            long total = 0;
+            int n;
+            while ((n = socket.read(buffer)) != -1) {
+                total += n;
+                buffer.clear();
+            }
+            return total;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Path createFile(int sizeMb) throws IOException {
+        Path file = tempDir.resolve("bench-" + sizeMb + "mb.mp4");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (var out = Files.newOutputStream(file)) {
+            for (int i = 0; i < sizeMb; i++) {
+                out.write(chunk);
+            }
+        }
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface Sender {
+        long send(SocketChannel client) throws IOException;
+    }
+
+    private record Sample(long elapsedNanos, long allocatedBytes) {}
+
+    private static class Result {
+        private long totalNanos;
+        private long totalBytes;
+        private long totalAllocated;
+        private int count;
+
+        void add(Sample sample, long size) {
+            totalNanos += sample.elapsedNanos();
+            totalAllocated += sample.allocatedBytes();
+            totalBytes += size;
+            count++;
+        }
+
+        double mbPerSecond() {
+            return (totalBytes / (1024.0 * 1024.0)) / (totalNanos / 1_000_000_000.0);
+        }
+
+        double avgAllocatedMb() {
+            return totalAllocated / (1024.0 * 1024.0) / count;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.backend;
+
+import com.example.backend.model.Video;
+import com.example.backend.services.HybridTrendingCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HybridTrendingCacheTest {
+
+    private static final Duration TTL = Duration.ofSeconds(60);
+    private static final Duration STALE_TTL = Duration.ofSeconds(60);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Queue<Runnable> pendingRefreshes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Svaki poziv vraća novu "generaciju" videa: id = generacija * 1000 + pozicija
+    private final IntFunction<List<Video>> loader = k -> videos(generation.incrementAndGet(), Math.min(k, 200));
+
+    @Test
+    void testLimitIsRespected() {
+        HybridTrendingCache cache = createCache(loader);
+
+        assertEquals(50, cache.get(50).size());
+        assertEquals(5, cache.get(5).size());
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    void testLargerLimit_ReloadsWithLargerK() {
+        HybridTrendingCache cache = createCache(loader);
+        cache.get(10);
+
+        List<Video> top = cache.get(120);
+
+        assertEquals(120, top.size());
+        assertEquals(2, cache.getLoadCount());
+        // osvežavanja zadržavaju najveći traženi K
+        assertEquals(120, cache.get(120).size());
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    void testFewerVideosThanK_ServesAnyLimitFromCache() {
+        HybridTrendingCache cache = createCache(k -> videos(1, 3));
+
+        assertEquals(3, cache.get(10).size());
+        assertEquals(3, cache.get(100).size());
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    void testRefreshAhead_ServesCachedAndRefreshesInBackground() {
+        HybridTrendingCache cache = createCache(loader);
+        long firstId = cache.get(5).get(0).getId();
+
+        // 80% TTL-a - još uvek svež, ali počinje osvežavanje
+        clock.addAndGet(Duration.ofSeconds(50).toNanos());
+        assertEquals(firstId, cache.get(5).get(0).getId());
+        assertEquals(1, pendingRefreshes.size());
+
+        // Drugi zahtev ne pokreće još jedno osvežavanje
+        cache.get(5);
+        assertEquals(1, pendingRefreshes.size());
+
+        runPendingRefreshes();
+        assertNotEquals(firstId, cache.get(5).get(0).getId());
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    void testStaleWhileRevalidate_ServesStaleAfterTtl() {
+        HybridTrendingCache cache = createCache(loader);
+        long firstId = cache.get(5).get(0).getId();
+
+        clock.addAndGet(Duration.ofSeconds(90).toNanos());
+
+        assertFalse(cache.isFresh());
+        assertEquals(firstId, cache.get(5).get(0).getId());
+        assertEquals(1, cache.getLoadCount()); // nije blokirao zahtev
+        runPendingRefreshes();
+        assertTrue(cache.isFresh());
+    }
+
+    @Test
+    void testTooStale_LoadsSynchronously() {
+        HybridTrendingCache cache = createCache(loader);
+        long firstId = cache.get(5).get(0).getId();
+
+        clock.addAndGet(Duration.ofSeconds(121).toNanos());
+
+        assertNotEquals(firstId, cache.get(5).get(0).getId());
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    void testFailedRefresh_KeepsServingStaleSnapshot() {
+        AtomicInteger calls = new AtomicInteger();
+        HybridTrendingCache cache = createCache(k -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new RuntimeException("DB down");
+            }
+            return videos(1, 10);
+        });
+        cache.get(5);
+
+        clock.addAndGet(Duration.ofSeconds(70).toNanos());
+        cache.get(5);
+        runPendingRefreshes();
+
+        // Stari snimak i dalje važi, sledeći zahtev ponovo pokušava u pozadini
+        assertEquals(5, cache.get(5).size());
+        assertEquals(1, pendingRefreshes.size());
+    }
+
+    @Test
+    void testFailedSynchronousLoad_Throws() {
+        HybridTrendingCache cache = createCache(k -> {
+            throw new IllegalStateException("DB down");
+        });
+
+        assertThrows(IllegalStateException.class, () -> cache.get(5));
+    }
+
+    @Test
+    void testConcurrentMisses_SingleFlight() throws Exception {
+        // Given - spor preračun
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        HybridTrendingCache cache = createCache(k -> {
+            loaderStarted.countDown();
+            try {
+                releaseLoader.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return videos(1, k);
+        });
+
+        final int THREAD_COUNT = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<List<Video>>> futures = new ArrayList<>();
+
+        // When - svi zahtevi stižu dok prvi preračun traje
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            futures.add(executor.submit(() -> cache.get(20)));
+        }
+        assertTrue(loaderStarted.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        releaseLoader.countDown();
+
+        // Then
+        for (Future<List<Video>> future : futures) {
+            assertEquals(20, future.get(10, TimeUnit.SECONDS).size());
+        }
+        executor.shutdown();
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    void testInvalidate_ForcesReload() {
+        HybridTrendingCache cache = createCache(loader);
+        cache.get(5);
+
+        cache.invalidate();
+        cache.get(5);
+
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    private HybridTrendingCache createCache(IntFunction<List<Video>> loader) {
+        return new HybridTrendingCache(loader, TTL, STALE_TTL, 0.8, pendingRefreshes::add, clock::get);
+    }
+
+    private void runPendingRefreshes() {
+        Runnable refresh;
+        while ((refresh = pendingRefreshes.poll()) != null) {
+            refresh.run();
+        }
+    }
+
+    private static List<Video> videos(int generation, int count) {
+        List<Video> videos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Video video = new Video();
+            video.setId(generation * 1000L + i);
+            videos.add(video);
+        }
+        return videos;
+    }
+}
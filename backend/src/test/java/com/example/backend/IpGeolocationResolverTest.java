@@ -0,0 +1,190 @@
+package com.example.backend;
+
+import com.example.backend.config.GeolocationConfig;
+import com.example.backend.dto.UserLocationResponse;
+import com.example.backend.services.IpGeolocationResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpGeolocationResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private GeolocationConfig config;
+    private IpGeolocationResolver resolver;
+
+    // Poziv ka ip-api.com je zamenjen: broji pozive i ceka na latch
+    private final AtomicInteger apiCalls = new AtomicInteger();
+    private CountDownLatch apiLatch = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path database = tempDir.resolve("ip-ranges.csv");
+        Files.writeString(database, """
+                # test tabela
+                network,latitude,longitude,city,country
+                109.92.0.0/15,44.8125,20.4612,Belgrade,Serbia
+                93.86.0.0/16,45.2671,19.8335,Novi Sad,Serbia
+                not-an-ip/8,1,2,Broken,Nowhere
+                """);
+
+        config = new GeolocationConfig();
+        config.setIpDatabase("file:" + database);
+        config.setIpApiTimeoutMs(300);
+        resolver = newResolver();
+    }
+
+    @AfterEach
+    void tearDown() {
+        resolver.shutdown();
+    }
+
+    @Test
+    void testResolve_OfflineDatabaseHit_NoHttpCall() {
+        UserLocationResponse location = resolver.resolve("109.93.255.1");
+
+        assertEquals("Belgrade", location.getCity());
+        assertEquals(44.8125, location.getLatitude());
+        assertEquals("Novi Sad", resolver.resolve("93.86.0.7").getCity());
+        assertEquals(2, resolver.getOfflineRangeCount());
+        assertEquals(0, apiCalls.get());
+    }
+
+    @Test
+    void testResolve_LocalAddress_DefaultLocation() {
+        assertEquals("Belgrade", resolver.resolve("127.0.0.1").getCity());
+        assertEquals("Belgrade", resolver.resolve(null).getCity());
+        assertEquals(0, apiCalls.get());
+    }
+
+    @Test
+    void testResolve_CachedPerSlash24() {
+        // When - dve adrese iz iste /24 mreze, jedna iz druge
+        assertEquals("Paris", resolver.resolve("8.8.8.8").getCity());
+        assertEquals("Paris", resolver.resolve("8.8.8.200").getCity());
+        resolver.resolve("8.8.9.1");
+
+        // Then
+        assertEquals(2, apiCalls.get());
+    }
+
+    @Test
+    void testResolve_ConcurrentRequestsShareOneLookup() throws Exception {
+        // Given - API odgovara tek kad se latch otpusti
+        apiLatch = new CountDownLatch(1);
+        config.setIpApiTimeoutMs(5000);
+        resolver.shutdown();
+        resolver = newResolver();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            List<Future<UserLocationResponse>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String ip = "8.8.8." + (10 + i);
+                results.add(callers.submit(() -> resolver.resolve(ip)));
+            }
+            Thread.sleep(200);
+            apiLatch.countDown();
+
+            // Then
+            for (Future<UserLocationResponse> result : results) {
+                assertEquals("Paris", result.get(5, TimeUnit.SECONDS).getCity());
+            }
+            assertEquals(1, apiCalls.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testResolve_SlowApi_ReturnsUnknownWithinTimeoutAndCachesLateAnswer() throws Exception {
+        // Given - API kasni duze od timeout-a
+        apiLatch = new CountDownLatch(1);
+
+        // When
+        long start = System.nanoTime();
+        UserLocationResponse location = resolver.resolve("8.8.4.4");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - zahtev ne ceka API
+        assertFalse(location.hasValidLocation());
+        assertTrue(elapsedMs < 2000, "resolve je cekao " + elapsedMs + " ms");
+
+        // Zakasneli odgovor ulazi u kes za sledeci zahtev
+        apiLatch.countDown();
+        Thread.sleep(200);
+        assertEquals("Paris", resolver.resolve("8.8.4.5").getCity());
+        assertEquals(1, apiCalls.get());
+    }
+
+    @Test
+    void testResolve_PoolSaturated_ReturnsUnknownAndRetriesLater() {
+        // Given - jedna nit i red za jedan poziv, API ne odgovara dok se latch ne otpusti
+        apiLatch = new CountDownLatch(1);
+        config.setIpApiMaxConcurrent(1);
+        config.setIpApiQueueSize(1);
+        resolver.shutdown();
+        resolver = newResolver();
+        resolver.resolve("8.8.1.1");
+        resolver.resolve("8.8.2.1");
+
+        // When - treci prefiks vise ne staje u pool
+        UserLocationResponse rejected = assertDoesNotThrow(() -> resolver.resolve("8.8.3.1"));
+
+        // Then - unknown(), a odbijen lookup se ne kesira
+        assertFalse(rejected.hasValidLocation());
+        assertEquals(1, apiCalls.get());
+        apiLatch.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (apiCalls.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait(); // red se isprazni kad nit preuzme drugi poziv
+        }
+        config.setIpApiTimeoutMs(5000);
+        assertEquals("Paris", resolver.resolve("8.8.3.1").getCity());
+    }
+
+    @Test
+    void testResolve_ApiDisabled_ReturnsUnknownWithoutHttpCall() {
+        config.setIpApiEnabled(false);
+        resolver.shutdown();
+        resolver = newResolver();
+
+        assertFalse(resolver.resolve("8.8.8.8").hasValidLocation());
+        assertEquals(0, apiCalls.get());
+    }
+
+    private IpGeolocationResolver newResolver() {
+        return new IpGeolocationResolver(config, new DefaultResourceLoader(), new SimpleMeterRegistry()) {
+            @Override
+            protected UserLocationResponse fetchFromIpApi(String ipAddress) {
+                apiCalls.incrementAndGet();
+                try {
+                    apiLatch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return UserLocationResponse.fromIpGeolocation(48.8566, 2.3522, "Paris", "France");
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.backend;
+
+import com.example.backend.services.IpRangeDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpRangeDatabaseTest {
+
+    @Test
+    void testLookup_RangeBoundariesAndGaps() throws IOException {
+        // Given - namerno neporedjani opsezi
+        IpRangeDatabase database = load("""
+                10.0.2.0/24,2,2,Second,X
+                10.0.0.0/23,1,1,First,X
+                10.0.4.7/32,3,3,Single,X
+                """);
+
+        // Then
+        assertEquals(3, database.size());
+        assertEquals("First", database.lookup("10.0.0.0").getCity());
+        assertEquals("First", database.lookup("10.0.1.255").getCity());
+        assertEquals("Second", database.lookup("10.0.2.128").getCity());
+        assertNull(database.lookup("10.0.3.1"));           // rupa izmedju opsega
+        assertEquals("Single", database.lookup("10.0.4.7").getCity());
+        assertNull(database.lookup("10.0.4.8"));
+        assertNull(database.lookup("9.255.255.255"));      // pre prvog opsega
+    }
+
+    @Test
+    void testLookup_Ipv4MappedAndInvalidAddresses() throws IOException {
+        IpRangeDatabase database = load("203.0.113.0/24,1,1,Test,X\n");
+
+        assertEquals("Test", database.lookup("::ffff:203.0.113.9").getCity());
+        assertNull(database.lookup("2001:db8::1"));
+        assertNull(database.lookup("203.0.113"));
+        assertNull(database.lookup("203.0.113.256"));
+        assertNull(database.lookup(null));
+    }
+
+    @Test
+    void testLoad_SkipsCommentsHeaderAndInvalidLines() throws IOException {
+        IpRangeDatabase database = load("""
+                # komentar
+                network,latitude,longitude,city,country
+                1.2.3.0/33,1,1,BadPrefix,X
+                1.2.3.0/24,abc,1,BadLat,X
+                1.2.3.0/24,1,1
+                1.2.3.77/24,1,1,,X
+                """);
+
+        // Baza mreze se poravnava na prefiks, prazan grad je null
+        assertEquals(1, database.size());
+        assertNotNull(database.lookup("1.2.3.1"));
+        assertNull(database.lookup("1.2.3.1").getCity());
+    }
+
+    private IpRangeDatabase load(String csv) throws IOException {
+        return IpRangeDatabase.load(new BufferedReader(new StringReader(csv)));
+    }
+}
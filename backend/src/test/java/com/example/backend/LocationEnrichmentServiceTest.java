@@ -0,0 +1,229 @@
+package com.example.backend;
+
+import com.example.backend.config.GeolocationConfig;
+import com.example.backend.dto.UserLocationResponse;
+import com.example.backend.model.Video;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.GeolocationService;
+import com.example.backend.services.LocationEnrichmentService;
+import com.example.backend.services.VideoSpatialIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LocationEnrichmentServiceTest {
+
+    private static final UserLocationResponse BELGRADE =
+            UserLocationResponse.fromIpGeolocation(44.8125, 20.4612, "Belgrade", "Serbia");
+
+    private final VideoRepository videoRepository = mock(VideoRepository.class);
+    private final VideoSpatialIndex videoSpatialIndex = mock(VideoSpatialIndex.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Geolokacija je zamenjena: vraca redom zadate odgovore (posle njih unknown) i broji pozive
+    private final Deque<UserLocationResponse> responses = new ArrayDeque<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private CountDownLatch lookupLatch = new CountDownLatch(0);
+
+    private GeolocationConfig config;
+    private LocationEnrichmentService service;
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        config = new GeolocationConfig();
+        config.setEnrichmentThreads(1);
+        config.setEnrichmentInitialBackoffMs(1);
+
+        video = new Video();
+        video.setId(1L);
+        when(videoRepository.findById(1L)).thenReturn(Optional.of(video));
+        when(videoRepository.save(any(Video.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        lookupLatch.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void testEnrich_SetsCoordinatesAndLocationText() {
+        // Given
+        service = newService();
+        responses.add(BELGRADE);
+
+        // When
+        service.enrichAfterCommit(1L, "109.92.1.1");
+        await(() -> count("success") == 1);
+
+        // Then
+        assertEquals(44.8125, video.getLatitude());
+        assertEquals(20.4612, video.getLongitude());
+        assertEquals("Belgrade, Serbia", video.getLocation());
+        verify(videoSpatialIndex).update(video);
+    }
+
+    @Test
+    void testEnrich_KeepsLocationTextFromUpload() {
+        // Given
+        service = newService();
+        video.setLocation("Kalemegdan");
+        responses.add(BELGRADE);
+
+        // When
+        service.enrichAfterCommit(1L, "109.92.1.1");
+        await(() -> count("success") == 1);
+
+        // Then
+        assertEquals("Kalemegdan", video.getLocation());
+        assertEquals(44.8125, video.getLatitude());
+    }
+
+    @Test
+    void testEnrich_UnknownLocation_RetriedWithBackoff() {
+        // Given - prvi pokusaj ne uspe
+        service = newService();
+        responses.add(UserLocationResponse.unknown());
+        responses.add(BELGRADE);
+
+        // When
+        service.enrichAfterCommit(1L, "109.92.1.1");
+        await(() -> count("success") == 1);
+
+        // Then
+        assertEquals(2, lookups.get());
+        assertEquals(1, count("retry"));
+        assertEquals(0, count("failed"));
+        assertEquals(44.8125, video.getLatitude());
+    }
+
+    @Test
+    void testEnrich_GivesUpAfterMaxAttempts() {
+        // Given - lokacija se nikad ne pronadje
+        config.setEnrichmentMaxAttempts(3);
+        service = newService();
+
+        // When
+        service.enrichAfterCommit(1L, "109.92.1.1");
+        await(() -> count("failed") == 1);
+
+        // Then
+        assertEquals(3, lookups.get());
+        assertEquals(2, count("retry"));
+        assertNull(video.getLatitude());
+        verify(videoRepository, never()).save(any());
+        verifyNoInteractions(videoSpatialIndex);
+    }
+
+    @Test
+    void testEnrich_DoesNotOverwriteExistingCoordinates() {
+        // Given - koordinate su u medjuvremenu postavljene
+        service = newService();
+        video.setLatitude(45.0);
+        video.setLongitude(19.0);
+        responses.add(BELGRADE);
+
+        // When
+        service.enrichAfterCommit(1L, "109.92.1.1");
+        verify(transactionManager, timeout(2000)).commit(any());
+
+        // Then
+        assertEquals(45.0, video.getLatitude());
+        assertEquals(0, count("success"));
+        verify(videoRepository, never()).save(any());
+    }
+
+    @Test
+    void testEnrichAfterCommit_WaitsForCommit() {
+        // Given
+        service = newService();
+        responses.add(BELGRADE);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When - posao se prijavi u okviru transakcije
+            service.enrichAfterCommit(1L, "109.92.1.1");
+
+            // Then - do commit-a se nista ne trazi
+            assertEquals(0, lookups.get());
+            assertEquals(0, service.getQueueSize());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        await(() -> count("success") == 1);
+        assertEquals(44.8125, video.getLatitude());
+    }
+
+    @Test
+    void testEnrich_QueueFull_Rejected() {
+        // Given - jedna nit koja je zauzeta i red za jedan posao
+        config.setEnrichmentQueueSize(1);
+        service = newService();
+        lookupLatch = new CountDownLatch(1);
+
+        // When
+        service.enrichAfterCommit(1L, "109.92.1.1");
+        await(() -> lookups.get() == 1);
+        service.enrichAfterCommit(2L, "109.92.1.2");
+        service.enrichAfterCommit(3L, "109.92.1.3");
+
+        // Then
+        assertEquals(1, service.getQueueSize());
+        assertEquals(1, count("rejected"));
+    }
+
+    private LocationEnrichmentService newService() {
+        GeolocationService geolocationService = new GeolocationService(null) {
+            @Override
+            public UserLocationResponse getLocationFromIp(String ipAddress) {
+                lookups.incrementAndGet();
+                try {
+                    lookupLatch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (responses) {
+                    UserLocationResponse next = responses.poll();
+                    return next != null ? next : UserLocationResponse.unknown();
+                }
+            }
+        };
+        return new LocationEnrichmentService(geolocationService, videoRepository, videoSpatialIndex,
+                transactionManager, config, meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("location_enrichment_total").tag("result", result).counter().count();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        assertTrue(condition.getAsBoolean(), "Uslov nije ispunjen na vreme");
+    }
+}
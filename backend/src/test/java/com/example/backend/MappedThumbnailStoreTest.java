@@ -0,0 +1,140 @@
+package com.example.backend;
+
+import com.example.backend.services.MappedThumbnailStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedThumbnailStoreTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPutAndGet_ReturnsReadOnlyDirectSlice() throws IOException {
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            byte[] data = thumbnail(1, 5000);
+            store.put("a.jpg", data);
+
+            ByteBuffer buffer = store.get("a.jpg");
+
+            assertNotNull(buffer);
+            assertTrue(buffer.isDirect());
+            assertTrue(buffer.isReadOnly());
+            assertArrayEquals(data, toArray(buffer));
+            assertNull(store.get("missing.jpg"));
+            assertEquals(5000, store.getLiveBytes());
+        }
+    }
+
+    @Test
+    void testReopen_IndexIsRebuiltFromSegments() throws IOException {
+        // Given
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            for (int i = 0; i < 30; i++) {
+                store.put("thumb" + i + ".jpg", thumbnail(i, 4000));
+            }
+            store.put("thumb0.jpg", thumbnail(99, 3000)); // prepisan
+        }
+
+        // When - "restart"
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            // Then - keš je odmah topao
+            assertEquals(30, store.size());
+            assertArrayEquals(thumbnail(99, 3000), toArray(store.get("thumb0.jpg")));
+            assertArrayEquals(thumbnail(17, 4000), toArray(store.get("thumb17.jpg")));
+            assertEquals(29 * 4000 + 3000, store.getLiveBytes());
+
+            // i može da nastavi da upisuje
+            store.put("new.jpg", thumbnail(7, 1000));
+            assertArrayEquals(thumbnail(7, 1000), toArray(store.get("new.jpg")));
+        }
+    }
+
+    @Test
+    void testRemove_SurvivesReopen() throws IOException {
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            store.put("a.jpg", thumbnail(1, 1000));
+            store.put("b.jpg", thumbnail(2, 1000));
+            store.remove("a.jpg");
+            assertNull(store.get("a.jpg"));
+        }
+
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            assertNull(store.get("a.jpg"));
+            assertNotNull(store.get("b.jpg"));
+            assertEquals(1000, store.getLiveBytes());
+        }
+    }
+
+    @Test
+    void testRollover_DropsOldestSegmentWhenOverBudget() throws IOException {
+        // Given - budzet od 2 segmenta
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 2L * SEGMENT_BYTES)) {
+            // When - upisi oko 5 segmenata podataka
+            for (int i = 0; i < 50; i++) {
+                store.put("thumb" + i + ".jpg", thumbnail(i, 6000));
+            }
+
+            // Then
+            assertEquals(2, store.getSegmentCount());
+            assertTrue(store.getLiveBytes() <= 2L * SEGMENT_BYTES);
+            assertNull(store.get("thumb0.jpg"));
+            assertArrayEquals(thumbnail(49, 6000), toArray(store.get("thumb49.jpg")));
+            try (var files = Files.list(dir)) {
+                assertEquals(2, files.count());
+            }
+        }
+    }
+
+    @Test
+    void testReopen_TornRecordIsIgnored() throws IOException {
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            store.put("a.jpg", thumbnail(1, 1000));
+        }
+
+        // Simuliraj pad usred upisa: zaglavlje bez magic broja iza poslednjeg zapisa
+        Path segment;
+        try (var files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer partial = ByteBuffer.allocate(12).putInt(0).putInt(5).putInt(1000).flip();
+            channel.write(partial, 12 + "a.jpg".length() + 1000);
+        }
+
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            assertEquals(1, store.size());
+            store.put("b.jpg", thumbnail(2, 500));
+        }
+        try (MappedThumbnailStore store = new MappedThumbnailStore(dir, SEGMENT_BYTES, 1024 * 1024)) {
+            assertArrayEquals(thumbnail(1, 1000), toArray(store.get("a.jpg")));
+            assertArrayEquals(thumbnail(2, 500), toArray(store.get("b.jpg")));
+        }
+    }
+
+    private static byte[] thumbnail(int seed, int size) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) seed);
+        data[0] = (byte) 0xFF;
+        data[size - 1] = (byte) 0xD9;
+        return data;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+}
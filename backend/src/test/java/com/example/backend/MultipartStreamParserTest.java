@@ -0,0 +1,201 @@
+package com.example.backend;
+
+import com.example.backend.utils.MultipartStreamParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartStreamParserTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void testParse_FieldsAndFile() throws IOException {
+        // Given
+        byte[] video = randomBytes(300_000);
+        byte[] body = new Body()
+                .field("title", "Kalemegdan")
+                .file("videoFile", "clip.mp4", "video/mp4", video)
+                .field("tags", "beograd,tvrdjava")
+                .end();
+
+        // When - stream vraca po nekoliko bajtova, pa boundary pada preko granica citanja
+        MultipartStreamParser parser = new MultipartStreamParser(new TrickleInputStream(body), BOUNDARY, 1024);
+
+        // Then
+        MultipartStreamParser.Part title = parser.nextPart();
+        assertEquals("title", title.getName());
+        assertFalse(title.isFile());
+        assertEquals("Kalemegdan", title.readString(100));
+
+        MultipartStreamParser.Part file = parser.nextPart();
+        assertEquals("videoFile", file.getName());
+        assertEquals("clip.mp4", file.getFilename());
+        assertEquals("video/mp4", file.getContentType());
+        assertArrayEquals(video, file.getInputStream().readAllBytes());
+
+        MultipartStreamParser.Part tags = parser.nextPart();
+        assertEquals("beograd,tvrdjava", tags.readString(100));
+
+        assertNull(parser.nextPart());
+        assertNull(parser.nextPart());
+    }
+
+    @Test
+    void testParse_BodyContainsPartialBoundary() throws IOException {
+        // Given - sadrzaj lici na pocetak boundary-ja, ali nije boundary
+        byte[] content = ("a\r\n--" + BOUNDARY.substring(0, 20) + "x\r\n-").getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = new Body().file("videoFile", "a.mp4", "video/mp4", content).end();
+
+        // When
+        MultipartStreamParser parser = new MultipartStreamParser(new TrickleInputStream(body), BOUNDARY, 1);
+
+        // Then
+        assertArrayEquals(content, parser.nextPart().getInputStream().readAllBytes());
+        assertNull(parser.nextPart());
+    }
+
+    @Test
+    void testParse_UnreadPartIsSkipped() throws IOException {
+        // Given
+        byte[] body = new Body()
+                .file("thumbnailFile", "t.jpg", "image/jpeg", randomBytes(100_000))
+                .field("title", "Naslov")
+                .end();
+
+        // When
+        MultipartStreamParser parser = new MultipartStreamParser(new ByteArrayInputStream(body), BOUNDARY);
+        MultipartStreamParser.Part skipped = parser.nextPart();
+        MultipartStreamParser.Part title = parser.nextPart();
+
+        // Then - stari deo vise ne daje podatke
+        assertEquals(-1, skipped.getInputStream().read());
+        assertEquals("Naslov", title.readString(100));
+    }
+
+    @Test
+    void testParse_PreambleIgnored() throws IOException {
+        // Given
+        byte[] parts = new Body().field("title", "Naslov").end();
+        byte[] body = concat("preambula koju klijent salje\r\n".getBytes(StandardCharsets.US_ASCII), parts);
+
+        // When
+        MultipartStreamParser parser = new MultipartStreamParser(new ByteArrayInputStream(body), BOUNDARY);
+
+        // Then
+        assertEquals("Naslov", parser.nextPart().readString(100));
+        assertNull(parser.nextPart());
+    }
+
+    @Test
+    void testParse_TruncatedStream_Throws() throws IOException {
+        // Given - klijent je prekinuo upload usred fajla
+        byte[] body = new Body().file("videoFile", "a.mp4", "video/mp4", randomBytes(10_000)).end();
+        byte[] truncated = java.util.Arrays.copyOf(body, 5_000);
+
+        // When
+        MultipartStreamParser parser = new MultipartStreamParser(new ByteArrayInputStream(truncated), BOUNDARY);
+        InputStream file = parser.nextPart().getInputStream();
+
+        // Then
+        assertThrows(EOFException.class, file::readAllBytes);
+    }
+
+    @Test
+    void testReadString_TooLong_Throws() throws IOException {
+        byte[] body = new Body().field("description", "x".repeat(200)).end();
+        MultipartStreamParser parser = new MultipartStreamParser(new ByteArrayInputStream(body), BOUNDARY);
+
+        assertThrows(IllegalArgumentException.class, () -> parser.nextPart().readString(100));
+    }
+
+    @Test
+    void testExtractBoundary() {
+        assertEquals(BOUNDARY, MultipartStreamParser.extractBoundary("multipart/form-data; boundary=" + BOUNDARY));
+        assertEquals("abc", MultipartStreamParser.extractBoundary("multipart/form-data; charset=UTF-8; boundary=\"abc\""));
+        assertNull(MultipartStreamParser.extractBoundary("multipart/form-data"));
+        assertNull(MultipartStreamParser.extractBoundary("application/json"));
+        assertNull(MultipartStreamParser.extractBoundary(null));
+    }
+
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = java.util.Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * Multipart telo u formatu koji salje browser.
+     */
+    static class Body {
+
+        private final String boundary;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Body() {
+            this(BOUNDARY);
+        }
+
+        Body(String boundary) {
+            this.boundary = boundary;
+        }
+
+        Body field(String name, String value) {
+            write("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n");
+            out.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            write("\r\n");
+            return this;
+        }
+
+        Body file(String name, String filename, String contentType, byte[] content) {
+            write("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                    + "Content-Type: " + contentType + "\r\n\r\n");
+            out.writeBytes(content);
+            write("\r\n");
+            return this;
+        }
+
+        byte[] end() {
+            write("--" + boundary + "--\r\n");
+            return out.toByteArray();
+        }
+
+        private void write(String text) {
+            out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Vraca podatke u malim, nejednakim komadima (kao mreza).
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+
+        private int next = 1;
+
+        TrickleInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            next = next % 7 + 1;
+            return super.read(b, off, Math.min(len, next));
+        }
+    }
+}
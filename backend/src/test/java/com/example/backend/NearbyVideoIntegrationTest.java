@@ -0,0 +1,103 @@
+package com.example.backend;
+
+import com.example.backend.model.User;
+import com.example.backend.model.Video;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.NearbyVideoService;
+import com.example.backend.services.VideoSpatialIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pretraga u blizini na H2 (bez earthdistance ekstenzije).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class NearbyVideoIntegrationTest {
+
+    @Autowired
+    private NearbyVideoService nearbyVideoService;
+
+    @Autowired
+    private VideoSpatialIndex videoSpatialIndex;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private final List<Long> indexedVideoIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("nearby@example.com");
+        user.setPassword("password");
+        user.setUsername("nearbyuser");
+        user.setFirstName("Nearby");
+        user.setLastName("Test");
+        user.setAddress("Test Address 123");
+        user.setRole("USER");
+        user.setEnabled(true);
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Indeks je singleton u kontekstu, a transakcija testa se ponistava
+        indexedVideoIds.forEach(videoSpatialIndex::remove);
+    }
+
+    @Test
+    void testFindVideosNearby_OrderedByDistance() {
+        // Given
+        Video belgrade = createVideo("Belgrade", 44.8125, 20.4612, 1.0);
+        Video noviSad = createVideo("Novi Sad", 45.2671, 19.8335, 5.0);
+        createVideo("Nis", 43.3209, 21.8958, 9.0);
+
+        // When
+        List<Video> nearby = nearbyVideoService.findVideosNearby(44.81, 20.46, 100.0);
+
+        // Then
+        assertEquals(List.of(belgrade.getId(), noviSad.getId()), nearby.stream().map(Video::getId).toList());
+    }
+
+    @Test
+    void testFindPopularVideosNearby_OrderedByPopularityWithLimit() {
+        // Given
+        createVideo("Belgrade", 44.8125, 20.4612, 1.0);
+        Video noviSad = createVideo("Novi Sad", 45.2671, 19.8335, 5.0);
+        Video nis = createVideo("Nis", 43.3209, 21.8958, 9.0);
+
+        // When
+        List<Video> popular = nearbyVideoService.findPopularVideosNearby(44.81, 20.46, 250.0, 2);
+
+        // Then
+        assertEquals(List.of(nis.getId(), noviSad.getId()), popular.stream().map(Video::getId).toList());
+    }
+
+    private Video createVideo(String title, double latitude, double longitude, double popularityScore) {
+        Video video = new Video(title, "Description", "tags", "thumbnail.jpg", "video.mp4", user, title);
+        video.setLatitude(latitude);
+        video.setLongitude(longitude);
+        video.setPopularityScore(popularityScore);
+        video = videoRepository.save(video);
+        videoSpatialIndex.update(video);
+        indexedVideoIds.add(video.getId());
+        return video;
+    }
+}
@@ -2,10 +2,10 @@ package com.example.backend;
 
 import com.example.backend.model.User;
 import com.example.backend.model.Video;
-import com.example.backend.repository.CommentRepository;
-import com.example.backend.repository.VideoLikeRepository;
 import com.example.backend.repository.VideoRepository;
 import com.example.backend.services.PopularityCalculationService;
+import com.example.backend.services.TrendingIndexService;
+import com.example.backend.services.VideoSpatialIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +14,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,10 +27,10 @@ class PopularityCalculationServiceTest {
     private VideoRepository videoRepository;
 
     @Mock
-    private VideoLikeRepository videoLikeRepository;
+    private TrendingIndexService trendingIndexService;
 
     @Mock
-    private CommentRepository commentRepository;
+    private VideoSpatialIndex videoSpatialIndex;
 
     @InjectMocks
     private PopularityCalculationService popularityCalculationService;
@@ -52,8 +53,8 @@ class PopularityCalculationServiceTest {
     @Test
     void testCalculatePopularityScore_WithNoEngagement() {
         // Given
-        when(videoLikeRepository.countByVideo(testVideo)).thenReturn(0L);
-        when(commentRepository.countByVideo(testVideo)).thenReturn(0L);
+        testVideo.setLikeCount(0L);
+        testVideo.setCommentCount(0L);
         testVideo.setViewCount(0L);
 
         // When
@@ -66,8 +67,8 @@ class PopularityCalculationServiceTest {
     @Test
     void testCalculatePopularityScore_WithViewsOnly() {
         // Given
-        when(videoLikeRepository.countByVideo(testVideo)).thenReturn(0L);
-        when(commentRepository.countByVideo(testVideo)).thenReturn(0L);
+        testVideo.setLikeCount(0L);
+        testVideo.setCommentCount(0L);
         testVideo.setViewCount(100L);
 
         // When
@@ -81,8 +82,8 @@ class PopularityCalculationServiceTest {
     @Test
     void testCalculatePopularityScore_WithLikes() {
         // Given
-        when(videoLikeRepository.countByVideo(testVideo)).thenReturn(10L);
-        when(commentRepository.countByVideo(testVideo)).thenReturn(0L);
+        testVideo.setLikeCount(10L);
+        testVideo.setCommentCount(0L);
         testVideo.setViewCount(0L);
 
         // When
@@ -96,8 +97,8 @@ class PopularityCalculationServiceTest {
     @Test
     void testCalculatePopularityScore_WithComments() {
         // Given
-        when(videoLikeRepository.countByVideo(testVideo)).thenReturn(0L);
-        when(commentRepository.countByVideo(testVideo)).thenReturn(5L);
+        testVideo.setLikeCount(0L);
+        testVideo.setCommentCount(5L);
         testVideo.setViewCount(0L);
 
         // When
@@ -111,8 +112,8 @@ class PopularityCalculationServiceTest {
     @Test
     void testCalculatePopularityScore_CombinedEngagement() {
         // Given
-        when(videoLikeRepository.countByVideo(testVideo)).thenReturn(20L);
-        when(commentRepository.countByVideo(testVideo)).thenReturn(5L);
+        testVideo.setLikeCount(20L);
+        testVideo.setCommentCount(5L);
         testVideo.setViewCount(100L);
 
         // When
@@ -130,16 +131,16 @@ class PopularityCalculationServiceTest {
         newVideo.setViewCount(100L);
         newVideo.setCreatedAt(LocalDateTime.now().minusDays(1));
 
-        when(videoLikeRepository.countByVideo(newVideo)).thenReturn(10L);
-        when(commentRepository.countByVideo(newVideo)).thenReturn(0L);
+        newVideo.setLikeCount(10L);
+        newVideo.setCommentCount(0L);
 
         // Video star 14 dana
         Video oldVideo = new Video();
         oldVideo.setViewCount(100L);
         oldVideo.setCreatedAt(LocalDateTime.now().minusDays(14));
 
-        when(videoLikeRepository.countByVideo(oldVideo)).thenReturn(10L);
-        when(commentRepository.countByVideo(oldVideo)).thenReturn(0L);
+        oldVideo.setLikeCount(10L);
+        oldVideo.setCommentCount(0L);
 
         // When
         double newScore = popularityCalculationService.calculatePopularityScore(newVideo);
@@ -154,8 +155,8 @@ class PopularityCalculationServiceTest {
     void testUpdateVideoPopularityScore() {
         // Given
         when(videoRepository.findById(1L)).thenReturn(Optional.of(testVideo));
-        when(videoLikeRepository.countByVideo(testVideo)).thenReturn(10L);
-        when(commentRepository.countByVideo(testVideo)).thenReturn(5L);
+        testVideo.setLikeCount(10L);
+        testVideo.setCommentCount(5L);
         when(videoRepository.save(any(Video.class))).thenReturn(testVideo);
 
         // When
@@ -177,4 +178,113 @@ class PopularityCalculationServiceTest {
             popularityCalculationService.updateVideoPopularityScore(999L);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRescoreDirtyVideos_OnlyDirtyVideosFromCounters() {
+        // Given
+        testVideo.setLikeCount(10L);
+        Video other = new Video();
+        other.setId(2L);
+        other.setViewCount(0L);
+        other.setCommentCount(3L);
+        other.setCreatedAt(LocalDateTime.now());
+        when(videoRepository.findByIdIn(anyCollection())).thenReturn(List.of(testVideo, other));
+
+        popularityCalculationService.markDirty(1L);
+        popularityCalculationService.markDirty(2L);
+        popularityCalculationService.markDirty(1L);
+
+        // When
+        popularityCalculationService.rescoreDirtyVideos();
+
+        // Then - jedan upit, bez COUNT-a po videu
+        verify(videoRepository, times(1)).findByIdIn(anyCollection());
+        verify(videoRepository, never()).findAll();
+        verify(videoRepository).saveAll(anyList());
+        verify(trendingIndexService).update(List.of(testVideo, other));
+        verify(videoSpatialIndex).updateScores(List.of(testVideo, other));
+        assertTrue(testVideo.getPopularityScore() > 100);  // 100 pregleda + 10 lajkova
+        assertTrue(other.getPopularityScore() > 29);        // 3 komentara
+        assertEquals(0, popularityCalculationService.getDirtyCount());
+
+        // Drugi poziv bez novog engagement-a ne radi nista
+        popularityCalculationService.rescoreDirtyVideos();
+        verify(videoRepository, times(1)).findByIdIn(anyCollection());
+    }
+
+    @Test
+    void testRescoreDirtyVideos_Failure_VideosStayDirty() {
+        // Given
+        when(videoRepository.findByIdIn(anyCollection())).thenThrow(new RuntimeException("DB down"));
+        popularityCalculationService.markDirty(1L);
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> popularityCalculationService.rescoreDirtyVideos());
+        assertEquals(1, popularityCalculationService.getDirtyCount());
+    }
+
+    @Test
+    void testApplyTimeDecay_SingleSetBasedUpdate() {
+        // When
+        popularityCalculationService.applyTimeDecay();
+
+        // Then - jedan UPDATE za sve videe, faktor u (0, 1]
+        verify(videoRepository, times(1)).scalePopularityScores(
+                doubleThat(factor -> factor > 0 && factor <= 1.0));
+        verify(trendingIndexService).scaleScores(doubleThat(factor -> factor > 0 && factor <= 1.0));
+        verify(videoSpatialIndex).scaleScores(doubleThat(factor -> factor > 0 && factor <= 1.0));
+        verify(videoRepository, never()).findAll();
+    }
+
+    @Test
+    void testUpdateAllPopularityScores_ReconcilesCountersFirst() {
+        // Given
+        testVideo.setLikeCount(2L);
+        when(videoRepository.findIdsWithLikeCountDrift()).thenReturn(List.of());
+        when(videoRepository.findIdsWithCommentCountDrift()).thenReturn(List.of());
+        when(videoRepository.findAll()).thenReturn(List.of(testVideo));
+
+        // When
+        popularityCalculationService.updateAllPopularityScores();
+
+        // Then
+        verify(videoRepository).findIdsWithLikeCountDrift();
+        verify(videoRepository).findIdsWithCommentCountDrift();
+        verify(trendingIndexService).rebuild();
+        verify(videoSpatialIndex).rebuild();
+        double expected = (100 + 2 * 5) * Math.pow(2, -1.0 / 7);
+        assertEquals(expected, testVideo.getPopularityScore(), 0.01);
+    }
+
+    @Test
+    void testReconcileEngagementCounters_RecountsOnlyDriftedVideos() {
+        // Given
+        when(videoRepository.findIdsWithLikeCountDrift()).thenReturn(List.of(1L, 2L));
+        when(videoRepository.findIdsWithCommentCountDrift()).thenReturn(List.of(2L, 3L));
+
+        // When
+        int repaired = popularityCalculationService.reconcileEngagementCounters();
+
+        // Then
+        assertEquals(3, repaired);
+        verify(videoRepository).recountLikes(List.of(1L, 2L));
+        verify(videoRepository).recountComments(List.of(2L, 3L));
+        assertEquals(3, popularityCalculationService.getDirtyCount());
+    }
+
+    @Test
+    void testReconcileEngagementCounters_NoDrift_NoUpdates() {
+        // Given
+        when(videoRepository.findIdsWithLikeCountDrift()).thenReturn(List.of());
+        when(videoRepository.findIdsWithCommentCountDrift()).thenReturn(List.of());
+
+        // When
+        int repaired = popularityCalculationService.reconcileEngagementCounters();
+
+        // Then
+        assertEquals(0, repaired);
+        verify(videoRepository, never()).recountLikes(anyCollection());
+        verify(videoRepository, never()).recountComments(anyCollection());
+        assertEquals(0, popularityCalculationService.getDirtyCount());
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.backend;
+
+import com.example.backend.config.UploadConfig;
+import com.example.backend.dto.CreateVideoRequest;
+import com.example.backend.dto.UploadSessionResponse;
+import com.example.backend.services.ChecksumMismatchException;
+import com.example.backend.services.FileStorageService;
+import com.example.backend.services.ResumableUploadService;
+import com.example.backend.services.UploadSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResumableUploadServiceTest {
+
+    private static final Path VIDEO_DIR = Paths.get("uploads/videos");
+    private static final Path THUMBNAIL_DIR = Paths.get("uploads/thumbnails");
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String USER = "uploader@test.com";
+
+    private UploadConfig config;
+    private StreamingVideoUploadTest.RecordingVideoService videoService;
+    private FileStorageService fileStorageService;
+    private ResumableUploadService service;
+    private Set<Path> existingFiles;
+
+    // 4 puna chunk-a i jedan kraci
+    private final byte[] video = mp4Bytes(4 * CHUNK_SIZE + 1000);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new UploadConfig();
+        config.setChunkSize(CHUNK_SIZE);
+        videoService = new StreamingVideoUploadTest.RecordingVideoService();
+        fileStorageService = new FileStorageService();
+        service = new ResumableUploadService(fileStorageService, videoService, config);
+        existingFiles = listUploads();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        service.shutdown();
+        // Varijante thumbnail-a se renderuju asinhrono
+        if (videoService.thumbnailPath != null) {
+            fileStorageService.awaitThumbnail(videoService.thumbnailPath);
+        }
+        for (Path file : listUploads()) {
+            if (!existingFiles.contains(file)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void testUpload_ParallelChunksInAnyOrder_AssembledAndCreated() throws Exception {
+        // Given
+        UploadSession session = service.createSession(USER, video.length);
+        assertEquals(5, session.getChunkCount());
+
+        // When - chunk-ovi stizu paralelno i izmesanim redom
+        List<Integer> order = new ArrayList<>(List.of(0, 1, 2, 3, 4));
+        Collections.shuffle(order);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int index : order) {
+                futures.add(pool.submit(() -> {
+                    writeChunk(session, index, chunk(index));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        service.complete(session, new CreateVideoRequest("Naslov", "Opis", "tag", null),
+                thumbnail(), new MockHttpServletRequest());
+
+        // Then - fajl je preimenovan u konacno ime, sesija i delimican fajl ne postoje
+        assertEquals(USER, videoService.userEmail);
+        assertArrayEquals(video, Files.readAllBytes(VIDEO_DIR.resolve(videoService.videoPath)));
+        assertFalse(Files.exists(VIDEO_DIR.resolve(session.getUploadId() + ".part")));
+        assertTrue(service.findSession(session.getUploadId(), USER).isEmpty());
+    }
+
+    @Test
+    void testStatus_ReportsOffsetAndMissingChunks() throws IOException {
+        // Given
+        UploadSession session = service.createSession(USER, video.length);
+
+        // When - veza je pukla posle chunk-ova 0, 1 i 3
+        writeChunk(session, 0, chunk(0));
+        writeChunk(session, 1, chunk(1));
+        writeChunk(session, 3, chunk(3));
+        UploadSessionResponse status = session.toResponse(config.getSessionTtlMinutes());
+
+        // Then
+        assertEquals(2L * CHUNK_SIZE, status.offset());
+        assertEquals(List.of(2, 4), status.missingChunks());
+        assertEquals(video.length, status.totalSize());
+    }
+
+    @Test
+    void testChunk_ChecksumMismatch_NotCountedAndCanBeResent() throws IOException {
+        // Given
+        UploadSession session = service.createSession(USER, video.length);
+        byte[] corrupted = chunk(0).clone();
+        corrupted[100] ^= 1;
+
+        // When - checksum je za ispravan sadrzaj, a stigao je izmenjen
+        assertThrows(ChecksumMismatchException.class,
+                () -> service.writeChunk(session, 0, new ByteArrayInputStream(corrupted), checksum(chunk(0))));
+
+        // Then
+        assertTrue(session.toResponse(60).missingChunks().contains(0));
+        writeChunk(session, 0, chunk(0));
+        assertFalse(session.toResponse(60).missingChunks().contains(0));
+    }
+
+    @Test
+    void testChunk_WrongLengthOrIndex_Rejected() throws IOException {
+        UploadSession session = service.createSession(USER, video.length);
+        byte[] tooShort = Arrays.copyOf(chunk(1), 100);
+        byte[] tooLong = Arrays.copyOf(chunk(4), 2000);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(session, 1, new ByteArrayInputStream(tooShort), checksum(tooShort)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(session, 4, new ByteArrayInputStream(tooLong), checksum(tooLong)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(session, 5, new ByteArrayInputStream(chunk(0)), checksum(chunk(0))));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(session, 0, new ByteArrayInputStream(chunk(0)), null));
+        assertEquals(5, session.toResponse(60).missingChunks().size());
+    }
+
+    @Test
+    void testComplete_Incomplete_RejectedAndSessionKept() throws IOException {
+        // Given
+        UploadSession session = service.createSession(USER, video.length);
+        writeChunk(session, 0, chunk(0));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> service.complete(session,
+                new CreateVideoRequest("Naslov", "Opis", "tag", null), thumbnail(), new MockHttpServletRequest()));
+        assertTrue(service.findSession(session.getUploadId(), USER).isPresent());
+    }
+
+    @Test
+    void testComplete_NotMp4_UploadDiscarded() throws IOException {
+        // Given - fajl koji nije MP4
+        byte[] notVideo = new byte[1000];
+        UploadSession session = service.createSession(USER, notVideo.length);
+        service.writeChunk(session, 0, new ByteArrayInputStream(notVideo), checksum(notVideo));
+
+        // When
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.complete(session,
+                new CreateVideoRequest("Naslov", "Opis", "tag", null), thumbnail(), new MockHttpServletRequest()));
+
+        // Then
+        assertEquals("Only MP4 video format is allowed", e.getMessage());
+        assertNull(videoService.videoPath);
+        assertEquals(existingFiles, listUploads());
+    }
+
+    @Test
+    void testComplete_FailedCreate_SessionKeptAndRetrySucceeds() throws IOException {
+        // Given - svi chunk-ovi primljeni, prvi complete pada u bazi
+        UploadSession session = service.createSession(USER, video.length);
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            writeChunk(session, i, chunk(i));
+        }
+        videoService.failWith = new IllegalArgumentException("User not found");
+
+        // When
+        assertThrows(IllegalArgumentException.class, () -> service.complete(session,
+                new CreateVideoRequest("Naslov", "Opis", "tag", null), thumbnail(), new MockHttpServletRequest()));
+
+        // Then - delimican fajl je sacuvan, a ponovni complete uspeva bez ponovnog slanja
+        assertTrue(service.findSession(session.getUploadId(), USER).isPresent());
+        assertArrayEquals(video, Files.readAllBytes(VIDEO_DIR.resolve(session.getUploadId() + ".part")));
+        writeChunk(session, 4, chunk(4));
+
+        videoService.failWith = null;
+        service.complete(session, new CreateVideoRequest("Naslov", "Opis", "tag", null),
+                thumbnail(), new MockHttpServletRequest());
+        assertArrayEquals(video, Files.readAllBytes(VIDEO_DIR.resolve(videoService.videoPath)));
+        assertTrue(service.findSession(session.getUploadId(), USER).isEmpty());
+    }
+
+    @Test
+    void testComplete_InvalidThumbnail_VideoNotPromoted() throws IOException {
+        // Given
+        UploadSession session = service.createSession(USER, video.length);
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            writeChunk(session, i, chunk(i));
+        }
+        MockMultipartFile broken = new MockMultipartFile("thumbnailFile", "thumb.png", "image/png", new byte[]{1, 2, 3});
+
+        // When / Then - thumbnail se proveri pre videa, upload ostaje
+        assertThrows(IllegalArgumentException.class, () -> service.complete(session,
+                new CreateVideoRequest("Naslov", "Opis", "tag", null), broken, new MockHttpServletRequest()));
+        assertTrue(service.findSession(session.getUploadId(), USER).isPresent());
+        assertTrue(Files.exists(VIDEO_DIR.resolve(session.getUploadId() + ".part")));
+    }
+
+    @Test
+    void testFindSession_OtherUser_NotVisible() throws IOException {
+        UploadSession session = service.createSession(USER, video.length);
+
+        assertTrue(service.findSession(session.getUploadId(), "other@test.com").isEmpty());
+        assertTrue(service.findSession(session.getUploadId(), USER).isPresent());
+    }
+
+    @Test
+    void testCreateSession_OverLimit_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createSession(USER, FileStorageService.MAX_VIDEO_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> service.createSession(USER, 0));
+    }
+
+    @Test
+    void testExpireIdleSessions_RemovesAbandonedUpload() throws IOException {
+        // Given - TTL 0: svaka sesija bez aktivnosti je istekla
+        config.setSessionTtlMinutes(0);
+        UploadSession session = service.createSession(USER, video.length);
+        writeChunk(session, 0, chunk(0));
+
+        // When
+        service.expireIdleSessions();
+
+        // Then - istekla sesija ne prima ni chunk ni complete
+        assertEquals(0, service.getActiveSessionCount());
+        assertEquals(existingFiles, listUploads());
+        assertThrows(IllegalStateException.class, () -> writeChunk(session, 1, chunk(1)));
+    }
+
+    private void writeChunk(UploadSession session, int index, byte[] content) throws IOException {
+        service.writeChunk(session, index, new ByteArrayInputStream(content), checksum(content));
+    }
+
+    private byte[] chunk(int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(video, from, Math.min(video.length, from + CHUNK_SIZE));
+    }
+
+    private static String checksum(byte[] content) {
+        try {
+            return "sha256 " + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] mp4Bytes(int size) {
+        byte[] bytes = MultipartStreamParserTest.randomBytes(size);
+        byte[] header = {0, 0, 0, 24, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+        System.arraycopy(header, 0, bytes, 0, header.length);
+        return bytes;
+    }
+
+    private static MockMultipartFile thumbnail() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 18, BufferedImage.TYPE_INT_RGB), "png", out);
+        return new MockMultipartFile("thumbnailFile", "thumb.png", "image/png", out.toByteArray());
+    }
+
+    private static Set<Path> listUploads() throws IOException {
+        Set<Path> files = new HashSet<>();
+        for (Path dir : Arrays.asList(VIDEO_DIR, THUMBNAIL_DIR)) {
+            try (Stream<Path> stream = Files.list(dir)) {
+                files.addAll(stream.collect(Collectors.toSet()));
+            }
+        }
+        return files;
+    }
+}
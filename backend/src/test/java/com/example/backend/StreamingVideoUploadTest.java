@@ -0,0 +1,236 @@
+package com.example.backend;
+
+import com.example.backend.controller.VideoController;
+import com.example.backend.dto.CreateVideoRequest;
+import com.example.backend.dto.VideoResponse;
+import com.example.backend.security.JwtUtil;
+import com.example.backend.services.FileStorageService;
+import com.example.backend.services.GeolocationService;
+import com.example.backend.services.VideoService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streaming upload (POST /api/videos/upload) - video deo ide direktno na disk,
+ * provera formata po magic bajtovima i limit veličine tokom upisa.
+ */
+class StreamingVideoUploadTest {
+
+    private static final Path VIDEO_DIR = Paths.get("uploads/videos");
+    private static final Path THUMBNAIL_DIR = Paths.get("uploads/thumbnails");
+
+    private FileStorageService fileStorageService;
+    private RecordingVideoService videoService;
+    private VideoController videoController;
+    private String authHeader;
+
+    private Set<Path> existingFiles;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileStorageService = new FileStorageService();
+        videoService = new RecordingVideoService();
+        JwtUtil jwtUtil = new JwtUtil();
+        videoController = new VideoController(videoService, jwtUtil, new GeolocationService(null), fileStorageService);
+        authHeader = "Bearer " + jwtUtil.generateToken("uploader@test.com", "USER");
+        existingFiles = listUploads();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Varijante thumbnail-a se renderuju asinhrono
+        if (videoService.thumbnailPath != null) {
+            fileStorageService.awaitThumbnail(videoService.thumbnailPath);
+        }
+        for (Path file : listUploads()) {
+            if (!existingFiles.contains(file)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void testUpload_StoresVideoAndCreatesEntity() throws IOException {
+        // Given
+        byte[] video = mp4Bytes(200_000);
+        byte[] body = new MultipartStreamParserTest.Body()
+                .field("title", "Kalemegdan")
+                .field("description", "Zalazak sunca")
+                .field("tags", "beograd")
+                .field("latitude", "44.8231")
+                .field("longitude", "20.4503")
+                .file("videoFile", "clip.mp4", "application/octet-stream", video)
+                .file("thumbnailFile", "thumb.png", "image/png", pngBytes())
+                .end();
+
+        // When
+        ResponseEntity<?> response = videoController.uploadVideoStreaming(authHeader, multipartRequest(body));
+
+        // Then - Content-Type dela se ne gleda, vec sadrzaj
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("uploader@test.com", videoService.userEmail);
+        assertEquals("Kalemegdan", videoService.request.getTitle());
+        assertEquals(44.8231, videoService.request.getLatitude());
+        assertArrayEquals(video, Files.readAllBytes(VIDEO_DIR.resolve(videoService.videoPath)));
+        fileStorageService.awaitThumbnail(videoService.thumbnailPath);
+        assertTrue(Files.exists(THUMBNAIL_DIR.resolve(videoService.thumbnailPath)));
+    }
+
+    @Test
+    void testUpload_NotMp4_RejectedAndNothingLeftOnDisk() throws IOException {
+        // Given - fajl se predstavlja kao mp4, ali nije
+        byte[] body = new MultipartStreamParserTest.Body()
+                .field("title", "Lazni video")
+                .file("thumbnailFile", "thumb.png", "image/png", pngBytes())
+                .file("videoFile", "clip.mp4", "video/mp4", "<html>not a video</html>".getBytes(StandardCharsets.UTF_8))
+                .end();
+
+        // When
+        ResponseEntity<?> response = videoController.uploadVideoStreaming(authHeader, multipartRequest(body));
+
+        // Then - i thumbnail koji je vec bio upisan je obrisan
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Only MP4 video format is allowed", response.getBody());
+        assertNull(videoService.request);
+        assertEquals(existingFiles, listUploads());
+    }
+
+    @Test
+    void testUpload_CreateFails_StoredFilesDeleted() throws IOException {
+        // Given
+        videoService.failWith = new IllegalArgumentException("User not found");
+        byte[] body = new MultipartStreamParserTest.Body()
+                .field("title", "Naslov")
+                .file("videoFile", "clip.mp4", "video/mp4", mp4Bytes(10_000))
+                .file("thumbnailFile", "thumb.png", "image/png", pngBytes())
+                .end();
+
+        // When
+        ResponseEntity<?> response = videoController.uploadVideoStreaming(authHeader, multipartRequest(body));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(existingFiles, listUploads());
+    }
+
+    @Test
+    void testUpload_DeclaredLengthOverLimit_RejectedBeforeReading() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/videos/upload") {
+            @Override
+            public long getContentLengthLong() {
+                return FileStorageService.MAX_VIDEO_SIZE * 2;
+            }
+        };
+        request.setContentType("multipart/form-data; boundary=----WebKitFormBoundary7MA4YWxkTrZu0gW");
+        request.setContent(new MultipartStreamParserTest.Body().field("title", "x").end());
+
+        // When
+        ResponseEntity<?> response = videoController.uploadVideoStreaming(authHeader, request);
+
+        // Then
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+        assertNull(videoService.request);
+    }
+
+    @Test
+    void testStoreVideo_SizeLimitEnforcedWhileStreaming() throws IOException {
+        // When - limit je manji od fajla
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.storeVideo(new ByteArrayInputStream(mp4Bytes(3 * 1024 * 1024)), 1024 * 1024));
+
+        // Then - delimicno upisan fajl je obrisan
+        assertEquals("File size exceeds 1MB limit", e.getMessage());
+        assertEquals(existingFiles, listUploads());
+    }
+
+    @Test
+    void testStoreVideo_EmptyStream_Rejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.storeVideo(new ByteArrayInputStream(new byte[0])));
+        assertEquals("File is empty", e.getMessage());
+    }
+
+    private static MockHttpServletRequest multipartRequest(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/videos/upload");
+        request.setContentType("multipart/form-data; boundary=----WebKitFormBoundary7MA4YWxkTrZu0gW");
+        request.setContent(body);
+        return request;
+    }
+
+    // Minimalan MP4 pocetak: ftyp box (velicina + "ftyp" + major brand), pa proizvoljan sadrzaj
+    private static byte[] mp4Bytes(int size) {
+        byte[] bytes = MultipartStreamParserTest.randomBytes(size);
+        byte[] header = {0, 0, 0, 24, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+        System.arraycopy(header, 0, bytes, 0, header.length);
+        return bytes;
+    }
+
+    private static byte[] pngBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 18, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static Set<Path> listUploads() throws IOException {
+        Set<Path> files = new HashSet<>();
+        for (Path dir : Arrays.asList(VIDEO_DIR, THUMBNAIL_DIR)) {
+            try (Stream<Path> stream = Files.list(dir)) {
+                files.addAll(stream.collect(Collectors.toSet()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Belezi argumente createVideoFromStoredFiles umesto upisa u bazu.
+     */
+    static class RecordingVideoService extends VideoService {
+
+        CreateVideoRequest request;
+        String videoPath;
+        String thumbnailPath;
+        String userEmail;
+        RuntimeException failWith;
+
+        RecordingVideoService() {
+            super(null, null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public VideoResponse createVideoFromStoredFiles(CreateVideoRequest request, String videoPath,
+                                                       String thumbnailPath, String userEmail,
+                                                       HttpServletRequest httpRequest) {
+            if (failWith != null) {
+                throw failWith;
+            }
+            this.request = request;
+            this.videoPath = videoPath;
+            this.thumbnailPath = thumbnailPath;
+            this.userEmail = userEmail;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.backend;
+
+import com.example.backend.config.ThumbnailCacheConfig;
+import com.example.backend.services.FileStorageService;
+import com.example.backend.services.ThumbnailCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailCacheServiceTest {
+
+    private static final int THUMBNAIL_SIZE = 1000;
+
+    private StubFileStorageService stubFileStorage;
+    private SimpleMeterRegistry meterRegistry;
+    private ThumbnailCacheService thumbnailCacheService;
+
+    @BeforeEach
+    void setUp() {
+        stubFileStorage = new StubFileStorageService();
+        meterRegistry = new SimpleMeterRegistry();
+
+        ThumbnailCacheConfig config = new ThumbnailCacheConfig();
+        config.setMaxBytes(10 * THUMBNAIL_SIZE); // mesta za ~10 thumbnail-a
+
+        thumbnailCacheService = new ThumbnailCacheService(stubFileStorage, config, meterRegistry);
+    }
+
+    @Test
+    void testGetThumbnail_SecondCallIsHit() throws IOException {
+        // When
+        byte[] first = thumbnailCacheService.getThumbnail("a.jpg");
+        byte[] second = thumbnailCacheService.getThumbnail("a.jpg");
+
+        // Then - fajl je ucitan samo jednom
+        assertSame(first, second);
+        assertEquals(1, stubFileStorage.getLoadCount());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "thumbnails").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "thumbnails").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testGetThumbnail_ConcurrentMisses_LoadOnce() throws Exception {
+        // Given - sporo citanje sa diska
+        stubFileStorage.setLoadDelayMs(100);
+        final int THREAD_COUNT = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<byte[]>> futures = new ArrayList<>();
+
+        // When - svi traze isti thumbnail u isto vreme
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                return thumbnailCacheService.getThumbnail("hot.jpg");
+            }));
+        }
+        startLatch.countDown();
+        for (Future<byte[]> future : futures) {
+            assertEquals(THUMBNAIL_SIZE, future.get(5, TimeUnit.SECONDS).length);
+        }
+        executor.shutdown();
+
+        // Then - single-flight: samo jedno citanje fajla
+        assertEquals(1, stubFileStorage.getLoadCount());
+    }
+
+    @Test
+    void testGetThumbnail_RespectsByteBudget() throws IOException {
+        // When - ucitaj 5x vise thumbnail-a nego sto staje u budzet
+        for (int i = 0; i < 50; i++) {
+            thumbnailCacheService.getThumbnail("thumb" + i + ".jpg");
+        }
+
+        // Then - keš ne prelazi max-bytes i izbacuje stare unose
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> thumbnailCacheService.getCacheBytes() <= 10 * THUMBNAIL_SIZE);
+        assertTrue(thumbnailCacheService.getCacheSize() <= 10);
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", "thumbnails")
+                .functionCounter().count() > 0);
+        assertEquals((double) thumbnailCacheService.getCacheBytes(),
+                meterRegistry.get("thumbnail_cache_bytes").gauge().value());
+    }
+
+    @Test
+    void testGetThumbnail_IOException_PropagatesAndIsNotCached() {
+        // Given
+        stubFileStorage.setThrowIOException(true);
+
+        // When & Then
+        assertThrows(IOException.class, () -> thumbnailCacheService.getThumbnail("missing.jpg"));
+        assertEquals(0, thumbnailCacheService.getCacheSize());
+    }
+
+    @Test
+    void testEvict_NextCallReloadsFromDisk() throws IOException {
+        // Given
+        thumbnailCacheService.getThumbnail("a.jpg");
+
+        // When
+        thumbnailCacheService.evict("a.jpg");
+        thumbnailCacheService.getThumbnail("a.jpg");
+
+        // Then
+        assertEquals(2, stubFileStorage.getLoadCount());
+    }
+
+    // ===== Mapped (off-heap) mod =====
+
+    @Test
+    void testMappedMode_ServesDirectSlicesAndLoadsOnce(@TempDir Path dir) throws IOException {
+        ThumbnailCacheService mapped = mappedService(dir, new SimpleMeterRegistry());
+
+        ByteBuffer first = mapped.getThumbnailBuffer("a.jpg");
+        ByteBuffer second = mapped.getThumbnailBuffer("a.jpg");
+
+        assertTrue(first.isDirect());
+        assertEquals(THUMBNAIL_SIZE, first.remaining());
+        assertEquals(THUMBNAIL_SIZE, second.remaining());
+        assertEquals(1, stubFileStorage.getLoadCount());
+        assertEquals(THUMBNAIL_SIZE, mapped.getCacheBytes());
+        mapped.close();
+    }
+
+    @Test
+    void testMappedMode_ConcurrentMisses_LoadOnce(@TempDir Path dir) throws Exception {
+        ThumbnailCacheService mapped = mappedService(dir, new SimpleMeterRegistry());
+        stubFileStorage.setLoadDelayMs(100);
+        final int THREAD_COUNT = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<ByteBuffer>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                return mapped.getThumbnailBuffer("hot.jpg");
+            }));
+        }
+        startLatch.countDown();
+        for (Future<ByteBuffer> future : futures) {
+            assertEquals(THUMBNAIL_SIZE, future.get(5, TimeUnit.SECONDS).remaining());
+        }
+        executor.shutdown();
+
+        assertEquals(1, stubFileStorage.getLoadCount());
+        mapped.close();
+    }
+
+    @Test
+    void testMappedMode_WarmAfterRestart(@TempDir Path dir) throws IOException {
+        // Given
+        ThumbnailCacheService beforeRestart = mappedService(dir, new SimpleMeterRegistry());
+        beforeRestart.getThumbnailBuffer("a.jpg");
+        beforeRestart.getThumbnailBuffer("b.jpg");
+        beforeRestart.evict("b.jpg");
+        beforeRestart.close();
+
+        // When
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ThumbnailCacheService afterRestart = mappedService(dir, registry);
+        afterRestart.getThumbnailBuffer("a.jpg");
+
+        // Then - a.jpg je servovan iz segmenta, b.jpg je ostao obrisan
+        assertEquals(2, stubFileStorage.getLoadCount());
+        assertEquals(1, afterRestart.getCacheSize());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "thumbnails").tag("result", "hit")
+                .functionCounter().count());
+        afterRestart.close();
+    }
+
+    @Test
+    void testMappedMode_IOException_Propagates(@TempDir Path dir) throws IOException {
+        ThumbnailCacheService mapped = mappedService(dir, new SimpleMeterRegistry());
+        stubFileStorage.setThrowIOException(true);
+
+        assertThrows(IOException.class, () -> mapped.getThumbnailBuffer("missing.jpg"));
+        assertEquals(0, mapped.getCacheSize());
+        mapped.close();
+    }
+
+    private ThumbnailCacheService mappedService(Path dir, SimpleMeterRegistry registry) {
+        ThumbnailCacheConfig config = new ThumbnailCacheConfig();
+        config.setMode("mapped");
+        config.setSegmentDir(dir.toString());
+        config.setSegmentBytes(64 * 1024);
+        return new ThumbnailCacheService(stubFileStorage, config, registry);
+    }
+
+    // ===== Stub FileStorageService =====
+
+    static class StubFileStorageService extends FileStorageService {
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private volatile long loadDelayMs = 0;
+        private volatile boolean throwIOException = false;
+
+        public void setLoadDelayMs(long loadDelayMs) {
+            this.loadDelayMs = loadDelayMs;
+        }
+
+        public void setThrowIOException(boolean value) {
+            this.throwIOException = value;
+        }
+
+        public int getLoadCount() {
+            return loadCount.get();
+        }
+
+        @Override
+        public byte[] loadFile(String filename, boolean isVideo) throws IOException {
+            loadCount.incrementAndGet();
+            if (throwIOException) {
+                throw new IOException("Simulated file not found");
+            }
+            if (loadDelayMs > 0) {
+                try {
+                    Thread.sleep(loadDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new byte[THUMBNAIL_SIZE];
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.backend;
+
+import com.example.backend.config.ThumbnailConfig;
+import com.example.backend.services.FileStorageService;
+import com.example.backend.services.ThumbnailSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asinhrona obrada thumbnail-a: jedna poslata slika -> varijante 160x90, 320x180 i 640x360.
+ */
+class ThumbnailVariantsTest {
+
+    private static final Path THUMBNAIL_DIR = Paths.get("uploads/thumbnails");
+
+    private FileStorageService fileStorageService;
+    private String filename;
+
+    @BeforeEach
+    void setUp() {
+        fileStorageService = new FileStorageService(new ThumbnailConfig());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (filename != null) {
+            fileStorageService.awaitThumbnail(filename);
+            fileStorageService.deleteFile(filename, false);
+        }
+        fileStorageService.shutdown();
+    }
+
+    @Test
+    void testUpload_RendersAllSizes() throws IOException {
+        // When
+        filename = fileStorageService.uploadThumbnail(new ByteArrayInputStream(png(1280, 720)), "image/png");
+        fileStorageService.awaitThumbnail(filename);
+
+        // Then
+        assertDimensions(ThumbnailSize.LARGE.fileName(filename), 640, 360);
+        assertDimensions(ThumbnailSize.MEDIUM.fileName(filename), 320, 180);
+        assertDimensions(ThumbnailSize.SMALL.fileName(filename), 160, 90);
+        assertEquals(0, fileStorageService.getPendingThumbnailCount());
+    }
+
+    @Test
+    void testUpload_PreservesAspectRatio() throws IOException {
+        // When - kvadratna slika se ne razvlaci na 16:9
+        filename = fileStorageService.uploadThumbnail(new ByteArrayInputStream(png(1000, 1000)), "image/png");
+        fileStorageService.awaitThumbnail(filename);
+
+        // Then
+        assertDimensions(ThumbnailSize.LARGE.fileName(filename), 360, 360);
+        assertDimensions(ThumbnailSize.SMALL.fileName(filename), 90, 90);
+    }
+
+    @Test
+    void testUpload_SmallSourceNotUpscaled() throws IOException {
+        filename = fileStorageService.uploadThumbnail(new ByteArrayInputStream(png(200, 100)), "image/png");
+        fileStorageService.awaitThumbnail(filename);
+
+        assertDimensions(ThumbnailSize.LARGE.fileName(filename), 200, 100);
+        assertDimensions(ThumbnailSize.MEDIUM.fileName(filename), 200, 100);
+        assertDimensions(ThumbnailSize.SMALL.fileName(filename), 160, 80);
+    }
+
+    @Test
+    void testUpload_InvalidImage_RejectedImmediately() {
+        byte[] notImage = "not an image".getBytes(StandardCharsets.UTF_8);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.uploadThumbnail(new ByteArrayInputStream(notImage), "image/png"));
+        assertEquals("Invalid image file", e.getMessage());
+    }
+
+    @Test
+    void testUpload_SourceOverLimit_Rejected() {
+        ThumbnailConfig config = new ThumbnailConfig();
+        config.setMaxSourceBytes(100);
+        FileStorageService limited = new FileStorageService(config);
+        try {
+            assertThrows(IllegalArgumentException.class,
+                    () -> limited.uploadThumbnail(new ByteArrayInputStream(png(640, 360)), "image/png"));
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void testUpload_TruncatedImage_FailsInPool() throws IOException {
+        // Zaglavlje je ispravno, ali pikseli nedostaju - otkriva se tek dekodiranjem u pool-u
+        byte[] full = png(640, 360);
+        byte[] truncated = Arrays.copyOf(full, full.length / 2);
+
+        String uploaded = fileStorageService.uploadThumbnail(new ByteArrayInputStream(truncated), "image/png");
+
+        IOException e = assertThrows(IOException.class, () -> fileStorageService.awaitThumbnail(uploaded));
+        assertEquals("Invalid image file", e.getCause().getMessage());
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            assertFalse(Files.exists(THUMBNAIL_DIR.resolve(size.fileName(uploaded))));
+        }
+    }
+
+    @Test
+    void testUpload_TooManyPixels_RejectedBeforeDecoding() {
+        ThumbnailConfig config = new ThumbnailConfig();
+        config.setMaxSourcePixels(640L * 360 - 1);
+        FileStorageService limited = new FileStorageService(config);
+        try {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> limited.uploadThumbnail(new ByteArrayInputStream(png(640, 360)), "image/png"));
+            assertTrue(e.getMessage().contains("pixels"));
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void testDeleteFile_RemovesAllVariants() throws IOException {
+        // Given
+        String uploaded = fileStorageService.uploadThumbnail(new ByteArrayInputStream(png(640, 360)), "image/png");
+
+        // When - brisanje odmah, mozda dok obrada jos traje
+        fileStorageService.deleteFile(uploaded, false);
+        fileStorageService.awaitThumbnail(uploaded);
+
+        // Then
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            assertFalse(Files.exists(THUMBNAIL_DIR.resolve(size.fileName(uploaded))), size.name());
+        }
+    }
+
+    @Test
+    void testFromParam() {
+        assertEquals(ThumbnailSize.LARGE, ThumbnailSize.fromParam(null));
+        assertEquals(ThumbnailSize.SMALL, ThumbnailSize.fromParam("small"));
+        assertEquals(ThumbnailSize.MEDIUM, ThumbnailSize.fromParam("320"));
+        assertEquals(ThumbnailSize.MEDIUM, ThumbnailSize.fromParam("320x180"));
+        assertThrows(IllegalArgumentException.class, () -> ThumbnailSize.fromParam("1024"));
+        assertEquals("abc_160x90.jpg", ThumbnailSize.SMALL.fileName("abc.jpg"));
+        assertEquals("abc.jpg", ThumbnailSize.LARGE.fileName("abc.jpg"));
+    }
+
+    private static void assertDimensions(String name, int width, int height) throws IOException {
+        BufferedImage image = ImageIO.read(THUMBNAIL_DIR.resolve(name).toFile());
+        assertNotNull(image, name);
+        assertEquals(width, image.getWidth(), name);
+        assertEquals(height, image.getHeight(), name);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        // Nasumicni pikseli, da skracen fajl zaista izgubi deo slike
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.backend;
+
+import com.example.backend.config.TrendingConfig;
+import com.example.backend.dto.VideoResponse;
+import com.example.backend.model.User;
+import com.example.backend.model.Video;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.TrendingIndexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingIndexServiceTest {
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    private TrendingIndexService trendingIndexService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        TrendingConfig config = new TrendingConfig();
+        config.setIndexCapacity(5);
+        trendingIndexService = new TrendingIndexService(videoRepository, config);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("autor");
+    }
+
+    @Test
+    void testGetTop_OrderedByScoreAndLimited() {
+        // Given
+        trendingIndexService.update(List.of(video(1L, 10), video(2L, 30), video(3L, 20)));
+
+        // When
+        List<VideoResponse> top = trendingIndexService.getTop(2);
+
+        // Then - bez ijednog upita ka bazi
+        assertEquals(List.of(2L, 3L), ids(top));
+        assertEquals("autor", top.get(0).getUsername());
+        verifyNoInteractions(videoRepository);
+    }
+
+    @Test
+    void testUpdate_ReplacesPreviousScore() {
+        // Given
+        trendingIndexService.update(List.of(video(1L, 10), video(2L, 20)));
+
+        // When - video 1 dobije engagement
+        trendingIndexService.update(video(1L, 50));
+
+        // Then
+        List<VideoResponse> top = trendingIndexService.getTop(10);
+        assertEquals(List.of(1L, 2L), ids(top));
+        assertEquals(50.0, top.get(0).getPopularityScore(), 0.0001);
+        assertEquals(2, trendingIndexService.size());
+    }
+
+    @Test
+    void testUpdate_CapacityKeepsHighestScores() {
+        // When
+        for (long id = 1; id <= 8; id++) {
+            trendingIndexService.update(video(id, id * 10));
+        }
+
+        // Then
+        assertEquals(5, trendingIndexService.size());
+        assertEquals(List.of(8L, 7L, 6L, 5L, 4L), ids(trendingIndexService.getTop(100)));
+    }
+
+    @Test
+    void testScaleScores_KeepsOrderAndScalesScores() {
+        // Given
+        trendingIndexService.update(List.of(video(1L, 100), video(2L, 40)));
+
+        // When
+        trendingIndexService.scaleScores(0.5);
+        trendingIndexService.update(video(3L, 45)); // novi score je već posle decay-a
+
+        // Then
+        List<VideoResponse> top = trendingIndexService.getTop(10);
+        assertEquals(List.of(1L, 3L, 2L), ids(top));
+        assertEquals(50.0, top.get(0).getPopularityScore(), 0.0001);
+        assertEquals(45.0, top.get(1).getPopularityScore(), 0.0001);
+        assertEquals(20.0, top.get(2).getPopularityScore(), 0.0001);
+    }
+
+    @Test
+    void testGetTop_SkipsScheduledVideos() {
+        // Given
+        Video scheduled = video(1L, 100);
+        scheduled.setScheduledAt(LocalDateTime.now().plusDays(1));
+        trendingIndexService.update(List.of(scheduled, video(2L, 10)));
+
+        // Then
+        assertEquals(List.of(2L), ids(trendingIndexService.getTop(10)));
+    }
+
+    @Test
+    void testRemove() {
+        trendingIndexService.update(List.of(video(1L, 10), video(2L, 20)));
+
+        trendingIndexService.remove(2L);
+
+        assertEquals(List.of(1L), ids(trendingIndexService.getTop(10)));
+        assertEquals(1, trendingIndexService.size());
+    }
+
+    @Test
+    void testRebuild_LoadsSnapshotFromDatabase() {
+        // Given
+        trendingIndexService.update(video(9L, 999));
+        when(videoRepository.findTrendingSnapshot(any())).thenReturn(List.of(
+                new VideoResponse(video(1L, 30), 0L), new VideoResponse(video(2L, 20), 0L)));
+
+        // When
+        trendingIndexService.rebuild();
+
+        // Then - staro stanje je zamenjeno
+        assertEquals(List.of(1L, 2L), ids(trendingIndexService.getTop(10)));
+    }
+
+    @Test
+    void testConcurrentUpdates_NoDuplicates() throws Exception {
+        // Given
+        final int THREAD_COUNT = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - sve niti menjaju score-ove istih videa i čitaju rang listu
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < 2000; i++) {
+                    long id = 1 + (i % 4);
+                    trendingIndexService.update(video(id, (i * 31 + thread) % 1000));
+                    List<Long> top = ids(trendingIndexService.getTop(10));
+                    assertEquals(top.size(), top.stream().distinct().count());
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(4, trendingIndexService.size());
+        assertEquals(4, trendingIndexService.getTop(10).size());
+    }
+
+    private Video video(long id, double score) {
+        Video video = new Video();
+        video.setId(id);
+        video.setTitle("Video " + id);
+        video.setUser(user);
+        video.setPopularityScore(score);
+        video.setCreatedAt(LocalDateTime.now().minusDays(1));
+        return video;
+    }
+
+    private static List<Long> ids(List<VideoResponse> videos) {
+        return videos.stream().map(VideoResponse::getId).toList();
+    }
+}
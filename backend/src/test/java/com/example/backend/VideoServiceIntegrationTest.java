@@ -1,5 +1,7 @@
 package com.example.backend;
 
+import com.example.backend.dto.CreateCommentRequest;
+import com.example.backend.dto.VideoFeedPage;
 import com.example.backend.dto.VideoResponse;
 import com.example.backend.model.Comment;
 import com.example.backend.model.User;
@@ -9,8 +11,10 @@ import com.example.backend.repository.CommentRepository;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.repository.VideoLikeRepository;
 import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.CommentService;
 import com.example.backend.services.PopularityCalculationService;
 import com.example.backend.services.VideoService;
+import com.example.backend.services.ViewCountBufferService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +23,8 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 
@@ -47,6 +53,12 @@ class VideoServiceIntegrationTest {
     @Autowired
     private PopularityCalculationService popularityCalculationService;
 
+    @Autowired
+    private ViewCountBufferService viewCountBufferService;
+
+    @Autowired
+    private CommentService commentService;
+
     private User testUser;
 
     @BeforeEach
@@ -111,6 +123,7 @@ class VideoServiceIntegrationTest {
 
         // When - Dodaj like
         videoService.toggleLike(video.getId(), testUser.getEmail());
+        popularityCalculationService.rescoreDirtyVideos();
 
         // Then
         Video updatedVideo = videoRepository.findById(video.getId()).get();
@@ -127,6 +140,8 @@ class VideoServiceIntegrationTest {
 
         // When - Dodaj view
         videoService.incrementViewCount(video.getId());
+        viewCountBufferService.flush();
+        popularityCalculationService.rescoreDirtyVideos();
 
         // Then
         Video updatedVideo = videoRepository.findById(video.getId()).get();
@@ -175,6 +190,105 @@ class VideoServiceIntegrationTest {
                 "Video sa 10 likes bi trebao imati veći score od videa sa 3 comments");
     }
 
+    @Test
+    void testLikeAndCommentCountersMaintainedOnWrite() {
+        // Given
+        Video video = createVideo("Counter Video", 0L, LocalDateTime.now());
+
+        // When
+        videoService.toggleLike(video.getId(), testUser.getEmail());
+        commentService.addComment(video.getId(), testUser.getEmail(), new CreateCommentRequest("Prvi"));
+        commentService.addComment(video.getId(), testUser.getEmail(), new CreateCommentRequest("Drugi"));
+
+        // Then
+        Video updated = videoRepository.findById(video.getId()).get();
+        assertEquals(1L, updated.getLikeCount());
+        assertEquals(2L, updated.getCommentCount());
+        assertEquals(1L, videoService.getLikesCount(video.getId()));
+        assertEquals(1L, videoService.getVideoById(video.getId()).getLikeCount());
+
+        // When - unlike
+        videoService.toggleLike(video.getId(), testUser.getEmail());
+
+        // Then
+        assertEquals(0L, videoRepository.findById(video.getId()).get().getLikeCount());
+        assertEquals(0L, videoService.getLikesCount(video.getId()));
+    }
+
+    @Test
+    void testReconcileEngagementCounters_RepairsDrift() {
+        // Given - lajkovi i komentari upisani mimo servisa, brojači su zastareli
+        Video video = createVideo("Drift Video", 0L, LocalDateTime.now());
+        addLikes(video, 4);
+        addComments(video, 2);
+        Video untouched = createVideo("Clean Video", 0L, LocalDateTime.now());
+
+        // When
+        int repaired = popularityCalculationService.reconcileEngagementCounters();
+
+        // Then
+        assertEquals(1, repaired);
+        Video reconciled = videoRepository.findById(video.getId()).get();
+        assertEquals(4L, reconciled.getLikeCount());
+        assertEquals(2L, reconciled.getCommentCount());
+        assertEquals(0L, videoRepository.findById(untouched.getId()).get().getLikeCount());
+
+        // Drugi prolaz nema šta da ispravi
+        assertEquals(0, popularityCalculationService.reconcileEngagementCounters());
+    }
+
+    @Test
+    void testVideoFeed_KeysetPaginationInCreatedAtOrder() {
+        // Given - dva videa sa istim createdAt (redosled po id-u) i jedan zakazan za budućnost
+        LocalDateTime base = LocalDateTime.now().minusHours(1);
+        Video oldest = createVideo("Feed 1", 0L, base.minusMinutes(3));
+        Video tieLow = createVideo("Feed 2", 0L, base.minusMinutes(2));
+        Video tieHigh = createVideo("Feed 3", 0L, base.minusMinutes(2));
+        Video newest = createVideo("Feed 4", 0L, base.minusMinutes(1));
+        Video scheduled = createVideo("Feed Scheduled", 0L, base);
+        scheduled.setScheduledAt(LocalDateTime.now().plusDays(1));
+        videoRepository.save(scheduled);
+
+        // When - prolazak kroz sve strane po 2
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            VideoFeedPage page = videoService.getVideoFeed(cursor, 2);
+            assertTrue(page.getVideos().size() <= 2);
+            page.getVideos().forEach(v -> ids.add(v.getId()));
+            assertEquals(page.isHasMore(), page.getNextCursor() != null);
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 100);
+
+        // Then
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "Video se ne sme ponoviti na dve strane");
+        assertFalse(ids.contains(scheduled.getId()));
+        List<Long> ours = ids.stream()
+                .filter(id -> List.of(oldest.getId(), tieLow.getId(), tieHigh.getId(), newest.getId()).contains(id))
+                .toList();
+        assertEquals(List.of(newest.getId(), tieHigh.getId(), tieLow.getId(), oldest.getId()), ours);
+    }
+
+    @Test
+    void testVideoFeed_PageSizeIsCapped() {
+        for (int i = 0; i < 55; i++) {
+            createVideo("Cap " + i, 0L, LocalDateTime.now().minusMinutes(i));
+        }
+
+        VideoFeedPage page = videoService.getVideoFeed(null, 1000);
+
+        assertEquals(50, page.getVideos().size());
+        assertTrue(page.isHasMore());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void testVideoFeed_InvalidCursor_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> videoService.getVideoFeed("nije-kursor", 10));
+    }
+
     // Helper metode
     private Video createVideo(String title, Long viewCount, LocalDateTime createdAt) {
         Video video = new Video(
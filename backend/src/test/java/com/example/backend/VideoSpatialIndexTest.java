@@ -0,0 +1,222 @@
+package com.example.backend;
+
+import com.example.backend.config.GeolocationConfig;
+import com.example.backend.model.Video;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.GeolocationService;
+import com.example.backend.services.VideoSpatialIndex;
+import com.example.backend.services.VideoSpatialIndex.NearbyVideo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VideoSpatialIndexTest {
+
+    // Beograd, Novi Sad (~70 km), Niš (~200 km)
+    private static final double BG_LAT = 44.8125, BG_LNG = 20.4612;
+    private static final double NS_LAT = 45.2671, NS_LNG = 19.8335;
+    private static final double NIS_LAT = 43.3209, NIS_LNG = 21.8958;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    private final GeolocationService geolocationService = new GeolocationService(null);
+    private VideoSpatialIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new VideoSpatialIndex(videoRepository, geolocationService, new GeolocationConfig());
+    }
+
+    @Test
+    void testFindWithinRadius_SortedByDistanceAndRefinedExactly() {
+        // Given
+        index.put(1L, NIS_LAT, NIS_LNG, 0.0);
+        index.put(2L, NS_LAT, NS_LNG, 0.0);
+        index.put(3L, BG_LAT, BG_LNG, 0.0);
+
+        // When
+        List<NearbyVideo> within100 = index.findWithinRadius(BG_LAT, BG_LNG, 100);
+        List<NearbyVideo> within250 = index.findWithinRadius(BG_LAT, BG_LNG, 250);
+
+        // Then
+        assertEquals(List.of(3L, 2L), within100.stream().map(NearbyVideo::videoId).toList());
+        assertEquals(List.of(3L, 2L, 1L), within250.stream().map(NearbyVideo::videoId).toList());
+        assertEquals(geolocationService.calculateDistance(BG_LAT, BG_LNG, NS_LAT, NS_LNG),
+                within100.get(1).distanceKm(), 1e-9);
+    }
+
+    @Test
+    void testFindWithinRadius_MatchesFullScan() {
+        // Given - nasumicne tacke oko Beograda
+        Random random = new Random(7);
+        List<double[]> points = new ArrayList<>();
+        for (long id = 0; id < 5_000; id++) {
+            double lat = BG_LAT + (random.nextDouble() - 0.5) * 10;
+            double lng = BG_LNG + (random.nextDouble() - 0.5) * 14;
+            points.add(new double[]{lat, lng});
+            index.put(id, lat, lng, 0.0);
+        }
+
+        // When
+        List<Long> found = index.findWithinRadius(BG_LAT, BG_LNG, 150).stream().map(NearbyVideo::videoId).sorted().toList();
+
+        // Then - isti rezultat kao provera svake tacke
+        List<Long> expected = new ArrayList<>();
+        for (int id = 0; id < points.size(); id++) {
+            double[] p = points.get(id);
+            if (geolocationService.calculateDistance(BG_LAT, BG_LNG, p[0], p[1]) <= 150) {
+                expected.add((long) id);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, found);
+    }
+
+    @Test
+    void testFindWithinRadius_AcrossAntimeridian() {
+        // Given - Fidzi, sa obe strane 180. meridijana
+        index.put(1L, -17.0, 179.9, 0.0);
+        index.put(2L, -17.0, -179.9, 0.0);
+
+        // When
+        List<NearbyVideo> nearby = index.findWithinRadius(-17.0, 179.95, 50);
+
+        // Then
+        assertEquals(2, nearby.size());
+    }
+
+    @Test
+    void testUpdateAndRemove_MoveAndDropVideo() {
+        // Given
+        index.put(1L, NIS_LAT, NIS_LNG, 0.0);
+
+        // When - video pomeren u Beograd
+        Video moved = new Video();
+        moved.setId(1L);
+        moved.setLatitude(BG_LAT);
+        moved.setLongitude(BG_LNG);
+        index.update(moved);
+
+        // Then
+        assertEquals(1L, index.findWithinRadius(BG_LAT, BG_LNG, 5).get(0).videoId());
+        assertTrue(index.findWithinRadius(NIS_LAT, NIS_LNG, 5).isEmpty());
+
+        // Brisanje
+        index.remove(1L);
+        assertTrue(index.findWithinRadius(BG_LAT, BG_LNG, 5).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRebuild_LoadsCoordinatesFromDatabase() {
+        // Given
+        index.put(99L, BG_LAT, BG_LNG, 0.0);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, NS_LAT, NS_LNG, 3.0});
+        when(videoRepository.findAllCoordinates()).thenReturn(rows);
+
+        // When
+        index.rebuild();
+
+        // Then - video 99 nije u bazi
+        assertEquals(1, index.size());
+        assertEquals(1L, index.findWithinRadius(BG_LAT, BG_LNG, 100).get(0).videoId());
+    }
+
+    @Test
+    void testFindPopularWithinRadius_MatchesFullScan() {
+        // Given - nasumicne tacke i score-ovi, manji tile da bi se merge tile-ova zaista koristio
+        GeolocationConfig config = new GeolocationConfig();
+        config.setTileSize(5);
+        index = new VideoSpatialIndex(videoRepository, geolocationService, config);
+        Random random = new Random(11);
+        List<double[]> points = new ArrayList<>();
+        for (long id = 0; id < 5_000; id++) {
+            double lat = BG_LAT + (random.nextDouble() - 0.5) * 6;
+            double lng = BG_LNG + (random.nextDouble() - 0.5) * 8;
+            double score = random.nextInt(1000);
+            points.add(new double[]{lat, lng, score});
+            index.put(id, lat, lng, score);
+        }
+
+        for (int limit : new int[]{1, 5, 20}) {
+            // When
+            List<Long> found = index.findPopularWithinRadius(BG_LAT, BG_LNG, 120, limit).stream()
+                    .map(NearbyVideo::videoId).toList();
+
+            // Then - isto kao sortiranje svih videa u radijusu
+            List<NearbyVideo> all = new ArrayList<>();
+            for (int id = 0; id < points.size(); id++) {
+                double[] p = points.get(id);
+                double distance = geolocationService.calculateDistance(BG_LAT, BG_LNG, p[0], p[1]);
+                if (distance <= 120) {
+                    all.add(new NearbyVideo((long) id, distance, p[2]));
+                }
+            }
+            all.sort(Comparator.comparingDouble(NearbyVideo::popularityScore).reversed()
+                    .thenComparingDouble(NearbyVideo::distanceKm));
+            assertEquals(all.subList(0, limit).stream().map(NearbyVideo::videoId).toList(), found);
+        }
+    }
+
+    @Test
+    void testUpdateScores_RefreshesTiles() {
+        // Given - dva videa u istoj celiji
+        index.put(1L, BG_LAT, BG_LNG, 10.0);
+        index.put(2L, BG_LAT + 0.01, BG_LNG, 5.0);
+        assertEquals(1L, index.findPopularWithinRadius(BG_LAT, BG_LNG, 200, 1).get(0).videoId());
+
+        // When - video 2 postaje popularniji
+        Video video = new Video();
+        video.setId(2L);
+        video.setLatitude(BG_LAT + 0.01);
+        video.setLongitude(BG_LNG);
+        video.setPopularityScore(50.0);
+        index.updateScores(List.of(video));
+
+        // Then
+        NearbyVideo top = index.findPopularWithinRadius(BG_LAT, BG_LNG, 200, 1).get(0);
+        assertEquals(2L, top.videoId());
+        assertEquals(50.0, top.popularityScore());
+
+        // Obrisan video ispada i iz tile-a
+        index.remove(2L);
+        assertEquals(1L, index.findPopularWithinRadius(BG_LAT, BG_LNG, 200, 1).get(0).videoId());
+    }
+
+    @Test
+    void testScaleScores_DecayedIndexRanksAgainstRescoredVideos() {
+        // Given - dva videa pre decay-a
+        index.put(1L, BG_LAT, BG_LNG, 100.0);
+        index.put(2L, BG_LAT + 0.01, BG_LNG, 80.0);
+
+        // When - decay x0.5 (kao u bazi), pa preracun treceg videa vec u novoj skali
+        index.scaleScores(0.5);
+        Video video = new Video();
+        video.setId(3L);
+        video.setLatitude(BG_LAT + 0.02);
+        video.setLongitude(BG_LNG);
+        video.setPopularityScore(45.0);
+        index.updateScores(List.of(video));
+
+        // Then - isti redosled i score-ovi kao u bazi: 50, 45, 40 (preko tile-a i preko pregleda celije)
+        for (int limit : new int[]{3, 51}) {
+            List<NearbyVideo> popular = index.findPopularWithinRadius(BG_LAT, BG_LNG, 200, limit);
+            assertEquals(List.of(1L, 3L, 2L), popular.stream().map(NearbyVideo::videoId).toList());
+            assertEquals(50.0, popular.get(0).popularityScore(), 1e-9);
+            assertEquals(40.0, popular.get(2).popularityScore(), 1e-9);
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package com.example.backend;
 
 import com.example.backend.controller.VideoController;
+import com.example.backend.dto.MediaValidators;
+import com.example.backend.model.Video;
 import com.example.backend.security.JwtUtil;
+import com.example.backend.services.FileStorageService;
 import com.example.backend.services.GeolocationService;
+import com.example.backend.services.ThumbnailSize;
 import com.example.backend.services.VideoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,34 +49,33 @@ class VideoStreamingControllerTest {
         // ali VideoController ih trazi u konstruktoru.
         // JwtUtil je konkretna klasa koja se moze instancirati.
         JwtUtil jwtUtil = new JwtUtil();
-        GeolocationService geoService = new GeolocationService();
+        GeolocationService geoService = new GeolocationService(null);
 
-        videoController = new VideoController(stubVideoService, jwtUtil, geoService);
+        videoController = new VideoController(stubVideoService, jwtUtil, geoService, new FileStorageService());
     }
 
     // ===== streamVideo() testovi =====
 
     @Test
-    void testStreamVideo_Available_Returns200WithVideoData() {
+    void testStreamVideo_Available_Returns200WithVideoData() throws IOException {
         // Given - video je dostupan i fajl postoji
         stubVideoService.setVideoAvailable(true);
         stubVideoService.setVideoBytes(new byte[]{10, 20, 30, 40, 50});
 
         // When
-        ResponseEntity<?> response = videoController.streamVideo(1L);
+        ResponseEntity<?> response = videoController.streamVideo(1L, new HttpHeaders(), new MockHttpServletRequest());
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
-        byte[] body = (byte[]) response.getBody();
-        assertNotNull(body);
-        assertEquals(5, body.length);
+        assertArrayEquals(new byte[]{10, 20, 30, 40, 50}, writeBody(response));
 
         // Proveri headere
         HttpHeaders headers = response.getHeaders();
         assertEquals("video/mp4", headers.getContentType().toString());
         assertEquals(5, headers.getContentLength());
         assertEquals("bytes", headers.getFirst("Accept-Ranges"));
+        assertTrue(headers.getLastModified() > 0);
     }
 
     @Test
@@ -69,7 +84,7 @@ class VideoStreamingControllerTest {
         stubVideoService.setVideoAvailable(false);
 
         // When
-        ResponseEntity<?> response = videoController.streamVideo(1L);
+        ResponseEntity<?> response = videoController.streamVideo(1L, new HttpHeaders(), new MockHttpServletRequest());
 
         // Then
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
@@ -82,7 +97,7 @@ class VideoStreamingControllerTest {
         stubVideoService.setThrowNotFound(true);
 
         // When
-        ResponseEntity<?> response = videoController.streamVideo(999L);
+        ResponseEntity<?> response = videoController.streamVideo(999L, new HttpHeaders(), new MockHttpServletRequest());
 
         // Then
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -95,7 +110,7 @@ class VideoStreamingControllerTest {
         stubVideoService.setThrowIOException(true);
 
         // When
-        ResponseEntity<?> response = videoController.streamVideo(1L);
+        ResponseEntity<?> response = videoController.streamVideo(1L, new HttpHeaders(), new MockHttpServletRequest());
 
         // Then
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -110,13 +125,334 @@ class VideoStreamingControllerTest {
         stubVideoService.setVideoBytes(largeData);
 
         // When
-        ResponseEntity<?> response = videoController.streamVideo(1L);
+        ResponseEntity<?> response = videoController.streamVideo(1L, new HttpHeaders(), new MockHttpServletRequest());
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(10 * 1024 * 1024, response.getHeaders().getContentLength());
     }
 
+    // ===== Range zahtevi =====
+
+    @Test
+    void testStreamVideo_SingleRange_Returns206WithRequestedBytes() throws IOException {
+        // Given - klijent trazi bajtove 100-199
+        byte[] data = sequentialBytes(1000);
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(data);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=100-199");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 200), writeBody(response));
+        assertEquals(100, response.getHeaders().getContentLength());
+        assertEquals("bytes 100-199/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("video/mp4", response.getHeaders().getContentType().toString());
+        assertEquals("bytes", response.getHeaders().getFirst("Accept-Ranges"));
+    }
+
+    @Test
+    void testStreamVideo_SuffixRange_ReturnsLastBytes() throws IOException {
+        // Given - poslednjih 50 bajtova (npr. plejer trazi moov atom na kraju fajla)
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=-50");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 950-999/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(50, writeBody(response).length);
+    }
+
+    @Test
+    void testStreamVideo_MultiRange_Returns206WithRegionList() {
+        // Given
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-9,500-509");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        @SuppressWarnings("unchecked")
+        List<ResourceRegion> regions = (List<ResourceRegion>) response.getBody();
+        assertEquals(2, regions.size());
+        assertEquals(0, regions.get(0).getPosition());
+        assertEquals(500, regions.get(1).getPosition());
+    }
+
+    @Test
+    void testStreamVideo_RangeBeyondEnd_Returns416() {
+        // Given - pocetak opsega je iza kraja fajla
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=5000-");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testStreamVideo_MalformedRange_Returns416() {
+        // Given
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=abc");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+    }
+
+    @Test
+    void testStreamVideo_IfRangeMatchesLastModified_Returns206() throws IOException {
+        // Given - If-Range sa istim datumom kao Last-Modified fajla
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+        long lastModified = videoController.streamVideo(1L, new HttpHeaders(), new MockHttpServletRequest())
+                .getHeaders().getLastModified();
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-99");
+        requestHeaders.setDate(HttpHeaders.IF_RANGE, lastModified);
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    }
+
+    @Test
+    void testStreamVideo_IfRangeStale_ReturnsFullFile() {
+        // Given - If-Range sa starim datumom (fajl se u medjuvremenu promenio)
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-99");
+        requestHeaders.setDate(HttpHeaders.IF_RANGE, 0L);
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then - Range se ignorise, vraca se ceo fajl
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1000, response.getHeaders().getContentLength());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    // ===== Zero-copy (Tomcat sendfile) =====
+
+    @Test
+    void testStreamVideo_SendfileSupported_DelegatesToContainer() {
+        // Given - kontejner podrzava sendfile
+        stubVideoService.setVideoAvailable(true);
+        stubVideoService.setVideoBytes(new byte[1000]);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=200-");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, request);
+
+        // Then - nema tela, kontroler samo predaje opseg fajla Tomcat-u
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(800, response.getHeaders().getContentLength());
+        assertNotNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(200L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(1000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    // ===== Uslovni GET (ETag / Last-Modified) =====
+
+    @Test
+    void testStreamVideo_SendsValidatorsAndCacheControl() {
+        // Given
+        stubVideoService.setVideoBytes(new byte[100]);
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, new HttpHeaders(), new MockHttpServletRequest());
+
+        // Then
+        HttpHeaders headers = response.getHeaders();
+        assertEquals(StubVideoService.VIDEO_ETAG, headers.getETag());
+        assertEquals(StubVideoService.LAST_MODIFIED, headers.getLastModified());
+        assertTrue(headers.getCacheControl().contains("max-age"));
+    }
+
+    @Test
+    void testStreamVideo_IfNoneMatch_Returns304WithoutOpeningFile() {
+        // Given
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch(StubVideoService.VIDEO_ETAG);
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(StubVideoService.VIDEO_ETAG, response.getHeaders().getETag());
+        assertEquals(0, stubVideoService.getVideoResourceCalls());
+    }
+
+    @Test
+    void testStreamVideo_IfNoneMatchDifferent_Returns200() {
+        // Given - klijent ima drugu verziju
+        stubVideoService.setVideoBytes(new byte[100]);
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch("\"other\"");
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then - video se iz baze ucitava jednom za ceo zahtev
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, stubVideoService.getVideoResourceCalls());
+        assertEquals(1, stubVideoService.getVideoLoads());
+    }
+
+    @Test
+    void testStreamVideo_IfModifiedSince_Returns304() {
+        // Given
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfModifiedSince(StubVideoService.LAST_MODIFIED);
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(0, stubVideoService.getVideoResourceCalls());
+    }
+
+    @Test
+    void testStreamVideo_IfRangeMatchesETag_Returns206() {
+        // Given
+        stubVideoService.setVideoBytes(new byte[1000]);
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-99");
+        requestHeaders.set(HttpHeaders.IF_RANGE, StubVideoService.VIDEO_ETAG);
+
+        // When
+        ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals(100, response.getHeaders().getContentLength());
+    }
+
+    @Test
+    void testStreamVideo_IfRangeWeakOrDifferentETag_ReturnsFullFile() {
+        // Given - If-Range zahteva jako poredjenje
+        stubVideoService.setVideoBytes(new byte[1000]);
+        for (String ifRange : List.of("W/" + StubVideoService.VIDEO_ETAG, "\"other\"")) {
+            HttpHeaders requestHeaders = new HttpHeaders();
+            requestHeaders.set(HttpHeaders.RANGE, "bytes=0-99");
+            requestHeaders.set(HttpHeaders.IF_RANGE, ifRange);
+
+            // When
+            ResponseEntity<?> response = videoController.streamVideo(1L, requestHeaders, new MockHttpServletRequest());
+
+            // Then
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(1000, response.getHeaders().getContentLength());
+        }
+    }
+
+    @Test
+    void testGetThumbnail_Returns200WithValidators() {
+        // When
+        ResponseEntity<?> response = videoController.getThumbnail(1L, null, new HttpHeaders());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(StubVideoService.THUMBNAIL_ETAG, response.getHeaders().getETag());
+        assertEquals(StubVideoService.LAST_MODIFIED, response.getHeaders().getLastModified());
+        assertTrue(response.getHeaders().getCacheControl().contains("public"));
+        assertEquals(1, stubVideoService.getThumbnailCalls());
+        assertEquals(1, stubVideoService.getVideoLoads());
+    }
+
+    @Test
+    void testGetThumbnail_IfNoneMatchWeak_Returns304WithoutLoadingThumbnail() {
+        // Given - If-None-Match koristi slabo poredjenje (CDN cesto dodaje W/)
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch(List.of("\"other\"", "W/" + StubVideoService.THUMBNAIL_ETAG));
+
+        // When
+        ResponseEntity<?> response = videoController.getThumbnail(1L, null, requestHeaders);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(StubVideoService.THUMBNAIL_ETAG, response.getHeaders().getETag());
+        assertEquals(0, stubVideoService.getThumbnailCalls());
+    }
+
+    @Test
+    void testGetThumbnail_ModifiedSinceOlderDate_Returns200() {
+        // Given
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfModifiedSince(StubVideoService.LAST_MODIFIED - 60_000);
+
+        // When
+        ResponseEntity<?> response = videoController.getThumbnail(1L, null, requestHeaders);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, stubVideoService.getThumbnailCalls());
+    }
+
+    @Test
+    void testGetThumbnail_SizeParam_PassedToService() {
+        // When
+        ResponseEntity<?> response = videoController.getThumbnail(1L, "small", new HttpHeaders());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(ThumbnailSize.SMALL, stubVideoService.getLastThumbnailSize());
+    }
+
+    @Test
+    void testGetThumbnail_UnknownSize_Returns400() {
+        // When
+        ResponseEntity<?> response = videoController.getThumbnail(1L, "huge", new HttpHeaders());
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0, stubVideoService.getThumbnailCalls());
+    }
+
     // ===== getStreamInfo() testovi =====
 
     @Test
@@ -201,6 +537,22 @@ class VideoStreamingControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
+    // ===== Helper metode =====
+
+    private static byte[] writeBody(ResponseEntity<?> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] sequentialBytes(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
     // ===== Stub VideoService =====
 
     /**
@@ -209,14 +561,22 @@ class VideoStreamingControllerTest {
      */
     static class StubVideoService extends VideoService {
 
+        static final String VIDEO_ETAG = "\"video-uuid\"";
+        static final String THUMBNAIL_ETAG = "\"thumbnail-uuid\"";
+        static final long LAST_MODIFIED = 1_700_000_000_000L;
+
         private boolean videoAvailable = true;
         private byte[] videoBytes = new byte[0];
         private boolean throwNotFound = false;
         private boolean throwIOException = false;
         private Map<String, Object> streamInfo = new HashMap<>();
+        private int videoResourceCalls = 0;
+        private int videoLoads = 0;
+        private int thumbnailCalls = 0;
+        private ThumbnailSize lastThumbnailSize;
 
         public StubVideoService() {
-            super(null, null, null, null, null, null, null, null);
+            super(null, null, null, null, null, null, null, null, null, null);
         }
 
         public void setVideoAvailable(boolean available) {
@@ -239,23 +599,64 @@ class VideoStreamingControllerTest {
             this.streamInfo = info;
         }
 
+        public int getVideoResourceCalls() {
+            return videoResourceCalls;
+        }
+
+        public int getVideoLoads() {
+            return videoLoads;
+        }
+
+        public int getThumbnailCalls() {
+            return thumbnailCalls;
+        }
+
+        public ThumbnailSize getLastThumbnailSize() {
+            return lastThumbnailSize;
+        }
+
         @Override
-        public boolean isVideoAvailable(Long videoId) {
+        public Video getVideo(Long videoId) {
+            videoLoads++;
             if (throwNotFound) {
                 throw new IllegalArgumentException("Video not found");
             }
-            return videoAvailable;
+            Video video = new Video();
+            video.setId(videoId);
+            if (!videoAvailable) {
+                video.setScheduledAt(LocalDateTime.now().plusHours(1));
+            }
+            return video;
         }
 
         @Override
-        public byte[] getVideoFile(Long videoId) throws IOException {
-            if (throwNotFound) {
-                throw new IllegalArgumentException("Video not found");
-            }
+        public MediaValidators getVideoValidators(Video video) {
+            return new MediaValidators(VIDEO_ETAG, LAST_MODIFIED);
+        }
+
+        @Override
+        public MediaValidators getThumbnailValidators(Video video, ThumbnailSize size) {
+            return new MediaValidators(THUMBNAIL_ETAG, LAST_MODIFIED);
+        }
+
+        @Override
+        public ByteBuffer getThumbnail(Video video, ThumbnailSize size) {
+            thumbnailCalls++;
+            lastThumbnailSize = size;
+            return ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        }
+
+        @Override
+        public Resource getVideoResource(Video video) throws IOException {
+            videoResourceCalls++;
             if (throwIOException) {
                 throw new IOException("Simulated IO error");
             }
-            return videoBytes;
+            // Pravi fajl na disku - Resource mora imati lastModified za Range/If-Range
+            Path file = Files.createTempFile("stream-test", ".mp4");
+            file.toFile().deleteOnExit();
+            Files.write(file, videoBytes);
+            return new FileSystemResource(file);
         }
 
         @Override
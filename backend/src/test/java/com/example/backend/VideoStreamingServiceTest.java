@@ -1,17 +1,22 @@
 package com.example.backend;
 
+import com.example.backend.dto.CreateVideoRequest;
 import com.example.backend.model.User;
 import com.example.backend.model.Video;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.repository.VideoLikeRepository;
 import com.example.backend.repository.VideoRepository;
-import com.example.backend.repository.VideoViewRepository;
 import com.example.backend.services.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -34,7 +39,7 @@ class VideoStreamingServiceTest {
     private VideoLikeRepository videoLikeRepository;
 
     @Mock
-    private VideoViewRepository videoViewRepository;
+    private ViewCountBufferService viewCountBufferService;
 
     @Mock
     private ThumbnailCacheService thumbnailCacheService;
@@ -43,7 +48,13 @@ class VideoStreamingServiceTest {
     private PopularityCalculationService popularityCalculationService;
 
     @Mock
-    private GeolocationService geolocationService;
+    private LocationEnrichmentService locationEnrichmentService;
+
+    @Mock
+    private TrendingIndexService trendingIndexService;
+
+    @Mock
+    private VideoSpatialIndex videoSpatialIndex;
 
     // Rucni stub za FileStorageService (Mockito ne moze klase na Java 25)
     private StubFileStorageService stubFileStorage;
@@ -60,11 +71,13 @@ class VideoStreamingServiceTest {
                 videoRepository,
                 userRepository,
                 videoLikeRepository,
-                videoViewRepository,
+                viewCountBufferService,
                 stubFileStorage,
                 thumbnailCacheService,
                 popularityCalculationService,
-                geolocationService
+                locationEnrichmentService,
+                trendingIndexService,
+                videoSpatialIndex
         );
 
         testUser = new User();
@@ -222,10 +235,10 @@ class VideoStreamingServiceTest {
                 "Offset bi trebao biti 0 ili mali: " + offset);
     }
 
-    // ===== getVideoFile() testovi =====
+    // ===== getVideoResource() testovi =====
 
     @Test
-    void testGetVideoFile_Success() throws IOException {
+    void testGetVideoResource_Success() throws IOException {
         // Given
         Video video = createVideo("Test Video", null);
         video.setVideoPath("test-video.mp4");
@@ -234,28 +247,28 @@ class VideoStreamingServiceTest {
         stubFileStorage.setVideoBytes(new byte[]{1, 2, 3, 4, 5});
 
         // When
-        byte[] result = videoService.getVideoFile(1L);
+        Resource result = videoService.getVideoResource(1L);
 
         // Then
         assertNotNull(result);
-        assertEquals(5, result.length);
+        assertEquals(5, result.contentLength());
         assertEquals("test-video.mp4", stubFileStorage.getLastLoadedFilename());
         assertTrue(stubFileStorage.wasLastLoadVideo());
     }
 
     @Test
-    void testGetVideoFile_VideoNotFound_ThrowsException() {
+    void testGetVideoResource_VideoNotFound_ThrowsException() {
         // Given
         when(videoRepository.findById(999L)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(IllegalArgumentException.class, () -> {
-            videoService.getVideoFile(999L);
+            videoService.getVideoResource(999L);
         });
     }
 
     @Test
-    void testGetVideoFile_FileIOException_Propagates() {
+    void testGetVideoResource_FileIOException_Propagates() {
         // Given
         Video video = createVideo("Test Video", null);
         video.setVideoPath("missing-file.mp4");
@@ -265,10 +278,40 @@ class VideoStreamingServiceTest {
 
         // When & Then
         assertThrows(IOException.class, () -> {
-            videoService.getVideoFile(1L);
+            videoService.getVideoResource(1L);
         });
     }
 
+    // ===== Indeksi posle commit-a =====
+
+    @Test
+    void testCreateVideo_IndexesUpdatedOnlyAfterCommit() {
+        // Given - aktivna transakcija
+        CreateVideoRequest request = new CreateVideoRequest("Naslov", "Opis", "tag", null);
+        request.setLatitude(44.8125);
+        request.setLongitude(20.4612);
+        when(userRepository.findByEmail("test@test.com")).thenReturn(Optional.of(testUser));
+        when(videoRepository.save(any(Video.class))).thenAnswer(invocation -> {
+            Video saved = invocation.getArgument(0);
+            saved.setId(5L);
+            return saved;
+        });
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            videoService.createVideoFromStoredFiles(request, "video.mp4", "thumb.jpg", "test@test.com",
+                    new MockHttpServletRequest());
+
+            // Then - pre commit-a indeksi nisu dirani, posle commit-a jesu
+            verifyNoInteractions(trendingIndexService, videoSpatialIndex);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(trendingIndexService).update(argThat((Video video) -> video.getId() == 5L));
+            verify(videoSpatialIndex).update(argThat((Video video) -> video.getId() == 5L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     // ===== Helper metode =====
 
     private Video createVideo(String title, LocalDateTime scheduledAt) {
@@ -322,5 +365,10 @@ class VideoStreamingServiceTest {
             }
             return videoBytes;
         }
+
+        @Override
+        public Resource loadAsResource(String filename, boolean isVideo) throws IOException {
+            return new ByteArrayResource(loadFile(filename, isVideo));
+        }
     }
 }
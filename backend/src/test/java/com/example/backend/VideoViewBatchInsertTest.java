@@ -0,0 +1,178 @@
+package com.example.backend;
+
+import com.example.backend.model.User;
+import com.example.backend.model.Video;
+import com.example.backend.model.VideoView;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.repository.VideoViewRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testovi za batch upis VideoView redova (sekvenca + JDBC batching) na H2 test profilu.
+ *
+ * Benchmark (rows/sec) je iskljucen po default-u:
+ *   mvn test -Dtest=VideoViewBatchInsertTest -Dbenchmark=true
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VideoViewBatchInsertTest {
+
+    @Autowired
+    private VideoViewRepository videoViewRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        User user = new User();
+        user.setUsername("batchuser");
+        user.setEmail("batch@example.com");
+        user.setPassword("password");
+        user.setFirstName("Batch");
+        user.setLastName("User");
+        user.setAddress("Test Address");
+        user.setRole("USER");
+        user.setEnabled(true);
+        user = userRepository.save(user);
+
+        video = new Video();
+        video.setTitle("Batch Video");
+        video.setDescription("Test");
+        video.setTags("test");
+        video.setThumbnailPath("batch-thumb.jpg");
+        video.setVideoPath("batch-video.mp4");
+        video.setUser(user);
+        video.setCreatedAt(LocalDateTime.now());
+        video = videoRepository.save(video);
+    }
+
+    @AfterEach
+    void tearDown() {
+        videoViewRepository.deleteAllInBatch();
+        videoRepository.deleteById(video.getId());
+        userRepository.deleteById(video.getUser().getId());
+    }
+
+    @Test
+    void testInsertInBatches_AllRowsWrittenWithUniqueIds() {
+        // When
+        List<VideoView> views = createViews(1000);
+        transactionTemplate.executeWithoutResult(status -> videoViewRepository.insertInBatches(views));
+
+        // Then
+        assertEquals(1000, videoViewRepository.count());
+        Set<Long> ids = new HashSet<>();
+        for (VideoView view : views) {
+            assertNotNull(view.getId());
+            ids.add(view.getId());
+        }
+        assertEquals(1000, ids.size());
+    }
+
+    @Test
+    void testInsertInBatches_UsesJdbcBatching() {
+        // Given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        // When
+        List<VideoView> views = createViews(1000);
+        transactionTemplate.executeWithoutResult(status -> videoViewRepository.insertInBatches(views, 50));
+
+        // Then - ~20 batch INSERT-a + ~20 poziva sekvence umesto 1000 pojedinacnih INSERT-a
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+        assertTrue(statements < 100, "Ocekivano batch izvrsavanje, a pripremljeno je " + statements + " naredbi");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRowsPerSecond() {
+        final int ROWS = 20_000;
+
+        // zagrevanje
+        insertBatched(createViews(ROWS), 50);
+        videoViewRepository.deleteAllInBatch();
+
+        System.out.println();
+        System.out.println("========== VIDEO_VIEWS INSERT BENCHMARK (H2) ==========");
+        System.out.printf("%-32s %12s%n", "Strategija", "rows/sec");
+
+        // Stari put: save() po pregledu, svaki u svojoj transakciji
+        List<VideoView> single = createViews(ROWS / 10);
+        long start = System.nanoTime();
+        for (VideoView view : single) {
+            videoViewRepository.save(view);
+        }
+        double singleRate = rowsPerSecond(single.size(), System.nanoTime() - start);
+        System.out.printf("%-32s %12.0f%n", "save() po redu", singleRate);
+        videoViewRepository.deleteAllInBatch();
+
+        double bestBatchedRate = 0;
+        for (int batchSize : new int[]{1, 50, 500}) {
+            List<VideoView> views = createViews(ROWS);
+            start = System.nanoTime();
+            insertBatched(views, batchSize);
+            double rate = rowsPerSecond(ROWS, System.nanoTime() - start);
+            bestBatchedRate = Math.max(bestBatchedRate, rate);
+            System.out.printf("%-32s %12.0f%n", "insertInBatches(batch=" + batchSize + ")", rate);
+            videoViewRepository.deleteAllInBatch();
+        }
+        System.out.println("=======================================================");
+
+        assertTrue(bestBatchedRate > singleRate);
+    }
+
+    private void insertBatched(List<VideoView> views, int batchSize) {
+        transactionTemplate.executeWithoutResult(status -> videoViewRepository.insertInBatches(views, batchSize));
+    }
+
+    private List<VideoView> createViews(int count) {
+        List<VideoView> views = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            views.add(new VideoView(video, now.minusSeconds(i)));
+        }
+        return views;
+    }
+
+    private static double rowsPerSecond(int rows, long nanos) {
+        return rows / (nanos / 1_000_000_000.0);
+    }
+}
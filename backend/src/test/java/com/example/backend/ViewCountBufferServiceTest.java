@@ -0,0 +1,211 @@
+package com.example.backend;
+
+import com.example.backend.config.ViewCountConfig;
+import com.example.backend.model.Video;
+import com.example.backend.model.VideoView;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.repository.VideoViewRepository;
+import com.example.backend.services.PopularityCalculationService;
+import com.example.backend.services.ViewCountBufferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ViewCountBufferServiceTest {
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private VideoViewRepository videoViewRepository;
+
+    @Mock
+    private PopularityCalculationService popularityCalculationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ViewCountConfig config;
+    private ViewCountBufferService viewCountBufferService;
+
+    @BeforeEach
+    void setUp() {
+        config = new ViewCountConfig();
+        config.setFlushThreshold(Integer.MAX_VALUE); // flush samo eksplicitno
+        viewCountBufferService = createService();
+
+        when(videoRepository.existsById(anyLong())).thenReturn(true);
+        when(videoRepository.addViewCount(anyLong(), anyLong())).thenReturn(1);
+        when(videoRepository.getReferenceById(anyLong())).thenAnswer(invocation -> {
+            Video video = new Video();
+            video.setId(invocation.getArgument(0));
+            return video;
+        });
+    }
+
+    @Test
+    void testRecordView_DoesNotWriteUntilFlush() {
+        // When
+        for (int i = 0; i < 100; i++) {
+            viewCountBufferService.recordView(1L);
+        }
+
+        // Then - samo jedna provera postojanja, bez upisa
+        verify(videoRepository, times(1)).existsById(1L);
+        verify(videoRepository, never()).addViewCount(anyLong(), anyLong());
+        assertEquals(100, viewCountBufferService.getPendingViews(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_OneUpdatePerVideoAndBatchInsert() {
+        // Given
+        for (int i = 0; i < 1000; i++) {
+            viewCountBufferService.recordView(1L);
+        }
+        for (int i = 0; i < 3; i++) {
+            viewCountBufferService.recordView(2L);
+        }
+
+        // When
+        viewCountBufferService.flush();
+
+        // Then
+        verify(videoRepository).addViewCount(1L, 1000L);
+        verify(videoRepository).addViewCount(2L, 3L);
+        ArgumentCaptor<List<VideoView>> captor = ArgumentCaptor.forClass(List.class);
+        verify(videoViewRepository).insertInBatches(captor.capture());
+        assertEquals(1003, captor.getValue().size());
+        verify(popularityCalculationService, times(1)).markDirty(1L);
+        verify(popularityCalculationService, times(1)).markDirty(2L);
+        assertEquals(0, viewCountBufferService.getPendingViews(1L));
+        assertEquals(0, viewCountBufferService.getPendingSize());
+    }
+
+    @Test
+    void testRecordView_NonExistentVideo_Throws() {
+        when(videoRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> viewCountBufferService.recordView(99L));
+        assertEquals(0, viewCountBufferService.getPendingSize());
+    }
+
+    @Test
+    void testFlush_DatabaseError_ViewsAreRequeued() {
+        // Given
+        viewCountBufferService.recordView(1L);
+        viewCountBufferService.recordView(1L);
+        when(videoRepository.addViewCount(1L, 2L))
+                .thenThrow(new RuntimeException("DB down"))
+                .thenReturn(1);
+
+        // When - prvi flush ne uspe
+        viewCountBufferService.flush();
+
+        // Then - ništa nije izgubljeno
+        assertEquals(2, viewCountBufferService.getPendingSize());
+        assertEquals(2, viewCountBufferService.getPendingViews(1L));
+
+        // When - drugi flush uspe
+        viewCountBufferService.flush();
+        assertEquals(0, viewCountBufferService.getPendingSize());
+        verify(videoRepository, times(2)).addViewCount(1L, 2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_DeletedVideo_ViewsAreDropped() {
+        // Given - video je obrisan između pregleda i flush-a
+        viewCountBufferService.recordView(1L);
+        viewCountBufferService.recordView(2L);
+        when(videoRepository.addViewCount(2L, 1L)).thenReturn(0);
+
+        // When
+        viewCountBufferService.flush();
+
+        // Then
+        ArgumentCaptor<List<VideoView>> captor = ArgumentCaptor.forClass(List.class);
+        verify(videoViewRepository).insertInBatches(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        verify(popularityCalculationService, never()).markDirty(2L);
+
+        // Sledeći pregled ponovo proverava postojanje
+        when(videoRepository.existsById(2L)).thenReturn(false);
+        assertThrows(IllegalArgumentException.class, () -> viewCountBufferService.recordView(2L));
+    }
+
+    @Test
+    void testConcurrentViews_ThresholdFlushes_NoViewsLost() throws Exception {
+        // Given - flush u pozadini na svakih 100 pregleda
+        config.setFlushThreshold(100);
+        viewCountBufferService = createService();
+        AtomicLong written = new AtomicLong();
+        when(videoRepository.addViewCount(eq(1L), anyLong())).thenAnswer(invocation -> {
+            written.addAndGet(invocation.getArgument(1));
+            return 1;
+        });
+
+        final int THREAD_COUNT = 8;
+        final int VIEWS_PER_THREAD = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<java.util.concurrent.Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                    viewCountBufferService.recordView(1L);
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (var future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        viewCountBufferService.shutdown();
+
+        // Then - svaki pregled upisan tačno jednom
+        assertEquals(THREAD_COUNT * VIEWS_PER_THREAD, written.get());
+        assertEquals(0, viewCountBufferService.getPendingViews(1L));
+    }
+
+    @Test
+    void testShutdown_FlushesRemainingViews() throws InterruptedException {
+        viewCountBufferService.recordView(1L);
+
+        viewCountBufferService.shutdown();
+
+        verify(videoRepository).addViewCount(1L, 1L);
+        assertEquals(0, viewCountBufferService.getPendingSize());
+    }
+
+    private ViewCountBufferService createService() {
+        return new ViewCountBufferService(videoRepository, videoViewRepository, popularityCalculationService,
+                transactionManager, config, new SimpleMeterRegistry());
+    }
+}
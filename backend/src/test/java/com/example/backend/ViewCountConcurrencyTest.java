@@ -4,7 +4,9 @@ import com.example.backend.model.User;
 import com.example.backend.model.Video;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.repository.VideoRepository;
+import com.example.backend.repository.VideoViewRepository;
 import com.example.backend.services.VideoService;
+import com.example.backend.services.ViewCountBufferService;
 import com.example.backend.repository.VerificationTokenRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +36,12 @@ public class ViewCountConcurrencyTest {
 
     @Autowired
     private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private VideoViewRepository videoViewRepository;
+
+    @Autowired
+    private ViewCountBufferService viewCountBufferService;
     
     private Video testVideo;
     private User testUser;
@@ -43,6 +51,7 @@ public class ViewCountConcurrencyTest {
     public void setup() {
        
         verificationTokenRepository.deleteAll();  
+        videoViewRepository.deleteAll();
         videoRepository.deleteAll();              
         userRepository.deleteAll();              
         
@@ -116,6 +125,8 @@ public class ViewCountConcurrencyTest {
 
         long endTime = System.currentTimeMillis();
 
+        // Pregledi se upisuju write-behind - sacekaj flush
+        viewCountBufferService.flush();
         Video updatedVideo = videoRepository.findById(videoId).orElseThrow();
 
         System.out.println();
@@ -151,6 +162,8 @@ public class ViewCountConcurrencyTest {
             System.out.println("  Increment " + (i + 1) + " completed");
         }
 
+        // Pregledi se upisuju write-behind - sacekaj flush
+        viewCountBufferService.flush();
         Video updatedVideo = videoRepository.findById(videoId).orElseThrow();
 
         System.out.println();
@@ -217,6 +230,8 @@ public class ViewCountConcurrencyTest {
         executorService.awaitTermination(10, TimeUnit.SECONDS);
 
         long endTime = System.currentTimeMillis();
+        // Pregledi se upisuju write-behind - sacekaj flush
+        viewCountBufferService.flush();
         Video updatedVideo = videoRepository.findById(videoId).orElseThrow();
 
         System.out.println("Threads: " + THREAD_COUNT);
@@ -0,0 +1,194 @@
+package com.example.backend;
+
+import com.example.backend.config.ViewRetentionConfig;
+import com.example.backend.model.User;
+import com.example.backend.model.Video;
+import com.example.backend.model.VideoView;
+import com.example.backend.model.VideoViewDaily;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.repository.VideoViewDailyRepository;
+import com.example.backend.repository.VideoViewRepository;
+import com.example.backend.services.ViewRollupService;
+import com.example.backend.services.ViewWindowAggregator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ViewRollupIntegrationTest {
+
+    @Autowired
+    private ViewRollupService viewRollupService;
+
+    @Autowired
+    private ViewWindowAggregator viewWindowAggregator;
+
+    @Autowired
+    private VideoViewRepository videoViewRepository;
+
+    @Autowired
+    private VideoViewDailyRepository videoViewDailyRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ViewRetentionConfig viewRetentionConfig;
+
+    private Video video;
+    private int originalGraceMinutes;
+
+    @BeforeEach
+    void setUp() {
+        // Redovi se upisuju u toku testa, pa se kompaktuju bez čekanja
+        originalGraceMinutes = viewRetentionConfig.getCompactionGraceMinutes();
+        viewRetentionConfig.setCompactionGraceMinutes(0);
+
+        User user = new User();
+        user.setEmail("rollup@example.com");
+        user.setPassword("password");
+        user.setUsername("rollupuser");
+        user.setFirstName("Rollup");
+        user.setLastName("Test");
+        user.setAddress("Test Address 123");
+        user.setRole("USER");
+        user.setEnabled(true);
+        user = userRepository.save(user);
+
+        video = new Video("Rollup Video", "Description", "tags", "thumbnail.jpg", "video.mp4", user, null);
+        video.setViewCount(0L);
+        video = videoRepository.save(video);
+    }
+
+    @AfterEach
+    void tearDown() {
+        viewRetentionConfig.setCompactionGraceMinutes(originalGraceMinutes);
+    }
+
+    @Test
+    void testCompact_RecordedViewsMovedToRollupIncludingToday() {
+        // Given
+        addViews(3, 2);
+        addViews(5, 1);
+        addViews(4, 0);
+
+        // When
+        int compacted = viewRollupService.compact();
+
+        // Then - kompaktuje se po vremenu upisa, pa je i današnji (delimičan) dan u rollup-u
+        assertEquals(12, compacted);
+        assertEquals(3L, dailyCount(LocalDate.now().minusDays(2)).orElseThrow());
+        assertEquals(5L, dailyCount(LocalDate.now().minusDays(1)).orElseThrow());
+        assertEquals(4L, dailyCount(LocalDate.now()).orElseThrow());
+
+        // Ponovno pokretanje ne broji iste redove dvaput
+        assertEquals(0, viewRollupService.compact());
+        assertEquals(5L, dailyCount(LocalDate.now().minusDays(1)).orElseThrow());
+    }
+
+    @Test
+    void testCompact_LateViewAddedToAlreadyCompactedDay() {
+        // Given - dan je već u rollup-u
+        addViews(4, 3);
+        viewRollupService.compact();
+
+        // When - flush koji je ponovljen upisuje pregled za taj dan tek sada
+        addViews(1, 3);
+        int compacted = viewRollupService.compact();
+
+        // Then
+        assertEquals(1, compacted);
+        assertEquals(5L, dailyCount(LocalDate.now().minusDays(3)).orElseThrow());
+    }
+
+    @Test
+    void testCompact_RowsWithinGraceWaitForNextRun() {
+        // Given - red je upisan upravo sada, a grace je 10 minuta
+        viewRetentionConfig.setCompactionGraceMinutes(10);
+        addViews(2, 0);
+
+        // When / Then
+        assertEquals(0, viewRollupService.compact());
+        assertTrue(dailyCount(LocalDate.now()).isEmpty());
+
+        viewRetentionConfig.setCompactionGraceMinutes(0);
+        assertEquals(2, viewRollupService.compact());
+        assertEquals(2L, dailyCount(LocalDate.now()).orElseThrow());
+    }
+
+    @Test
+    void testPrune_DeletesOnlyCompactedRowsOlderThanRetention() {
+        // Given - 30 dana je retencija u podrazumevanoj konfiguraciji
+        addViews(7, 40);
+        addViews(2, 5);
+
+        // Pre kompakcije se ništa ne briše
+        assertEquals(0, viewRollupService.pruneRawViews());
+
+        // When - jedan stari pregled stiže posle kompakcije
+        viewRollupService.compact();
+        addViews(1, 40);
+        int deleted = viewRollupService.pruneRawViews();
+
+        // Then - obrisani su samo stari redovi koji su već u rollup-u
+        assertEquals(7, deleted);
+        assertEquals(3, videoViewRepository.count());
+        assertEquals(7L, dailyCount(LocalDate.now().minusDays(40)).orElseThrow());
+        assertEquals(2L, dailyCount(LocalDate.now().minusDays(5)).orElseThrow());
+
+        // Zakasneli red se briše tek kad uđe u rollup
+        viewRollupService.compact();
+        assertEquals(1, viewRollupService.pruneRawViews());
+        assertEquals(8L, dailyCount(LocalDate.now().minusDays(40)).orElseThrow());
+    }
+
+    @Test
+    void testRank_ReadsRollupAndUncompactedRawViews() {
+        // Given - pre 3 dana kompaktovano pa sirovi redovi uklonjeni; zakasneli pregled za taj dan
+        // i današnji pregledi su samo u video_views
+        addViews(4, 3);
+        viewRollupService.compact();
+        videoViewRepository.deleteAllInBatch();
+        addViews(1, 3);
+        addViews(2, 0);
+
+        // When
+        ViewWindowAggregator.ScoredVideo top = viewWindowAggregator.rank(
+                viewWindowAggregator.planRanges(1), 1, LocalDate.now(), () -> false).get(0);
+
+        // Then - 5 * 5 + 2 * 7 = 39
+        assertEquals(video.getId(), top.videoId());
+        assertEquals(39.0, top.score(), 0.01);
+    }
+
+    private Optional<Long> dailyCount(LocalDate day) {
+        return videoViewDailyRepository.findById(new VideoViewDaily.Key(video.getId(), day))
+                .map(VideoViewDaily::getViewCount);
+    }
+
+    private void addViews(int count, int daysAgo) {
+        // Današnji pregledi su iz prošlosti, a raniji u podne tog dana; recordedAt je trenutak upisa
+        LocalDateTime viewedAt = daysAgo == 0
+                ? LocalDateTime.now().minusMinutes(30)
+                : LocalDate.now().minusDays(daysAgo).atTime(12, 0);
+        for (int i = 0; i < count; i++) {
+            videoViewRepository.save(new VideoView(video, viewedAt.plusSeconds(i)));
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.backend;
+
+import com.example.backend.repository.VideoRepository;
+import com.example.backend.services.ViewRollupService;
+import com.example.backend.services.ViewRollupService.DailyCountConsumer;
+import com.example.backend.services.ViewWindowAggregator;
+import com.example.backend.services.ViewWindowAggregator.ScoredVideo;
+import com.example.backend.services.ViewWindowAggregator.VideoIdRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewWindowAggregatorTest {
+
+    @Mock
+    private ViewRollupService viewRollupService;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    private ViewWindowAggregator aggregator;
+    private final LocalDate today = LocalDate.of(2025, 3, 10);
+
+    // Redovi [videoId, epochDay, broj pregleda] koje vraća baza (rollup + nekompaktovani sirovi redovi)
+    private final List<long[]> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new ViewWindowAggregator(viewRollupService, videoRepository);
+        lenient().when(videoRepository.findMinId()).thenAnswer(invocation ->
+                rows.stream().mapToLong(row -> row[0]).boxed().min(Long::compare).orElse(null));
+        lenient().when(videoRepository.findMaxId()).thenAnswer(invocation ->
+                rows.stream().mapToLong(row -> row[0]).boxed().max(Long::compare).orElse(null));
+        // Baza vraća samo redove videa iz traženog opsega
+        lenient().doAnswer(invocation -> {
+            long fromId = invocation.getArgument(1);
+            long toId = invocation.getArgument(2);
+            DailyCountConsumer consumer = invocation.getArgument(3);
+            for (long[] row : rows) {
+                if (row[0] >= fromId && row[0] < toId) {
+                    consumer.accept(row[0], row[1], row[2]);
+                }
+            }
+            return null;
+        }).when(viewRollupService).readWindowCounts(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testWeights_MatchEtlSpecification() {
+        assertEquals(7.0, ViewWindowAggregator.weight(0));
+        assertEquals(7.0, ViewWindowAggregator.weight(1));
+        assertEquals(6.0, ViewWindowAggregator.weight(2));
+        assertEquals(2.0, ViewWindowAggregator.weight(6));
+        assertEquals(0.0, ViewWindowAggregator.weight(7));
+        assertEquals(0.0, ViewWindowAggregator.weight(-1));
+    }
+
+    @Test
+    void testTopScores_SlidingWindowOverSevenBuckets() {
+        // Given - isti video kroz ceo prozor
+        for (int daysAgo = 0; daysAgo < 7; daysAgo++) {
+            record(1L, today.minusDays(daysAgo), 1);
+        }
+
+        // Then - 7 + 7 + 6 + 5 + 4 + 3 + 2 = 34
+        assertEquals(34.0, topScores(1, today).get(0).score(), 0.001);
+
+        // Dan kasnije najstariji bucket ispada, ostali dobijaju manju težinu: 7 + 6 + 5 + 4 + 3 + 2 = 27
+        assertEquals(27.0, topScores(1, today.plusDays(1)).get(0).score(), 0.001);
+    }
+
+    @Test
+    void testRank_DayOutsideWindowDoesNotShareSlot() {
+        // Given - pregledi pre 7 dana dele slot sa današnjim
+        record(1L, today.minusDays(7), 100);
+        record(1L, today, 2);
+        record(1L, today.minusDays(7), 50);
+
+        // Then - računa se samo današnji bucket, bez obzira na redosled redova
+        assertEquals(14.0, topScores(1, today).get(0).score(), 0.001);
+    }
+
+    @Test
+    void testRank_ReadsSevenDaysEndingTodayPerRange() {
+        record(1L, today, 1);
+
+        topScores(1, today);
+
+        verify(viewRollupService).readWindowCounts(eq(today.minusDays(6)), eq(1L), eq(2L), any());
+    }
+
+    @Test
+    void testPlanRanges_CoverAllIdsWithoutGaps() {
+        // Given
+        record(5L, today, 1);
+        record(100_004L, today, 1);
+
+        // When
+        List<VideoIdRange> ranges = aggregator.planRanges(4);
+
+        // Then - najviše 4 * 4 opsega, svaki od bar MIN_RANGE_IDS id-jeva
+        assertEquals(13, ranges.size());
+        assertEquals(5L, ranges.get(0).fromId());
+        assertEquals(100_005L, ranges.get(ranges.size() - 1).toId());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).toId(), ranges.get(i).fromId());
+        }
+        assertEquals(8, aggregator.planRanges(2).size());
+    }
+
+    @Test
+    void testPlanRanges_NoVideos() {
+        assertTrue(aggregator.planRanges(4).isEmpty());
+        assertTrue(aggregator.rankParallel(List.of(), 3, today, () -> false, ForkJoinPool.commonPool()).isEmpty());
+    }
+
+    @Test
+    void testTopScores_ReturnsLimitInDescendingOrder() {
+        // Given
+        for (long id = 1; id <= 100; id++) {
+            record(id, today, id);
+        }
+
+        // When
+        List<ScoredVideo> top = topScores(3, today);
+
+        // Then
+        assertEquals(List.of(new ScoredVideo(100L, 700.0), new ScoredVideo(99L, 693.0), new ScoredVideo(98L, 686.0)), top);
+        assertTrue(topScores(0, today).isEmpty());
+    }
+
+    @Test
+    void testTopScores_DropsVideosWithoutViewsInWindow() {
+        // Given
+        record(1L, today.minusDays(6), 1);
+        record(2L, today, 1);
+
+        // When - nedelju dana kasnije nijedan video nema preglede u prozoru
+        List<ScoredVideo> top = topScores(3, today.plusDays(7));
+
+        // Then
+        assertTrue(top.isEmpty());
+    }
+
+    @Test
+    void testRank_RollupAndRawRowsForSameDayAreSummed() {
+        // Given - deo jučerašnjih pregleda je u rollup-u, deo još samo u sirovoj tabeli
+        record(1L, today.minusDays(2), 10);
+        record(1L, today.minusDays(1), 1);
+        record(1L, today.minusDays(1), 2);
+
+        // Then - 10 * 6 + 3 * 7 = 81
+        assertEquals(81.0, topScores(1, today).get(0).score(), 0.001);
+    }
+
+    @Test
+    void testRankParallel_SameResultAsSingleRange() {
+        // Given - dovoljno videa za vise opsega, sa dosta istih score-ova
+        Random random = new Random(42);
+        for (long id = 1; id <= 50_000; id++) {
+            record(id, today.minusDays(random.nextInt(7)), 1 + random.nextInt(50));
+        }
+        List<VideoIdRange> ranges = aggregator.planRanges(4);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            // When
+            List<ScoredVideo> single = aggregator.rank(List.of(new VideoIdRange(1, 50_001)), 20, today, () -> false);
+            List<ScoredVideo> sequential = aggregator.rank(ranges, 20, today, () -> false);
+            List<ScoredVideo> parallel = aggregator.rankParallel(ranges, 20, today, () -> false, pool);
+
+            // Then - svaki opseg se čita jednom
+            assertTrue(ranges.size() > 1);
+            assertEquals(single, sequential);
+            assertEquals(single, parallel);
+            assertEquals(20, parallel.size());
+            verify(viewRollupService, times(1 + 2 * ranges.size()))
+                    .readWindowCounts(any(), anyLong(), anyLong(), any());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRank_TiesResolvedBySmallerVideoId() {
+        record(3L, today, 1);
+        record(1L, today, 1);
+        record(2L, today, 1);
+
+        List<ScoredVideo> top = topScores(2, today);
+
+        assertEquals(List.of(new ScoredVideo(1L, 7.0), new ScoredVideo(2L, 7.0)), top);
+    }
+
+    @Test
+    void testRankParallel_CancelledThrows() {
+        for (long id = 1; id <= 20_000; id++) {
+            record(id, today, 1);
+        }
+        List<VideoIdRange> ranges = aggregator.planRanges(2);
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            assertThrows(CancellationException.class,
+                    () -> aggregator.rankParallel(ranges, 3, today, () -> true, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void record(long videoId, LocalDate day, long count) {
+        rows.add(new long[]{videoId, day.toEpochDay(), count});
+    }
+
+    private List<ScoredVideo> topScores(int limit, LocalDate day) {
+        return aggregator.rank(aggregator.planRanges(1), limit, day, () -> false);
+    }
+}
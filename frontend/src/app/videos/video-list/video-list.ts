@@ -33,6 +33,10 @@ export class VideoListComponent implements OnInit {
   etlExecutedAt: string = '';
   etlLoading: boolean = false;
 
+  // Feed najnovijih videa se učitava po stranama
+  nextCursor: string | null = null;
+  loadingMore: boolean = false;
+
   constructor(
     private videoService: VideoService,
     private router: Router,
@@ -69,11 +73,15 @@ export class VideoListComponent implements OnInit {
   loadVideos() {
     this.loading = true;
     this.error = '';
+    this.nextCursor = null;
 
     switch (this.activeTab) {
       case 'newest':
-        this.videoService.getAllVideos().subscribe({
-          next: (videos) => this.handleVideos(videos),
+        this.videoService.getVideoFeed().subscribe({
+          next: (page) => {
+            this.nextCursor = page.nextCursor;
+            this.handleVideos(page.videos);
+          },
           error: () => this.handleError('Greška pri učitavanju najnovijih videa')
         });
         break;
@@ -99,6 +107,26 @@ export class VideoListComponent implements OnInit {
     }
   }
 
+  loadMoreVideos() {
+    if (!this.nextCursor || this.loadingMore) {
+      return;
+    }
+    this.loadingMore = true;
+
+    this.videoService.getVideoFeed(this.nextCursor).subscribe({
+      next: (page) => {
+        this.videos = [...this.videos, ...page.videos];
+        this.nextCursor = page.nextCursor;
+        this.loadingMore = false;
+        this.cdr.detectChanges();
+      },
+      error: () => {
+        this.loadingMore = false;
+        this.handleError('Greška pri učitavanju najnovijih videa');
+      }
+    });
+  }
+
   private loadNearbyVideos(radiusKm: number, popular: boolean) {
     this.geoService.getUserLocation().subscribe({
       next: (loc) => {
@@ -177,7 +205,7 @@ export class VideoListComponent implements OnInit {
    * Dobijanje URL-a za thumbnail
    */
   getThumbnailUrl(videoId: number): string {
-    return this.videoService.getThumbnailUrl(videoId);
+    return this.videoService.getThumbnailUrl(videoId, 'medium');
   }
 
   formatScheduledDate(dateString: string): string {
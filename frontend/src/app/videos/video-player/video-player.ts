@@ -303,17 +303,17 @@ onVideoLoaded() {
   }
 
   loadOtherVideos(currentVideoId: number) {
-    this.videoService.getAllVideos().subscribe({
-        next: (videos) => {
+    this.videoService.getVideoFeed().subscribe({
+        next: (page) => {
             // izbaci trenutni video iz liste
-            this.otherVideos = videos.filter(v => v.id !== currentVideoId);
+            this.otherVideos = page.videos.filter(v => v.id !== currentVideoId);
             this.cdr.detectChanges();
         },
         error: (err) => console.error('Failed to load other videos', err)
     });
   }
   getThumbnailUrl(videoId: number): string {
-  return this.videoService.getThumbnailUrl(videoId);
+  return this.videoService.getThumbnailUrl(videoId, 'small');
 }
 
   incrementViewCount(videoId: number) {
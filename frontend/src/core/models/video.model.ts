@@ -1,3 +1,8 @@
+/**
+ * Unapred renderovane varijante thumbnail-a: small 160x90, medium 320x180, large 640x360
+ */
+export type ThumbnailSize = 'small' | 'medium' | 'large';
+
 export interface Video {
   id: number;
   title: string;
@@ -18,6 +23,13 @@ export interface Video {
   streamOffsetSeconds?: number;
 }
 
+// Jedna strana feed-a (GET /api/videos?cursor=&size=)
+export interface VideoFeedPage {
+  videos: Video[];
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
 export interface CreateVideoRequest {
   title: string;
   description: string;
@@ -1,7 +1,7 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
-import { Video, StreamInfo } from '../models/video.model';
+import { Video, StreamInfo, VideoFeedPage, ThumbnailSize } from '../models/video.model';
 
 @Injectable({
   providedIn: 'root'
@@ -46,10 +46,14 @@ export class VideoService {
   }
 
   /**
-   * Lista svih videa
+   * Strana feed-a najnovijih videa (cursor = nextCursor prethodne strane)
    */
-  getAllVideos(): Observable<Video[]> {
-    return this.http.get<Video[]>(this.apiUrl);
+  getVideoFeed(cursor: string | null = null, size: number = 20): Observable<VideoFeedPage> {
+    let params = new HttpParams().set('size', size);
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    return this.http.get<VideoFeedPage>(this.apiUrl, { params });
   }
 
   /**
@@ -67,10 +71,10 @@ export class VideoService {
   }
 
   /**
-   * URL za thumbnail sliku
+   * URL za thumbnail sliku u traženoj veličini (manje kartice ne skidaju 640x360)
    */
-  getThumbnailUrl(id: number): string {
-    return `${this.apiUrl}/${id}/thumbnail`;
+  getThumbnailUrl(id: number, size: ThumbnailSize = 'large'): string {
+    return `${this.apiUrl}/${id}/thumbnail?size=${size}`;
   }
 
   /**